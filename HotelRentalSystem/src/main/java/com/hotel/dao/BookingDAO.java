@@ -3,6 +3,7 @@ package com.hotel.dao;
 import com.hotel.model.Booking;
 import com.hotel.util.DatabaseConnection;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -37,6 +38,8 @@ public class BookingDAO {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     booking.setBookingId(rs.getLong(1));
+                    VIPAnalyticsDAO.recordBooking(booking.getCustomerId(), LocalDate.now(),
+                            booking.getTotalAmount(), booking.getDiscountApplied(), 1);
                     return booking;
                 }
             }
@@ -62,7 +65,7 @@ public class BookingDAO {
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
-                return mapResultSetToBooking(rs);
+                return new BookingRowMapper(rs).map(rs);
             }
             
             return null;
@@ -86,8 +89,9 @@ public class BookingDAO {
             
             rs = pstmt.executeQuery();
             
+            BookingRowMapper mapper = new BookingRowMapper(rs);
             while (rs.next()) {
-                bookings.add(mapResultSetToBooking(rs));
+                bookings.add(mapper.map(rs));
             }
             
             return bookings;
@@ -121,8 +125,9 @@ public class BookingDAO {
             
             rs = pstmt.executeQuery();
             
+            BookingRowMapper mapper = new BookingRowMapper(rs);
             while (rs.next()) {
-                bookings.add(mapResultSetToBooking(rs));
+                bookings.add(mapper.map(rs));
             }
             
             return bookings;
@@ -151,8 +156,9 @@ public class BookingDAO {
             pstmt = conn.prepareStatement(sql);
             rs = pstmt.executeQuery();
             
+            BookingRowMapper mapper = new BookingRowMapper(rs);
             while (rs.next()) {
-                bookings.add(mapResultSetToBooking(rs));
+                bookings.add(mapper.map(rs));
             }
             
             return bookings;
@@ -176,8 +182,9 @@ public class BookingDAO {
             pstmt = conn.prepareStatement(sql);
             rs = pstmt.executeQuery();
             
+            BookingRowMapper mapper = new BookingRowMapper(rs);
             while (rs.next()) {
-                bookings.add(mapResultSetToBooking(rs));
+                bookings.add(mapper.map(rs));
             }
             
             return bookings;
@@ -209,22 +216,54 @@ public class BookingDAO {
             pstmt.setLong(9, booking.getBookingId());
             
             pstmt.executeUpdate();
+            VIPAnalyticsDAO.invalidateCube();
         } finally {
             DatabaseConnection.closeResources(conn, pstmt);
         }
     }
 
     public void cancel(int bookingId) throws SQLException {
-        String sql = "UPDATE bookings SET booking_status = 'CANCELLED' WHERE booking_id = ?";
+        String sql = "UPDATE bookings SET booking_status = 'CANCELLED' " +
+                    "WHERE booking_id = ? AND booking_status <> 'CANCELLED'";
         
         Connection conn = null;
         PreparedStatement pstmt = null;
         
         try {
             conn = DatabaseConnection.getConnection();
+            
+            // Read what the booking contributed before it drops out of the VIP analytics cube
+            int customerId = 0;
+            java.sql.Date bookingDate = null;
+            double totalAmount = 0.0;
+            double discountApplied = 0.0;
+            if (VIPAnalyticsDAO.isCubeLoaded()) {
+                try (PreparedStatement select = conn.prepareStatement(
+                        "SELECT customer_id, booking_date, total_amount, discount_applied " +
+                        "FROM bookings WHERE booking_id = ?")) {
+                    select.setInt(1, bookingId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (rs.next()) {
+                            customerId = rs.getInt("customer_id");
+                            bookingDate = rs.getDate("booking_date");
+                            totalAmount = rs.getDouble("total_amount");
+                            discountApplied = rs.getDouble("discount_applied");
+                        }
+                    }
+                }
+            }
+            
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, bookingId);
-            pstmt.executeUpdate();
+            if (pstmt.executeUpdate() > 0) {
+                if (bookingDate != null) {
+                    VIPAnalyticsDAO.recordBooking(customerId, bookingDate.toLocalDate(),
+                            totalAmount, discountApplied, -1);
+                } else {
+                    // The cube was not loaded; make sure a load in progress starts over
+                    VIPAnalyticsDAO.invalidateCube();
+                }
+            }
         } finally {
             DatabaseConnection.closeResources(conn, pstmt);
         }
@@ -243,8 +282,9 @@ public class BookingDAO {
             pstmt = conn.prepareStatement(sql);
             rs = pstmt.executeQuery();
             
+            BookingRowMapper mapper = new BookingRowMapper(rs);
             while (rs.next()) {
-                bookings.add(mapResultSetToBooking(rs));
+                bookings.add(mapper.map(rs));
             }
             
             return bookings;
@@ -269,7 +309,7 @@ public class BookingDAO {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToBooking(rs);
+                    return new BookingRowMapper(rs).map(rs);
                 }
             }
         }
@@ -294,8 +334,9 @@ public class BookingDAO {
             pstmt.setDate(2, new java.sql.Date(startDate.getTime()));
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                BookingRowMapper mapper = new BookingRowMapper(rs);
                 while (rs.next()) {
-                    bookings.add(mapResultSetToBooking(rs));
+                    bookings.add(mapper.map(rs));
                 }
             }
         }
@@ -330,11 +371,11 @@ public class BookingDAO {
             bookingStmt.setInt(1, bookingId);
             int updatedRows = bookingStmt.executeUpdate();
             if (updatedRows > 0) {
-                String revenueSql = "UPDATE customers c SET c.total_spent = c.total_spent + (SELECT b.total_amount + NVL(b.services_total,0) + NVL(b.extra_charges,0) - NVL(b.discount_applied,0) FROM bookings b WHERE b.booking_id = ?), c.loyalty_points = c.loyalty_points + FLOOR((SELECT b.total_amount + NVL(b.services_total,0) + NVL(b.extra_charges,0) - NVL(b.discount_applied,0) FROM bookings b WHERE b.booking_id = ?) / 10) WHERE c.customer_id = (SELECT customer_id FROM bookings WHERE booking_id = ?)";
+                // Loyalty points are appended to loyalty_point_events by trg_update_loyalty_points, not updated here
+                String revenueSql = "UPDATE customers c SET c.total_spent = c.total_spent + (SELECT b.total_amount + NVL(b.services_total,0) + NVL(b.extra_charges,0) - NVL(b.discount_applied,0) FROM bookings b WHERE b.booking_id = ?) WHERE c.customer_id = (SELECT customer_id FROM bookings WHERE booking_id = ?)";
                 revenueStmt = conn.prepareStatement(revenueSql);
                 revenueStmt.setInt(1, bookingId);
                 revenueStmt.setInt(2, bookingId);
-                revenueStmt.setInt(3, bookingId);
                 revenueStmt.executeUpdate();
                 try {
                     invoiceCheckStmt = conn.prepareStatement("SELECT COUNT(*) FROM invoices WHERE booking_id = ?");
@@ -382,82 +423,128 @@ public class BookingDAO {
             pstmt.setDate(4, new java.sql.Date(endDate.getTime()));
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                BookingRowMapper mapper = new BookingRowMapper(rs);
                 while (rs.next()) {
-                    bookings.add(mapResultSetToBooking(rs));
+                    bookings.add(mapper.map(rs));
                 }
             }
         }
         return bookings;
     }
 
-    private Booking mapResultSetToBooking(ResultSet rs) throws SQLException {
-        Booking booking = new Booking();
-        booking.setBookingId(rs.getLong("booking_id"));
-        booking.setCustomerId(rs.getInt("customer_id"));
-        booking.setRoomId(rs.getInt("room_id"));
-
-        // Convert java.sql.Date to java.util.Date
-        java.sql.Date checkInSqlDate = rs.getDate("check_in_date");
-        booking.setCheckInDate(checkInSqlDate != null ? new java.util.Date(checkInSqlDate.getTime()) : null);
-
-        java.sql.Date checkOutSqlDate = rs.getDate("check_out_date");
-        booking.setCheckOutDate(checkOutSqlDate != null ? new java.util.Date(checkOutSqlDate.getTime()) : null);
-
-        booking.setBookingStatus(rs.getString("booking_status"));
-        booking.setTotalAmount(rs.getDouble("total_amount"));
-        booking.setDiscountApplied(rs.getDouble("discount_applied"));
-        booking.setExtraCharges(rs.getDouble("extra_charges"));
-
-        java.sql.Date createdSqlDate = rs.getDate("created_date");
-        booking.setCreatedDate(createdSqlDate != null ? new java.util.Date(createdSqlDate.getTime()) : null);
-
-        booking.setCreatedBy(rs.getString("created_by"));
+    // Maps bookings rows. Column positions are looked up from the metadata once per result set;
+    // customer, room, payment and actual check-in/out columns are only present in some queries.
+    private static final class BookingRowMapper {
+        private final int bookingId;
+        private final int customerId;
+        private final int roomId;
+        private final int checkInDate;
+        private final int checkOutDate;
+        private final int bookingStatus;
+        private final int totalAmount;
+        private final int discountApplied;
+        private final int extraCharges;
+        private final int createdDate;
+        private final int createdBy;
+        private final int firstName;
+        private final int lastName;
+        private final int email;
+        private final int roomNumber;
+        private final int typeId;
+        private final int typeName;
+        private final int paymentStatus;
+        private final int actualCheckIn;
+        private final int actualCheckOut;
+
+        BookingRowMapper(ResultSet rs) throws SQLException {
+            ColumnPositions positions = new ColumnPositions(rs);
+            bookingId = positions.position("booking_id");
+            customerId = positions.position("customer_id");
+            roomId = positions.position("room_id");
+            checkInDate = positions.position("check_in_date");
+            checkOutDate = positions.position("check_out_date");
+            bookingStatus = positions.position("booking_status");
+            totalAmount = positions.position("total_amount");
+            discountApplied = positions.position("discount_applied");
+            extraCharges = positions.position("extra_charges");
+            createdDate = positions.position("created_date");
+            createdBy = positions.position("created_by");
+            firstName = positions.position("first_name");
+            lastName = positions.position("last_name");
+            email = positions.position("email");
+            roomNumber = positions.position("room_number");
+            typeId = positions.position("type_id");
+            typeName = positions.position("type_name");
+            paymentStatus = positions.position("payment_status");
+            actualCheckIn = positions.position("actual_check_in");
+            actualCheckOut = positions.position("actual_check_out");
+        }
 
-        // Check if customer data is available (for JOINed queries)
-        try {
-            String firstName = rs.getString("first_name");
-            String lastName = rs.getString("last_name");
-            String email = rs.getString("email");
-
-            if (firstName != null && lastName != null) {
-                booking.getCustomer().setFirstName(firstName);
-                booking.getCustomer().setLastName(lastName);
-                booking.getCustomer().setEmail(email);
-                booking.getCustomer().setCustomerId(booking.getCustomerId());
+        Booking map(ResultSet rs) throws SQLException {
+            Booking booking = new Booking();
+            booking.setBookingId(rs.getLong(bookingId));
+            booking.setCustomerId(rs.getInt(customerId));
+            booking.setRoomId(rs.getInt(roomId));
+
+            // Convert java.sql.Date to java.util.Date
+            java.sql.Date checkInSqlDate = rs.getDate(checkInDate);
+            booking.setCheckInDate(checkInSqlDate != null ? new java.util.Date(checkInSqlDate.getTime()) : null);
+
+            java.sql.Date checkOutSqlDate = rs.getDate(checkOutDate);
+            booking.setCheckOutDate(checkOutSqlDate != null ? new java.util.Date(checkOutSqlDate.getTime()) : null);
+
+            booking.setBookingStatus(rs.getString(bookingStatus));
+            booking.setTotalAmount(rs.getDouble(totalAmount));
+            booking.setDiscountApplied(rs.getDouble(discountApplied));
+            booking.setExtraCharges(rs.getDouble(extraCharges));
+
+            java.sql.Date createdSqlDate = rs.getDate(createdDate);
+            booking.setCreatedDate(createdSqlDate != null ? new java.util.Date(createdSqlDate.getTime()) : null);
+
+            booking.setCreatedBy(rs.getString(createdBy));
+
+            // Customer data (JOINed queries only)
+            if (firstName > 0 && lastName > 0) {
+                String first = rs.getString(firstName);
+                String last = rs.getString(lastName);
+                if (first != null && last != null) {
+                    booking.getCustomer().setFirstName(first);
+                    booking.getCustomer().setLastName(last);
+                    booking.getCustomer().setEmail(email > 0 ? rs.getString(email) : null);
+                    booking.getCustomer().setCustomerId(booking.getCustomerId());
+                }
             }
-        } catch (SQLException e) {
-
-        }
 
-        try {
-            String roomNumber = rs.getString("room_number");
-            int typeId = rs.getInt("type_id");
-            String typeName = rs.getString("type_name");
-
-            if (roomNumber != null) {
-                booking.getRoom().setRoomNumber(roomNumber);
-                booking.getRoom().setRoomId(booking.getRoomId());
-                booking.getRoom().setTypeId(typeId);
-                booking.getRoom().getRoomType().setTypeName(typeName);
+            // Room data (JOINed queries only)
+            if (roomNumber > 0) {
+                String number = rs.getString(roomNumber);
+                if (number != null) {
+                    booking.getRoom().setRoomNumber(number);
+                    booking.getRoom().setRoomId(booking.getRoomId());
+                    if (typeId > 0) {
+                        booking.getRoom().setTypeId(rs.getInt(typeId));
+                    }
+                    if (typeName > 0) {
+                        booking.getRoom().getRoomType().setTypeName(rs.getString(typeName));
+                    }
+                }
             }
-        } catch (SQLException e) {
-            // Column not found, which is okay for non-JOIN queries
-        }
 
-        // NEW: map payment status & actual check-in/out timestamps if present
-        try {
-            String paymentStatus = rs.getString("payment_status");
-            if (paymentStatus != null) booking.setPaymentStatus(paymentStatus);
-        } catch (SQLException ignore) {}
-        try {
-            Timestamp actIn = rs.getTimestamp("actual_check_in");
-            if (actIn != null) booking.setActualCheckIn(new Date(actIn.getTime()));
-        } catch (SQLException ignore) {}
-        try {
-            Timestamp actOut = rs.getTimestamp("actual_check_out");
-            if (actOut != null) booking.setActualCheckOut(new Date(actOut.getTime()));
-        } catch (SQLException ignore) {}
+            // Payment status & actual check-in/out timestamps if present
+            if (paymentStatus > 0) {
+                String status = rs.getString(paymentStatus);
+                if (status != null) booking.setPaymentStatus(status);
+            }
+            if (actualCheckIn > 0) {
+                Timestamp actIn = rs.getTimestamp(actualCheckIn);
+                if (actIn != null) booking.setActualCheckIn(new Date(actIn.getTime()));
+            }
+            if (actualCheckOut > 0) {
+                Timestamp actOut = rs.getTimestamp(actualCheckOut);
+                if (actOut != null) booking.setActualCheckOut(new Date(actOut.getTime()));
+            }
 
-        return booking;
+            return booking;
+        }
     }
 }
@@ -32,20 +32,16 @@ public class BookingDAOFix {
             int updatedRows = bookingStmt.executeUpdate();
 
             if (updatedRows > 0) {
-                // 2. Update customer's total_spent and loyalty_points
+                // 2. Update customer's total_spent (loyalty points are appended to the ledger by trigger)
                 String revenueSql = "UPDATE customers c " +
                       "SET c.total_spent = c.total_spent + " +
                       "(SELECT b.total_amount + NVL(b.services_total, 0) + NVL(b.extra_charges, 0) - NVL(b.discount_applied, 0) " +
-                      " FROM bookings b WHERE b.booking_id = ?), " +
-                      "c.loyalty_points = c.loyalty_points + " +
-                      "FLOOR((SELECT b.total_amount + NVL(b.services_total, 0) + NVL(b.extra_charges, 0) - NVL(b.discount_applied, 0) " +
-                      " FROM bookings b WHERE b.booking_id = ?) / 10) " +
+                      " FROM bookings b WHERE b.booking_id = ?) " +
                       "WHERE c.customer_id = (SELECT customer_id FROM bookings WHERE booking_id = ?)";
 
                 revenueStmt = conn.prepareStatement(revenueSql);
                 revenueStmt.setInt(1, bookingId);
                 revenueStmt.setInt(2, bookingId);
-                revenueStmt.setInt(3, bookingId);
                 revenueStmt.executeUpdate();
 
                 try {
@@ -0,0 +1,29 @@
+package com.hotel.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column positions of a result set by lower-case label, read once from its metadata so row
+ * mappers can fetch values by index. The first column with a label wins; an absent column
+ * has position 0, which mappers check before reading optional columns.
+ */
+final class ColumnPositions {
+
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    ColumnPositions(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            positions.put(metaData.getColumnLabel(i).toLowerCase(), i);
+        }
+    }
+
+    int position(String column) {
+        Integer position = positions.get(column);
+        return position != null ? position : 0;
+    }
+}
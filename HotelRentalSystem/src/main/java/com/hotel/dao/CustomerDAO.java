@@ -1,14 +1,34 @@
 package com.hotel.dao;
 
 import com.hotel.model.Customer;
+import com.hotel.model.VIPEligibleSet;
+import com.hotel.model.VIPMembershipEngine;
 import com.hotel.util.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 public class CustomerDAO {
+
+    private static final String CUSTOMER_COLUMNS =
+            "c.customer_id, c.first_name, c.last_name, c.email, c.phone, " +
+            "c.address, c.date_of_birth, c.total_spent, c.registration_date, " +
+            "c.is_active, c.loyalty_points";
+
+    // Customer IDs per IN list in findByIds
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    // Customers eligible for VIP, shared by all DAO instances (loaded on first read)
+    private static final VIPEligibleSet ELIGIBLE = new VIPEligibleSet();
+
     public Customer create(Customer customer) throws SQLException {
         String sql = "INSERT INTO customers (customer_id, first_name, last_name, email, phone, " +
                     "address, date_of_birth, total_spent, loyalty_points) " +
@@ -44,6 +64,9 @@ public class CustomerDAO {
                 if (rs.next()) {
                     int customerId = rs.getInt(1);
                     customer.setCustomerId(customerId);
+                    if (customer.getTotalSpent() >= VIPMembershipEngine.GOLD_THRESHOLD) {
+                        refreshVIPEligibility(customerId);
+                    }
                     return customer;
                 }
             }
@@ -85,6 +108,38 @@ public class CustomerDAO {
         }
     }
     
+    /**
+     * Find many customers at once, keyed by customer ID (IDs that do not exist are absent).
+     * IDs are sent in IN lists of at most LOOKUP_BATCH_SIZE.
+     */
+    public Map<Integer, Customer> findByIds(Collection<Integer> customerIds) throws SQLException {
+        Map<Integer, Customer> customers = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new HashSet<>(customerIds));
+        if (ids.isEmpty()) {
+            return customers;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE));
+                String sql = "SELECT " + CUSTOMER_COLUMNS + " FROM customers c WHERE c.customer_id IN (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Customer customer = mapResultSetToCustomer(rs);
+                            customers.put(customer.getCustomerId(), customer);
+                        }
+                    }
+                }
+            }
+        }
+        return customers;
+    }
+
     /**
      * Find customer by email
      */
@@ -149,7 +204,7 @@ public class CustomerDAO {
      */
     public void update(Customer customer) throws SQLException {
         String sql = "UPDATE customers SET first_name = ?, last_name = ?, email = ?, " +
-                    "phone = ?, address = ?, date_of_birth = ?, total_spent = ?, loyalty_points = ? " +
+                    "phone = ?, address = ?, date_of_birth = ?, total_spent = ? " +
                     "WHERE customer_id = ?";
         
         Connection conn = null;
@@ -172,14 +227,17 @@ public class CustomerDAO {
             }
             
             pstmt.setDouble(7, customer.getTotalSpent());
-            pstmt.setInt(8, customer.getLoyaltyPoints());
-            pstmt.setInt(9, customer.getCustomerId());
+            // loyalty_points is owned by the points ledger (LoyaltyLedgerDAO); not written from here
+            pstmt.setInt(8, customer.getCustomerId());
             
             pstmt.executeUpdate();
 
         } finally {
             DatabaseConnection.closeResources(conn, pstmt);
         }
+        refreshVIPEligibility(customer.getCustomerId());
+        // A higher total_spent runs update_vip_status, which may create or change the membership
+        new VIPMemberDAO().refreshCustomerDiscount(customer.getCustomerId());
     }
     
     /**
@@ -197,6 +255,9 @@ public class CustomerDAO {
             pstmt.setInt(1, customerId);
             
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                ELIGIBLE.remove(customerId);
+            }
             return rowsAffected > 0;
             
         } finally {
@@ -243,10 +304,20 @@ public class CustomerDAO {
         }
     }
 
+    /**
+     * Active non-VIP customers spending at least the threshold, highest spending first.
+     * Thresholds at or above Gold are served from the in-memory eligible set.
+     */
     public List<Customer> getVIPEligibleCustomers(double spendingThreshold) throws SQLException {
-        String sql = "SELECT c.customer_id, c.first_name, c.last_name, c.email, c.phone, " +
-                    "c.address, c.date_of_birth, c.total_spent, c.registration_date, " +
-                    "c.is_active, c.loyalty_points " +
+        if (spendingThreshold >= VIPMembershipEngine.GOLD_THRESHOLD) {
+            loadVIPEligibilityIfNeeded();
+            return ELIGIBLE.getEligible(spendingThreshold);
+        }
+        return queryVIPEligibleCustomers(spendingThreshold);
+    }
+
+    private List<Customer> queryVIPEligibleCustomers(double spendingThreshold) throws SQLException {
+        String sql = "SELECT " + CUSTOMER_COLUMNS + " " +
                     "FROM customers c " +
                     "LEFT JOIN vip_members vm ON c.customer_id = vm.customer_id AND vm.is_active = 'Y' " +
                     "WHERE c.is_active = 'Y' AND c.total_spent >= ? AND vm.customer_id IS NULL " +
@@ -396,24 +467,87 @@ public class CustomerDAO {
      * Find VIP eligible customers (alternative method signature)
      */
     public List<Customer> findVIPEligibleCustomers() throws SQLException {
-        String sql = "SELECT c.customer_id, c.first_name, c.last_name, c.email, c.phone, " +
-                    "c.address, c.date_of_birth, c.total_spent, c.registration_date, " +
-                    "c.is_active, c.loyalty_points " +
-                    "FROM customers c " +
-                    "LEFT JOIN vip_members vm ON c.customer_id = vm.customer_id AND vm.is_active = 'Y' " +
-                    "WHERE c.is_active = 'Y' AND c.total_spent >= 5000 AND vm.customer_id IS NULL " +
-                    "ORDER BY c.total_spent DESC";
+        loadVIPEligibilityIfNeeded();
+        return ELIGIBLE.getEligible();
+    }
 
-        List<Customer> customers = new ArrayList<>();
+    /**
+     * Re-evaluate one customer's VIP eligibility from their current row
+     */
+    public void refreshVIPEligibility(int customerId) throws SQLException {
+        if (!ELIGIBLE.isLoaded()) return;
+        String sql = "SELECT " + CUSTOMER_COLUMNS + ", " +
+                    "CASE WHEN EXISTS (SELECT 1 FROM vip_members vm " +
+                    "WHERE vm.customer_id = c.customer_id AND vm.is_active = 'Y') THEN 'Y' ELSE 'N' END AS is_vip " +
+                    "FROM customers c WHERE c.customer_id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                customers.add(mapResultSetToCustomer(rs));
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    ELIGIBLE.evaluate(mapResultSetToCustomer(rs), "Y".equals(rs.getString("is_vip")));
+                } else {
+                    ELIGIBLE.remove(customerId);
+                }
             }
         }
-        return customers;
+    }
+
+    /**
+     * Customer of a booking, or 0 if the booking does not exist
+     */
+    public int findCustomerIdByBooking(long bookingId) throws SQLException {
+        String sql = "SELECT customer_id FROM bookings WHERE booking_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, bookingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * IDs of all active customers, for validating bulk imports without a lookup per row
+     */
+    public Set<Integer> findActiveCustomerIds() throws SQLException {
+        String sql = "SELECT customer_id FROM customers WHERE is_active = 'Y'";
+        Set<Integer> ids = new HashSet<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setFetchSize(1000);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Drop a customer from the eligible set (called when they become a VIP member)
+     */
+    public static void removeFromVIPEligible(int customerId) {
+        ELIGIBLE.remove(customerId);
+    }
+
+    /**
+     * Forget the eligible set after bulk membership changes; the next read reloads it
+     */
+    public static void invalidateVIPEligibility() {
+        ELIGIBLE.invalidate();
+    }
+
+    private void loadVIPEligibilityIfNeeded() throws SQLException {
+        if (!ELIGIBLE.isLoaded()) {
+            ELIGIBLE.load(queryVIPEligibleCustomers(VIPMembershipEngine.GOLD_THRESHOLD));
+        }
     }
 }
@@ -1,15 +1,61 @@
 package com.hotel.dao;
 
+import com.hotel.model.Customer;
 import com.hotel.model.Invoice;
 import com.hotel.model.InvoiceLineItem;
+import com.hotel.model.ReceivablesLedger;
+import com.hotel.model.RevenueSummary;
 import com.hotel.util.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 
 public class InvoiceDAO {
+
+    private static final int DEFAULT_FETCH_SIZE = 200;
+
+    // Booking IDs per IN list in findInvoicedBookingIds
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    // Invoice, customer and line item columns shared by every invoice query.
+    // Queries order by invoice_id, line_item_id last so the rows of one invoice are adjacent.
+    private static final String INVOICE_SELECT =
+            "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
+            "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
+            "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
+            "i.notes, i.created_by, " +
+            "c.first_name, c.last_name, c.email, " +
+            "li.line_item_id, li.item_type, li.item_description, li.quantity, " +
+            "li.unit_price, li.line_total, li.service_id, li.usage_id " +
+            "FROM invoices i " +
+            "JOIN customers c ON i.customer_id = c.customer_id " +
+            "LEFT JOIN invoice_line_items li ON li.invoice_id = i.invoice_id ";
+
+    // Running receivables totals shared by every DAO instance
+    private static final ReceivablesLedger LEDGER = new ReceivablesLedger();
+
+    // Binds the parameters of an update statement
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private final int fetchSize;
+
+    public InvoiceDAO() {
+        this(DEFAULT_FETCH_SIZE);
+    }
+
+    // fetchSize is the number of rows the driver fetches per round trip for invoice queries
+    public InvoiceDAO(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
     
     // Generate invoice using stored procedure
     public Invoice generateInvoice(long bookingId, double taxRate, String createdBy) throws SQLException {
@@ -39,6 +85,7 @@ public class InvoiceDAO {
                 Invoice invoice = findById(invoiceId);
                 if (invoice != null) {
                     invoice.setInvoiceNumber(invoiceNumber);
+                    LEDGER.recordCreated(invoice.getPaymentStatus(), invoice.getInvoiceDate(), invoice.getTotalAmount());
                 }
                 return invoice;
             } else {
@@ -49,200 +96,141 @@ public class InvoiceDAO {
     
     // Find invoice by ID
     public Invoice findById(long invoiceId) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.invoice_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setLong(1, invoiceId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    // Load line items
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoiceId));
-                    return invoice;
-                }
-            }
-        }
-        return null;
+        return findOne("WHERE i.invoice_id = ?", stmt -> stmt.setLong(1, invoiceId));
     }
     
     // Find invoice by invoice number
     public Invoice findByInvoiceNumber(String invoiceNumber) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.invoice_number = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, invoiceNumber);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    // Load line items
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                    return invoice;
-                }
-            }
-        }
-        return null;
+        return findOne("WHERE i.invoice_number = ?", stmt -> stmt.setString(1, invoiceNumber));
     }
     
     // Find invoices by customer ID
     public List<Invoice> findByCustomerId(int customerId) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.customer_id = ? ORDER BY i.invoice_date DESC";
-        
-        List<Invoice> invoices = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, customerId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    // Load line items for each invoice
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                    invoices.add(invoice);
-                }
-            }
-        }
-        return invoices;
+        return findList("WHERE i.customer_id = ?", "i.invoice_date DESC",
+                stmt -> stmt.setInt(1, customerId));
     }
     
     // Find invoices by booking ID
     public List<Invoice> findByBookingId(long bookingId) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.booking_id = ? ORDER BY i.invoice_date DESC";
-        
-        List<Invoice> invoices = new ArrayList<>();
+        return findList("WHERE i.booking_id = ?", "i.invoice_date DESC",
+                stmt -> stmt.setLong(1, bookingId));
+    }
+    
+    // Which of the given bookings already have an invoice, in IN lists of at most LOOKUP_BATCH_SIZE
+    public Set<Long> findInvoicedBookingIds(Collection<Long> bookingIds) throws SQLException {
+        Set<Long> invoiced = new HashSet<>();
+        List<Long> ids = new ArrayList<>(bookingIds);
+        if (ids.isEmpty()) {
+            return invoiced;
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setLong(1, bookingId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    // Load line items for each invoice
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                    invoices.add(invoice);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE));
+                String sql = "SELECT DISTINCT booking_id FROM invoices WHERE booking_id IN (" +
+                            String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            invoiced.add(rs.getLong(1));
+                        }
+                    }
                 }
             }
         }
-        return invoices;
+        return invoiced;
     }
     
     // Find all invoices
     public List<Invoice> findAll() throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "ORDER BY i.invoice_date DESC";
-        
-        List<Invoice> invoices = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Invoice invoice = mapResultSetToInvoice(rs);
-                // Load line items for each invoice
-                invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                invoices.add(invoice);
-            }
-        }
-        return invoices;
+        return findList("", "i.invoice_date DESC", stmt -> { });
     }
     
     // Find pending invoices
     public List<Invoice> findPendingInvoices() throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.payment_status = 'PENDING' " +
-                    "ORDER BY i.due_date";
-        
-        List<Invoice> invoices = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Invoice invoice = mapResultSetToInvoice(rs);
-                invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                invoices.add(invoice);
-            }
-        }
-        return invoices;
+        return findByPaymentStatus(Invoice.PaymentStatus.PENDING);
     }
     
-    // Find overdue invoices
+    // Find overdue invoices (status maintained by markOverdueInvoices)
     public List<Invoice> findOverdueInvoices() throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.payment_status IN ('PENDING', 'OVERDUE') " +
-                    "AND i.due_date < SYSDATE " +
-                    "ORDER BY i.due_date";
-        
-        List<Invoice> invoices = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                Invoice invoice = mapResultSetToInvoice(rs);
-                invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                invoices.add(invoice);
+        return findList("WHERE i.payment_status = 'OVERDUE'", "i.due_date", stmt -> { });
+    }
+    
+    // Move PENDING invoices due before today to OVERDUE, at most batchSize invoices per transaction.
+    // Batches walk the invoice ids in order; returns the number of invoices marked overdue.
+    // The cutoff is fixed once and bound as a DATE so every batch compares due_date the same way.
+    public int markOverdueInvoices(int batchSize) throws SQLException {
+        String boundSql = "SELECT MAX(invoice_id) FROM (" +
+                         "SELECT invoice_id FROM invoices " +
+                         "WHERE payment_status = 'PENDING' AND due_date < ? AND invoice_id > ? " +
+                         "ORDER BY invoice_id) WHERE ROWNUM <= ?";
+        String lockSql = "SELECT invoice_id, invoice_date, total_amount FROM invoices " +
+                        "WHERE payment_status = 'PENDING' AND due_date < ? " +
+                        "AND invoice_id > ? AND invoice_id <= ? FOR UPDATE";
+        String updateSql = "UPDATE invoices SET payment_status = 'OVERDUE' " +
+                          "WHERE payment_status = 'PENDING' AND due_date < ? " +
+                          "AND invoice_id > ? AND invoice_id <= ?";
+
+        Date cutoff = Date.valueOf(java.time.LocalDate.now());
+        long lastInvoiceId = 0;
+        int totalUpdated = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement boundStmt = conn.prepareStatement(boundSql);
+                 PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                 PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+
+                while (true) {
+                    boundStmt.setDate(1, cutoff);
+                    boundStmt.setLong(2, lastInvoiceId);
+                    boundStmt.setInt(3, batchSize);
+                    long upperInvoiceId;
+                    try (ResultSet rs = boundStmt.executeQuery()) {
+                        rs.next();
+                        upperInvoiceId = rs.getLong(1);
+                        if (rs.wasNull()) {
+                            break;
+                        }
+                    }
+
+                    // Lock the batch and remember what the ledger has to move
+                    List<Timestamp> invoiceDates = new ArrayList<>();
+                    List<Double> amounts = new ArrayList<>();
+                    lockStmt.setDate(1, cutoff);
+                    lockStmt.setLong(2, lastInvoiceId);
+                    lockStmt.setLong(3, upperInvoiceId);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        while (rs.next()) {
+                            invoiceDates.add(rs.getTimestamp("invoice_date"));
+                            amounts.add(rs.getDouble("total_amount"));
+                        }
+                    }
+
+                    updateStmt.setDate(1, cutoff);
+                    updateStmt.setLong(2, lastInvoiceId);
+                    updateStmt.setLong(3, upperInvoiceId);
+                    int updated = updateStmt.executeUpdate();
+                    conn.commit();
+
+                    for (int i = 0; i < invoiceDates.size(); i++) {
+                        LEDGER.recordChange(invoiceDates.get(i), Invoice.PaymentStatus.PENDING, amounts.get(i),
+                                Invoice.PaymentStatus.OVERDUE, amounts.get(i));
+                    }
+                    totalUpdated += updated;
+                    lastInvoiceId = upperInvoiceId;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
-        return invoices;
+        return totalUpdated;
     }
     
     // Update invoice payment status
@@ -251,9 +239,7 @@ public class InvoiceDAO {
         String sql = "UPDATE invoices SET payment_status = ?, payment_date = ?, payment_method = ? " +
                     "WHERE invoice_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        executeLedgerUpdate(invoiceId, paymentStatus, null, sql, stmt -> {
             stmt.setString(1, paymentStatus.name());
             if (paymentDate != null) {
                 stmt.setTimestamp(2, new Timestamp(paymentDate.getTime()));
@@ -262,9 +248,7 @@ public class InvoiceDAO {
             }
             stmt.setString(3, paymentMethod);
             stmt.setLong(4, invoiceId);
-            
-            stmt.executeUpdate();
-        }
+        });
     }
     
     // Update invoice
@@ -273,9 +257,7 @@ public class InvoiceDAO {
                     "total_amount = ?, payment_status = ?, payment_date = ?, payment_method = ?, " +
                     "notes = ? WHERE invoice_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        executeLedgerUpdate(invoice.getInvoiceId(), invoice.getPaymentStatus(), invoice.getTotalAmount(), sql, stmt -> {
             stmt.setDouble(1, invoice.getSubtotal());
             stmt.setDouble(2, invoice.getTaxAmount());
             stmt.setDouble(3, invoice.getDiscountAmount());
@@ -289,9 +271,7 @@ public class InvoiceDAO {
             stmt.setString(7, invoice.getPaymentMethod());
             stmt.setString(8, invoice.getNotes());
             stmt.setLong(9, invoice.getInvoiceId());
-            
-            stmt.executeUpdate();
-        }
+        });
     }
     
     // Find line items by invoice ID
@@ -308,175 +288,213 @@ public class InvoiceDAO {
             stmt.setLong(1, invoiceId);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                InvoiceRowMapper mapper = new InvoiceRowMapper(rs);
                 while (rs.next()) {
-                    lineItems.add(mapResultSetToInvoiceLineItem(rs));
+                    lineItems.add(mapper.mapLineItem(rs));
                 }
             }
         }
         return lineItems;
     }
     
-    // Get invoice statistics
+    // Get invoice statistics (served from the receivables ledger)
     public double getTotalRevenue() throws SQLException {
-        String sql = "SELECT NVL(SUM(total_amount), 0) FROM invoices WHERE payment_status = 'PAID'";
+        return getReceivablesLedger().getCollectedAmount();
+    }
+    
+    // Get pending payment amount (pending and overdue, served from the receivables ledger)
+    public double getPendingPaymentAmount() throws SQLException {
+        return getReceivablesLedger().getOutstandingAmount();
+    }
+    
+    // Get the receivables ledger, seeding it from the invoices table on first use
+    public ReceivablesLedger getReceivablesLedger() throws SQLException {
+        if (!LEDGER.isLoaded()) {
+            LEDGER.load(loadReceivablesEntries());
+        }
+        return LEDGER;
+    }
+    
+    // Compare the receivables ledger with the invoices table and reset it; returns the differences found
+    public List<String> reconcileReceivables() throws SQLException {
+        return LEDGER.reconcile(loadReceivablesEntries());
+    }
+    
+    // Aggregate invoice totals per payment status and invoice day
+    private List<ReceivablesLedger.Entry> loadReceivablesEntries() throws SQLException {
+        String sql = "SELECT payment_status, TRUNC(invoice_date) AS invoice_day, " +
+                    "COUNT(*) AS invoice_count, NVL(SUM(total_amount), 0) AS total_amount " +
+                    "FROM invoices GROUP BY payment_status, TRUNC(invoice_date)";
+        
+        List<ReceivablesLedger.Entry> entries = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
             
-            if (rs.next()) {
-                return rs.getDouble(1);
+            while (rs.next()) {
+                Date day = rs.getDate("invoice_day");
+                entries.add(new ReceivablesLedger.Entry(
+                        toPaymentStatus(rs.getString("payment_status")),
+                        day != null ? day.toLocalDate() : null,
+                        rs.getLong("invoice_count"),
+                        rs.getDouble("total_amount")));
             }
         }
-        return 0.0;
+        return entries;
     }
     
-    // Get pending payment amount
-    public double getPendingPaymentAmount() throws SQLException {
-        String sql = "SELECT NVL(SUM(total_amount), 0) FROM invoices " +
-                    "WHERE payment_status IN ('PENDING', 'OVERDUE')";
+    // Sum invoice totals over an inclusive range of invoice days grouped by period and payment status, in one pass.
+    // The bounds are bound as DATE so idx_invoices_date_status is range-scanned without converting invoice_date.
+    public List<RevenueSummary> aggregateRevenue(Date startDate, Date endDate,
+                                                 RevenueSummary.Period period) throws SQLException {
+        String periodStart = "TRUNC(invoice_date, '" + period.getTruncFormat() + "')";
+        String sql = "SELECT " + periodStart + " AS period_start, payment_status, " +
+                    "COUNT(*) AS invoice_count, NVL(SUM(total_amount), 0) AS total_amount " +
+                    "FROM invoices WHERE invoice_date >= ? AND invoice_date < ? + 1 " +
+                    "GROUP BY " + periodStart + ", payment_status " +
+                    "ORDER BY period_start, payment_status";
+        
+        List<RevenueSummary> summaries = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            if (rs.next()) {
-                return rs.getDouble(1);
+            stmt.setDate(1, toDay(startDate));
+            stmt.setDate(2, toDay(endDate));
+            stmt.setFetchSize(fetchSize);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summaries.add(new RevenueSummary(
+                            rs.getTimestamp("period_start"),
+                            period,
+                            toPaymentStatus(rs.getString("payment_status")),
+                            rs.getLong("invoice_count"),
+                            rs.getDouble("total_amount")));
+                }
             }
         }
-        return 0.0;
+        return summaries;
     }
     
-    // Find invoice by number
-    public Invoice findByNumber(String invoiceNumber) throws SQLException {
-        String sql = "SELECT * FROM invoices WHERE invoice_number = ?";
-
+    // Sum invoice totals with the given payment status over an inclusive range of invoice days
+    public double getRevenue(Date startDate, Date endDate, Invoice.PaymentStatus status) throws SQLException {
+        String sql = "SELECT NVL(SUM(total_amount), 0) FROM invoices " +
+                    "WHERE invoice_date >= ? AND invoice_date < ? + 1 AND payment_status = ?";
+        
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, invoiceNumber);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, toDay(startDate));
+            stmt.setDate(2, toDay(endDate));
+            stmt.setString(3, status.name());
+            
+            try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToInvoice(rs);
+                    return rs.getDouble(1);
                 }
             }
         }
-        return null;
+        return 0.0;
+    }
+    
+    // Calendar day of a date as a DATE bind value
+    private static Date toDay(java.util.Date date) {
+        if (date instanceof Date) {
+            return Date.valueOf(((Date) date).toLocalDate());
+        }
+        return Date.valueOf(date.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate());
+    }
+    
+    // Find invoice by number
+    public Invoice findByNumber(String invoiceNumber) throws SQLException {
+        return findByInvoiceNumber(invoiceNumber);
     }
 
     // Find pending invoices
     public List<Invoice> findPending() throws SQLException {
-        String sql = "SELECT * FROM invoices WHERE payment_status = 'PENDING'";
-        List<Invoice> pendingInvoices = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                pendingInvoices.add(mapResultSetToInvoice(rs));
-            }
-        }
-        return pendingInvoices;
+        return findByPaymentStatus(Invoice.PaymentStatus.PENDING);
     }
 
     // Update invoice payment
     public void updatePayment(long invoiceId, Invoice.PaymentStatus status,
                             Date paymentDate, String paymentMethod) throws SQLException {
-        String sql = "UPDATE invoices SET payment_status = ?, payment_date = ?, " +
-                    "payment_method = ? WHERE invoice_id = ?";
+        updatePaymentStatus(invoiceId, status, paymentDate, paymentMethod);
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    // Run an invoice update in a transaction that first locks the row's current status and total,
+    // then moves the receivables ledger from the old values to the new ones after commit
+    private void executeLedgerUpdate(long invoiceId, Invoice.PaymentStatus newStatus, Double newAmount,
+                                     String sql, StatementBinder binder) throws SQLException {
+        String lockSql = "SELECT payment_status, total_amount, invoice_date, customer_id FROM invoices " +
+                        "WHERE invoice_id = ? FOR UPDATE";
+        int paidCustomerId = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+                lockStmt.setLong(1, invoiceId);
+                Invoice.PaymentStatus oldStatus = null;
+                double oldAmount = 0.0;
+                Timestamp invoiceDate = null;
+                int customerId = 0;
+                try (ResultSet rs = lockStmt.executeQuery()) {
+                    if (rs.next()) {
+                        oldStatus = toPaymentStatus(rs.getString("payment_status"));
+                        oldAmount = rs.getDouble("total_amount");
+                        invoiceDate = rs.getTimestamp("invoice_date");
+                        customerId = rs.getInt("customer_id");
+                    }
+                }
 
-            pstmt.setString(1, status.name());
-            pstmt.setDate(2, new java.sql.Date(paymentDate.getTime()));
-            pstmt.setString(3, paymentMethod);
-            pstmt.setLong(4, invoiceId);
+                binder.bind(stmt);
+                int rowsAffected = stmt.executeUpdate();
+                conn.commit();
 
-            pstmt.executeUpdate();
+                if (rowsAffected > 0 && oldStatus != null) {
+                    LEDGER.recordChange(invoiceDate, oldStatus, oldAmount,
+                            newStatus, newAmount != null ? newAmount : oldAmount);
+                    if (newStatus == Invoice.PaymentStatus.PAID && oldStatus != Invoice.PaymentStatus.PAID) {
+                        paidCustomerId = customerId;
+                    }
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
-    }
 
-    // Helper method to map ResultSet to Invoice object
-    private Invoice mapResultSetToInvoice(ResultSet rs) throws SQLException {
-        Invoice invoice = new Invoice();
-        invoice.setInvoiceId(rs.getLong("invoice_id"));
-        invoice.setBookingId(rs.getLong("booking_id"));
-        invoice.setCustomerId(rs.getInt("customer_id"));
-        invoice.setInvoiceNumber(rs.getString("invoice_number"));
-        invoice.setInvoiceDate(rs.getTimestamp("invoice_date"));
-        invoice.setDueDate(rs.getTimestamp("due_date"));
-        invoice.setSubtotal(rs.getDouble("subtotal"));
-        invoice.setTaxAmount(rs.getDouble("tax_amount"));
-        invoice.setDiscountAmount(rs.getDouble("discount_amount"));
-        invoice.setTotalAmount(rs.getDouble("total_amount"));
-        invoice.setPaymentStatusFromString(rs.getString("payment_status"));
-        invoice.setPaymentDate(rs.getTimestamp("payment_date"));
-        invoice.setPaymentMethod(rs.getString("payment_method"));
-        invoice.setNotes(rs.getString("notes"));
-        invoice.setCreatedBy(rs.getString("created_by"));
-        return invoice;
-    }
-    
-    // Helper method to map ResultSet to InvoiceLineItem object
-    private InvoiceLineItem mapResultSetToInvoiceLineItem(ResultSet rs) throws SQLException {
-        InvoiceLineItem lineItem = new InvoiceLineItem();
-        lineItem.setLineItemId(rs.getLong("line_item_id"));
-        lineItem.setInvoiceId(rs.getLong("invoice_id"));
-        lineItem.setItemTypeFromString(rs.getString("item_type"));
-        lineItem.setItemDescription(rs.getString("item_description"));
-        lineItem.setQuantity(rs.getDouble("quantity"));
-        lineItem.setUnitPrice(rs.getDouble("unit_price"));
-        lineItem.setLineTotal(rs.getDouble("line_total"));
-        
-        int serviceId = rs.getInt("service_id");
-        if (!rs.wasNull()) {
-            lineItem.setServiceId(serviceId);
+        // trg_invoice_payment_update added the invoice to total_spent, and update_vip_status
+        // may have created or upgraded the customer's membership
+        if (paidCustomerId > 0) {
+            try {
+                new CustomerDAO().refreshVIPEligibility(paidCustomerId);
+                new VIPMemberDAO().refreshCustomerDiscount(paidCustomerId);
+            } catch (SQLException e) {
+                // The payment itself is committed; drop the cached sets so they reload
+                System.err.println("VIP state not refreshed after payment: " + e.getMessage());
+                CustomerDAO.invalidateVIPEligibility();
+                VIPMemberDAO.invalidateDiscounts();
+            }
         }
-        
-        long usageId = rs.getLong("usage_id");
-        if (!rs.wasNull()) {
-            lineItem.setUsageId(usageId);
+    }
+
+    private static Invoice.PaymentStatus toPaymentStatus(String status) {
+        try {
+            return Invoice.PaymentStatus.valueOf(status);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Invoice.PaymentStatus.PENDING;
         }
-        
-        return lineItem;
     }
 
+    // Generate invoice (same as generateInvoice)
     public Invoice generate(long bookingId, double taxRate, String createdBy) throws SQLException {
-        String sql = "{CALL generate_invoice(?, ?, ?, ?, ?, ?, ?)}";
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             CallableStatement stmt = conn.prepareCall(sql)) {
-
-            stmt.setLong(1, bookingId);
-            stmt.setDouble(2, taxRate);
-            stmt.setString(3, createdBy);
-            stmt.registerOutParameter(4, Types.NUMERIC); // invoice_id
-            stmt.registerOutParameter(5, Types.VARCHAR); // invoice_number
-            stmt.registerOutParameter(6, Types.NUMERIC); // success
-            stmt.registerOutParameter(7, Types.VARCHAR); // message
-
-            stmt.execute();
-
-            int success = stmt.getInt(6);
-            String message = stmt.getString(7);
-
-            if (success == 1) {
-                long invoiceId = stmt.getLong(4);
-                String invoiceNumber = stmt.getString(5);
-
-                // Retrieve the generated invoice
-                Invoice invoice = findById(invoiceId);
-                if (invoice != null) {
-                    invoice.setInvoiceNumber(invoiceNumber);
-                }
-                return invoice;
-            } else {
-                throw new SQLException("Failed to generate invoice: " + message);
-            }
-        }
+        return generateInvoice(bookingId, taxRate, createdBy);
     }
 
     // ==================== MISSING METHODS ====================
@@ -502,6 +520,7 @@ public class InvoiceDAO {
                      ResultSet rs2 = ps2.executeQuery()) {
                     if (rs2.next()) {
                         long invoiceId = rs2.getLong(1);
+                        LEDGER.recordCreated(Invoice.PaymentStatus.PENDING, new java.util.Date(), 0.0);
                         return findById(invoiceId);
                     }
                 }
@@ -539,6 +558,7 @@ public class InvoiceDAO {
                      ResultSet rs2 = ps2.executeQuery()) {
                     if (rs2.next()) {
                         invoice.setInvoiceId(rs2.getLong(1));
+                        LEDGER.recordCreated(invoice.getPaymentStatus(), invoice.getInvoiceDate(), invoice.getTotalAmount());
                         return invoice;
                     }
                 }
@@ -551,98 +571,216 @@ public class InvoiceDAO {
     public void updatePaymentStatus(long invoiceId, Invoice.PaymentStatus status) throws SQLException {
         String sql = "UPDATE invoices SET payment_status = ? WHERE invoice_id = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        executeLedgerUpdate(invoiceId, status, null, sql, stmt -> {
             stmt.setString(1, status.name());
             stmt.setLong(2, invoiceId);
-
-            stmt.executeUpdate();
-        }
+        });
     }
 
     // Find invoices by payment status
     public List<Invoice> findByPaymentStatus(Invoice.PaymentStatus status) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.payment_status = ? ORDER BY i.invoice_date DESC";
+        return findList("WHERE i.payment_status = ?", "i.invoice_date DESC",
+                stmt -> stmt.setString(1, status.name()));
+    }
+
+    // Find unpaid invoices
+    public List<Invoice> findUnpaidInvoices() throws SQLException {
+        return findList("WHERE i.payment_status IN ('PENDING', 'OVERDUE')", "i.due_date", stmt -> { });
+    }
+
+    // Find invoices dated from startDate through endDate (whole days; the end day is included)
+    public List<Invoice> findByDateRange(Date startDate, Date endDate) throws SQLException {
+        return findList("WHERE i.invoice_date >= ? AND i.invoice_date < ? + 1", "i.invoice_date DESC", stmt -> {
+            stmt.setDate(1, toDay(startDate));
+            stmt.setDate(2, toDay(endDate));
+        });
+    }
+
+    // Stream invoices (with customer and line items) in a date range to a consumer, one invoice at a time
+    // (same range as findByDateRange)
+    public int streamByDateRange(Date startDate, Date endDate, Consumer<Invoice> consumer) throws SQLException {
+        return queryInvoices("WHERE i.invoice_date >= ? AND i.invoice_date < ? + 1", "i.invoice_date", stmt -> {
+            stmt.setDate(1, toDay(startDate));
+            stmt.setDate(2, toDay(endDate));
+        }, consumer);
+    }
+
+    private Invoice findOne(String where, StatementBinder binder) throws SQLException {
+        List<Invoice> invoices = findList(where, "i.invoice_id", binder);
+        return invoices.isEmpty() ? null : invoices.get(0);
+    }
 
+    private List<Invoice> findList(String where, String orderBy, StatementBinder binder) throws SQLException {
         List<Invoice> invoices = new ArrayList<>();
+        queryInvoices(where, orderBy, binder, invoices::add);
+        return invoices;
+    }
+
+    // The single invoice fetch path: one round trip for headers, customers and line items.
+    // Each invoice is handed to the consumer as soon as its last line item has been read.
+    private int queryInvoices(String where, String orderBy, StatementBinder binder,
+                              Consumer<Invoice> consumer) throws SQLException {
+        String sql = INVOICE_SELECT + where + " ORDER BY " + orderBy + ", i.invoice_id, li.line_item_id";
+
+        int count = 0;
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, status.name());
+            binder.bind(stmt);
+            stmt.setFetchSize(fetchSize);
 
             try (ResultSet rs = stmt.executeQuery()) {
+                InvoiceRowMapper mapper = new InvoiceRowMapper(rs);
+                Invoice current = null;
                 while (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                    invoices.add(invoice);
+                    long invoiceId = mapper.getInvoiceId(rs);
+                    if (current == null || current.getInvoiceId() != invoiceId) {
+                        // Rows are ordered by invoice, so the previous invoice is complete
+                        if (current != null) {
+                            consumer.accept(current);
+                            count++;
+                        }
+                        current = mapper.mapInvoice(rs);
+                    }
+
+                    InvoiceLineItem lineItem = mapper.mapLineItem(rs);
+                    if (lineItem != null) {
+                        lineItem.setInvoiceId(invoiceId);
+                        current.getLineItems().add(lineItem);
+                    }
+                }
+                if (current != null) {
+                    consumer.accept(current);
+                    count++;
                 }
             }
         }
-        return invoices;
+        return count;
     }
 
-    // Find unpaid invoices
-    public List<Invoice> findUnpaidInvoices() throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.payment_status IN ('PENDING', 'OVERDUE') ORDER BY i.due_date";
-
-        List<Invoice> invoices = new ArrayList<>();
+    // Maps invoice, customer and line item columns by position. Positions are resolved once
+    // from the result set metadata; columns a query does not select are skipped.
+    private static final class InvoiceRowMapper {
+        private final int invoiceId;
+        private final int bookingId;
+        private final int customerId;
+        private final int invoiceNumber;
+        private final int invoiceDate;
+        private final int dueDate;
+        private final int subtotal;
+        private final int taxAmount;
+        private final int discountAmount;
+        private final int totalAmount;
+        private final int paymentStatus;
+        private final int paymentDate;
+        private final int paymentMethod;
+        private final int notes;
+        private final int createdBy;
+        private final int firstName;
+        private final int lastName;
+        private final int email;
+        private final int lineItemId;
+        private final int itemType;
+        private final int itemDescription;
+        private final int quantity;
+        private final int unitPrice;
+        private final int lineTotal;
+        private final int serviceId;
+        private final int usageId;
+
+        InvoiceRowMapper(ResultSet rs) throws SQLException {
+            ColumnPositions positions = new ColumnPositions(rs);
+            invoiceId = positions.position("invoice_id");
+            bookingId = positions.position("booking_id");
+            customerId = positions.position("customer_id");
+            invoiceNumber = positions.position("invoice_number");
+            invoiceDate = positions.position("invoice_date");
+            dueDate = positions.position("due_date");
+            subtotal = positions.position("subtotal");
+            taxAmount = positions.position("tax_amount");
+            discountAmount = positions.position("discount_amount");
+            totalAmount = positions.position("total_amount");
+            paymentStatus = positions.position("payment_status");
+            paymentDate = positions.position("payment_date");
+            paymentMethod = positions.position("payment_method");
+            notes = positions.position("notes");
+            createdBy = positions.position("created_by");
+            firstName = positions.position("first_name");
+            lastName = positions.position("last_name");
+            email = positions.position("email");
+            lineItemId = positions.position("line_item_id");
+            itemType = positions.position("item_type");
+            itemDescription = positions.position("item_description");
+            quantity = positions.position("quantity");
+            unitPrice = positions.position("unit_price");
+            lineTotal = positions.position("line_total");
+            serviceId = positions.position("service_id");
+            usageId = positions.position("usage_id");
+        }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        long getInvoiceId(ResultSet rs) throws SQLException {
+            return rs.getLong(invoiceId);
+        }
 
-            while (rs.next()) {
-                Invoice invoice = mapResultSetToInvoice(rs);
-                invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                invoices.add(invoice);
+        Invoice mapInvoice(ResultSet rs) throws SQLException {
+            Invoice invoice = new Invoice();
+            invoice.setInvoiceId(rs.getLong(invoiceId));
+            invoice.setBookingId(rs.getLong(bookingId));
+            invoice.setCustomerId(rs.getInt(customerId));
+            invoice.setInvoiceNumber(rs.getString(invoiceNumber));
+            invoice.setInvoiceDate(rs.getTimestamp(invoiceDate));
+            invoice.setDueDate(rs.getTimestamp(dueDate));
+            invoice.setSubtotal(rs.getDouble(subtotal));
+            invoice.setTaxAmount(rs.getDouble(taxAmount));
+            invoice.setDiscountAmount(rs.getDouble(discountAmount));
+            invoice.setTotalAmount(rs.getDouble(totalAmount));
+            invoice.setPaymentStatusFromString(rs.getString(paymentStatus));
+            invoice.setPaymentDate(rs.getTimestamp(paymentDate));
+            invoice.setPaymentMethod(rs.getString(paymentMethod));
+            invoice.setNotes(rs.getString(notes));
+            invoice.setCreatedBy(rs.getString(createdBy));
+
+            if (firstName > 0) {
+                Customer customer = new Customer();
+                customer.setCustomerId(invoice.getCustomerId());
+                customer.setFirstName(rs.getString(firstName));
+                customer.setLastName(rs.getString(lastName));
+                customer.setEmail(rs.getString(email));
+                invoice.setCustomer(customer);
             }
+            return invoice;
         }
-        return invoices;
-    }
-
-    // Find invoices by date range
-    public List<Invoice> findByDateRange(Date startDate, Date endDate) throws SQLException {
-        String sql = "SELECT i.invoice_id, i.booking_id, i.customer_id, i.invoice_number, " +
-                    "i.invoice_date, i.due_date, i.subtotal, i.tax_amount, i.discount_amount, " +
-                    "i.total_amount, i.payment_status, i.payment_date, i.payment_method, " +
-                    "i.notes, i.created_by, " +
-                    "c.first_name, c.last_name, c.email " +
-                    "FROM invoices i " +
-                    "JOIN customers c ON i.customer_id = c.customer_id " +
-                    "WHERE i.invoice_date >= ? AND i.invoice_date <= ? ORDER BY i.invoice_date DESC";
-
-        List<Invoice> invoices = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        // Returns null when the row carries no line item (invoice without items)
+        InvoiceLineItem mapLineItem(ResultSet rs) throws SQLException {
+            if (lineItemId == 0) {
+                return null;
+            }
+            long id = rs.getLong(lineItemId);
+            if (rs.wasNull()) {
+                return null;
+            }
 
-            stmt.setTimestamp(1, new Timestamp(startDate.getTime()));
-            stmt.setTimestamp(2, new Timestamp(endDate.getTime()));
+            InvoiceLineItem lineItem = new InvoiceLineItem();
+            lineItem.setLineItemId(id);
+            lineItem.setInvoiceId(rs.getLong(invoiceId));
+            lineItem.setItemTypeFromString(rs.getString(itemType));
+            lineItem.setItemDescription(rs.getString(itemDescription));
+            lineItem.setQuantity(rs.getDouble(quantity));
+            lineItem.setUnitPrice(rs.getDouble(unitPrice));
+            lineItem.setLineTotal(rs.getDouble(lineTotal));
+
+            int service = rs.getInt(serviceId);
+            if (!rs.wasNull()) {
+                lineItem.setServiceId(service);
+            }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Invoice invoice = mapResultSetToInvoice(rs);
-                    invoice.setLineItems(findLineItemsByInvoiceId(invoice.getInvoiceId()));
-                    invoices.add(invoice);
-                }
+            long usage = rs.getLong(usageId);
+            if (!rs.wasNull()) {
+                lineItem.setUsageId(usage);
             }
+            return lineItem;
         }
-        return invoices;
     }
 }
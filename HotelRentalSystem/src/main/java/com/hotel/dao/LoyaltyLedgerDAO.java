@@ -0,0 +1,250 @@
+package com.hotel.dao;
+
+import com.hotel.model.LoyaltyPointEvent;
+import com.hotel.util.DatabaseConnection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data Access Object for the loyalty points ledger.
+ *
+ * Earning (trg_update_loyalty_points) and redeeming append rows to loyalty_point_events
+ * instead of rewriting customers.loyalty_points. A periodic compaction folds pending events
+ * into that column, so a balance is the compacted column plus the events not yet folded in.
+ *
+ * Only the points column moves off the hot path: check-out still updates total_spent on the
+ * customers row (VIP status reads it), compaction briefly locks the customers it folds, and a
+ * redemption locks its customer's row so concurrent redemptions cannot overdraw the balance.
+ */
+public class LoyaltyLedgerDAO {
+
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    private static final String BALANCE_COLUMN =
+            "c.loyalty_points + NVL((SELECT SUM(e.points) FROM loyalty_point_events e " +
+            "WHERE e.customer_id = c.customer_id AND e.compacted = 'N'), 0) AS balance";
+
+    /**
+     * Current balance: compacted points plus events not yet folded in
+     */
+    public int getBalance(int customerId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return getBalance(conn, customerId);
+        }
+    }
+
+    /**
+     * Current balances of many customers, looked up in batches of LOOKUP_BATCH_SIZE.
+     * Each balance comes from one statement, so it cannot straddle a compaction.
+     */
+    public Map<Integer, Integer> getBalances(Collection<Integer> customerIds) throws SQLException {
+        Map<Integer, Integer> balances = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(customerIds);
+        if (ids.isEmpty()) {
+            return balances;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+                String sql = "SELECT c.customer_id, " + BALANCE_COLUMN + " FROM customers c " +
+                            "WHERE c.customer_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            balances.put(rs.getInt("customer_id"), rs.getInt("balance"));
+                        }
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Redeem points if the balance covers them. The customer row is locked while the balance
+     * is checked and the event appended, so two redemptions cannot both spend the same points.
+     */
+    public LoyaltyPointEvent redeem(int customerId, int points, Long bookingId, String description) throws SQLException {
+        if (points <= 0) {
+            throw new SQLException("Points to redeem must be positive");
+        }
+        String lockSql = "SELECT customer_id FROM customers WHERE customer_id = ? FOR UPDATE";
+        String insertSql = "INSERT INTO loyalty_point_events (event_id, customer_id, booking_id, event_type, " +
+                          "points, description, event_date, compacted) " +
+                          "VALUES (loyalty_event_seq.NEXTVAL, ?, ?, ?, ?, ?, SYSTIMESTAMP, 'N')";
+        LoyaltyPointEvent event = LoyaltyPointEvent.redeem(customerId, bookingId, points, description);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+
+                lockStmt.setInt(1, customerId);
+                try (ResultSet rs = lockStmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Customer not found: " + customerId);
+                    }
+                }
+                int balance = getBalance(conn, customerId);
+                if (balance < points) {
+                    throw new SQLException("Insufficient loyalty points: balance " + balance + ", requested " + points);
+                }
+                bindEvent(insertStmt, event);
+                insertStmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return event;
+    }
+
+    private int getBalance(Connection conn, int customerId) throws SQLException {
+        String sql = "SELECT " + BALANCE_COLUMN + " FROM customers c WHERE c.customer_id = ?";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Customer not found: " + customerId);
+                }
+                return rs.getInt("balance");
+            }
+        }
+    }
+
+    private static void bindEvent(PreparedStatement pstmt, LoyaltyPointEvent event) throws SQLException {
+        pstmt.setInt(1, event.getCustomerId());
+        if (event.getBookingId() != null) {
+            pstmt.setLong(2, event.getBookingId());
+        } else {
+            pstmt.setNull(2, Types.NUMERIC);
+        }
+        pstmt.setString(3, event.getEventType().name());
+        pstmt.setInt(4, event.getPoints());
+        pstmt.setString(5, event.getDescription());
+    }
+
+    /**
+     * Ledger history of a customer, newest first
+     */
+    public List<LoyaltyPointEvent> findByCustomerId(int customerId) throws SQLException {
+        String sql = "SELECT event_id, customer_id, booking_id, event_type, points, description, " +
+                    "event_date, compacted FROM loyalty_point_events " +
+                    "WHERE customer_id = ? ORDER BY event_id DESC";
+        List<LoyaltyPointEvent> events = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapResultSetToEvent(rs));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Fold pending events into customers.loyalty_points, batchSize events per transaction.
+     * Returns the number of events compacted.
+     */
+    public int compact(int batchSize) throws SQLException {
+        String boundSql = "SELECT MAX(event_id) FROM (" +
+                         "SELECT event_id FROM loyalty_point_events " +
+                         "WHERE compacted = 'N' AND event_id > ? " +
+                         "ORDER BY event_id) WHERE ROWNUM <= ?";
+        String lockSql = "SELECT event_id, customer_id, points FROM loyalty_point_events " +
+                        "WHERE compacted = 'N' AND event_id > ? AND event_id <= ? FOR UPDATE";
+        String customerSql = "UPDATE customers SET loyalty_points = loyalty_points + ? WHERE customer_id = ?";
+        String markSql = "UPDATE loyalty_point_events SET compacted = 'Y' WHERE event_id = ?";
+
+        long lastEventId = 0;
+        int totalCompacted = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement boundStmt = conn.prepareStatement(boundSql);
+                 PreparedStatement lockStmt = conn.prepareStatement(lockSql);
+                 PreparedStatement customerStmt = conn.prepareStatement(customerSql);
+                 PreparedStatement markStmt = conn.prepareStatement(markSql)) {
+
+                while (true) {
+                    boundStmt.setLong(1, lastEventId);
+                    boundStmt.setInt(2, batchSize);
+                    long upperEventId;
+                    try (ResultSet rs = boundStmt.executeQuery()) {
+                        rs.next();
+                        upperEventId = rs.getLong(1);
+                        if (rs.wasNull()) {
+                            break;
+                        }
+                    }
+
+                    // Lock the batch and sum it per customer (customer order keeps row locks deadlock-free)
+                    Map<Integer, Integer> pointsByCustomer = new TreeMap<>();
+                    int compacted = 0;
+                    lockStmt.setLong(1, lastEventId);
+                    lockStmt.setLong(2, upperEventId);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        while (rs.next()) {
+                            pointsByCustomer.merge(rs.getInt("customer_id"), rs.getInt("points"), Integer::sum);
+                            markStmt.setLong(1, rs.getLong("event_id"));
+                            markStmt.addBatch();
+                            compacted++;
+                        }
+                    }
+
+                    for (Map.Entry<Integer, Integer> entry : pointsByCustomer.entrySet()) {
+                        if (entry.getValue() == 0) continue;
+                        customerStmt.setInt(1, entry.getValue());
+                        customerStmt.setInt(2, entry.getKey());
+                        customerStmt.addBatch();
+                    }
+                    customerStmt.executeBatch();
+                    markStmt.executeBatch();
+                    conn.commit();
+
+                    totalCompacted += compacted;
+                    lastEventId = upperEventId;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return totalCompacted;
+    }
+
+    private LoyaltyPointEvent mapResultSetToEvent(ResultSet rs) throws SQLException {
+        LoyaltyPointEvent event = new LoyaltyPointEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setCustomerId(rs.getInt("customer_id"));
+        long bookingId = rs.getLong("booking_id");
+        event.setBookingId(rs.wasNull() ? null : bookingId);
+        event.setEventType(LoyaltyPointEvent.EventType.valueOf(rs.getString("event_type")));
+        event.setPoints(rs.getInt("points"));
+        event.setDescription(rs.getString("description"));
+        event.setEventDate(rs.getTimestamp("event_date"));
+        event.setCompacted("Y".equals(rs.getString("compacted")));
+        return event;
+    }
+}
@@ -128,6 +128,8 @@ public class RoomDAO {
             ps.setInt(11, room.getRoomId());
             ps.executeUpdate();
         }
+        // The room's type may have changed
+        RoomServiceDAO.invalidateAvailabilityMatrix();
     }
 
     public List<RoomType> getAllRoomTypes() throws SQLException {
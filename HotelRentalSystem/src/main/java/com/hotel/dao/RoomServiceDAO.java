@@ -1,130 +1,223 @@
 package com.hotel.dao;
 
 import com.hotel.model.RoomService;
+import com.hotel.model.ServiceAvailabilityMatrix;
+import com.hotel.model.ServiceCatalog;
+import com.hotel.model.ServicePricingEngine;
 import com.hotel.util.DatabaseConnection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Data Access Object for RoomService operations
  */
 public class RoomServiceDAO {
     
+    // Room type x service availability, shared by every DAO instance; null until loaded
+    private static volatile ServiceAvailabilityMatrix availabilityMatrix;
+    
+    // Catalog snapshot, replaced (never modified) on every write; null until loaded
+    private static final AtomicReference<ServiceCatalog> CATALOG = new AtomicReference<>();
+    
+    private static final String SERVICE_COLUMNS = "service_id, service_name, service_description, " +
+            "service_category, base_price, is_active, created_date";
+    
     // Find service by ID
     public RoomService findById(int serviceId) throws SQLException {
-        String sql = "SELECT service_id, service_name, service_description, service_category, " +
-                    "base_price, is_active, created_date FROM room_services WHERE service_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, serviceId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToRoomService(rs);
-                }
-            }
-        }
-        return null;
+        return getCatalog().findById(serviceId);
     }
     
     // Find all services
     public List<RoomService> findAll() throws SQLException {
-        String sql = "SELECT service_id, service_name, service_description, service_category, " +
-                    "base_price, is_active, created_date FROM room_services ORDER BY service_name";
+        return getCatalog().getAll();
+    }
+    
+    // Find active services
+    public List<RoomService> findActiveServices() throws SQLException {
+        return getCatalog().getActive();
+    }
+    
+    // Find services by category
+    public List<RoomService> findByCategory(RoomService.ServiceCategory category) throws SQLException {
+        return getCatalog().findByCategory(category);
+    }
+    
+    // Find active services whose name starts with the prefix (case-insensitive)
+    public List<RoomService> findByNamePrefix(String prefix) throws SQLException {
+        return getCatalog().findByNamePrefix(prefix);
+    }
+    
+    // Get the catalog snapshot, loading it on first use
+    public ServiceCatalog getCatalog() throws SQLException {
+        ServiceCatalog snapshot = CATALOG.get();
+        if (snapshot == null) {
+            snapshot = refreshCatalog();
+        }
+        return snapshot;
+    }
+    
+    // Reload every service into a new snapshot and publish it
+    public ServiceCatalog refreshCatalog() throws SQLException {
+        String sql = "SELECT " + SERVICE_COLUMNS + " FROM room_services";
         
         List<RoomService> services = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                services.add(mapResultSetToRoomService(rs));
+        synchronized (CATALOG) {
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                
+                while (rs.next()) {
+                    services.add(mapResultSetToRoomService(rs));
+                }
             }
+            
+            ServiceCatalog snapshot = new ServiceCatalog(services);
+            CATALOG.set(snapshot);
+            return snapshot;
         }
-        return services;
     }
     
-    // Find active services
-    public List<RoomService> findActiveServices() throws SQLException {
-        String sql = "SELECT service_id, service_name, service_description, service_category, " +
-                    "base_price, is_active, created_date FROM room_services " +
-                    "WHERE is_active = 'Y' ORDER BY service_name";
+    // Drop the snapshot so the next read reloads it (after changes made outside this DAO)
+    public static void invalidateCatalog() {
+        CATALOG.set(null);
+    }
+    
+    // Swap in a snapshot containing the written service as committed; nothing to do if none is loaded yet.
+    // The row is re-read rather than copied from the caller, so columns the caller never set
+    // (created_date) are kept, and re-reads are serialized on CATALOG so a slower writer cannot
+    // publish an older state of the row over a newer one.
+    private void publish(int serviceId) throws SQLException {
+        String sql = "SELECT " + SERVICE_COLUMNS + " FROM room_services WHERE service_id = ?";
         
+        synchronized (CATALOG) {
+            if (CATALOG.get() == null) {
+                return;
+            }
+            RoomService service = null;
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                stmt.setInt(1, serviceId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        service = mapResultSetToRoomService(rs);
+                    }
+                }
+            }
+            
+            if (service != null) {
+                RoomService written = service;
+                CATALOG.updateAndGet(snapshot -> snapshot != null ? snapshot.withService(written) : null);
+            } else {
+                invalidateCatalog();
+            }
+        }
+    }
+    
+    // Find active services available for a room type (assignments come from the availability matrix)
+    public List<RoomService> findServicesForRoomType(int roomTypeId) throws SQLException {
+        BitSet assigned = getAvailabilityMatrix().getServiceIds(roomTypeId);
         List<RoomService> services = new ArrayList<>();
+        if (assigned.isEmpty()) {
+            return services;
+        }
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                services.add(mapResultSetToRoomService(rs));
+        for (RoomService service : findActiveServices()) {
+            if (assigned.get(service.getServiceId())) {
+                services.add(service);
             }
         }
         return services;
     }
     
-    // Find services by category
-    public List<RoomService> findByCategory(RoomService.ServiceCategory category) throws SQLException {
-        String sql = "SELECT service_id, service_name, service_description, service_category, " +
-                    "base_price, is_active, created_date FROM room_services " +
-                    "WHERE service_category = ? AND is_active = 'Y' ORDER BY service_name";
+    // Get the availability matrix, loading it on first use
+    public ServiceAvailabilityMatrix getAvailabilityMatrix() throws SQLException {
+        ServiceAvailabilityMatrix matrix = availabilityMatrix;
+        if (matrix == null) {
+            matrix = refreshAvailabilityMatrix();
+        }
+        return matrix;
+    }
+    
+    // Reload room_service_assignments and room types into a new matrix and publish it
+    public ServiceAvailabilityMatrix refreshAvailabilityMatrix() throws SQLException {
+        String assignmentSql = "SELECT room_type_id, service_id, is_complimentary FROM room_service_assignments";
+        String roomSql = "SELECT room_id, type_id FROM rooms";
         
-        List<RoomService> services = new ArrayList<>();
+        ServiceAvailabilityMatrix matrix = new ServiceAvailabilityMatrix();
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, category.name());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(assignmentSql);
+                 ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    services.add(mapResultSetToRoomService(rs));
+                    matrix.addAssignment(rs.getInt("room_type_id"), rs.getInt("service_id"),
+                            "Y".equals(rs.getString("is_complimentary")));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(roomSql);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    matrix.addRoom(rs.getInt("room_id"), rs.getInt("type_id"));
                 }
             }
         }
-        return services;
+        
+        availabilityMatrix = matrix;
+        return matrix;
     }
     
-    // Find services available for a room type
-    public List<RoomService> findServicesForRoomType(int roomTypeId) throws SQLException {
-        String sql = "SELECT rs.service_id, rs.service_name, rs.service_description, " +
-                    "rs.service_category, rs.base_price, rs.is_active, rs.created_date, " +
-                    "rsa.is_complimentary " +
-                    "FROM room_services rs " +
-                    "JOIN room_service_assignments rsa ON rs.service_id = rsa.service_id " +
-                    "WHERE rsa.room_type_id = ? AND rs.is_active = 'Y' " +
-                    "ORDER BY rs.service_name";
-        
-        List<RoomService> services = new ArrayList<>();
+    // Drop the matrix so the next lookup reloads it (after room or assignment changes)
+    public static void invalidateAvailabilityMatrix() {
+        availabilityMatrix = null;
+    }
+    
+    // Assign a service to a room type, or change its complimentary flag
+    public void assignServiceToRoomType(int roomTypeId, int serviceId, boolean complimentary) throws SQLException {
+        String sql = "MERGE INTO room_service_assignments rsa " +
+                    "USING (SELECT ? AS room_type_id, ? AS service_id FROM dual) src " +
+                    "ON (rsa.room_type_id = src.room_type_id AND rsa.service_id = src.service_id) " +
+                    "WHEN MATCHED THEN UPDATE SET rsa.is_complimentary = ? " +
+                    "WHEN NOT MATCHED THEN INSERT (assignment_id, room_type_id, service_id, is_complimentary) " +
+                    "VALUES (assignment_seq.NEXTVAL, src.room_type_id, src.service_id, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, roomTypeId);
+            stmt.setInt(2, serviceId);
+            stmt.setString(3, complimentary ? "Y" : "N");
+            stmt.setString(4, complimentary ? "Y" : "N");
+            stmt.executeUpdate();
+        }
+        refreshAvailabilityMatrix();
+    }
+    
+    // Remove a service from a room type
+    public void removeServiceFromRoomType(int roomTypeId, int serviceId) throws SQLException {
+        String sql = "DELETE FROM room_service_assignments WHERE room_type_id = ? AND service_id = ?";
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    RoomService service = mapResultSetToRoomService(rs);
-                    // Note: You might want to add a field to track if service is complimentary
-                    services.add(service);
-                }
-            }
+            stmt.setInt(1, roomTypeId);
+            stmt.setInt(2, serviceId);
+            stmt.executeUpdate();
         }
-        return services;
+        refreshAvailabilityMatrix();
     }
     
     // Save new service
     public void save(RoomService service) throws SQLException {
         String sql = "INSERT INTO room_services (service_id, service_name, service_description, " +
-                    "service_category, base_price, is_active) VALUES (service_seq.NEXTVAL, ?, ?, ?, ?, ?)";
+                    "service_category, base_price, is_active) VALUES (room_service_seq.NEXTVAL, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, new String[]{"service_id"})) {
             
             stmt.setString(1, service.getServiceName());
             stmt.setString(2, service.getServiceDescription());
@@ -141,6 +234,7 @@ public class RoomServiceDAO {
                 }
             }
         }
+        publish(service.getServiceId());
     }
     
     // Update existing service
@@ -160,6 +254,7 @@ public class RoomServiceDAO {
             
             stmt.executeUpdate();
         }
+        publish(service.getServiceId());
     }
     
     // Delete service (soft delete by setting inactive)
@@ -172,68 +267,50 @@ public class RoomServiceDAO {
             stmt.setInt(1, serviceId);
             stmt.executeUpdate();
         }
+        publish(serviceId);
     }
     
     // Search services by name
     public List<RoomService> searchByName(String searchTerm) throws SQLException {
-        String sql = "SELECT service_id, service_name, service_description, service_category, " +
-                    "base_price, is_active, created_date FROM room_services " +
-                    "WHERE UPPER(service_name) LIKE UPPER(?) AND is_active = 'Y' " +
-                    "ORDER BY service_name";
-        
-        List<RoomService> services = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, "%" + searchTerm + "%");
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    services.add(mapResultSetToRoomService(rs));
-                }
-            }
-        }
-        return services;
+        return getCatalog().search(searchTerm, false);
     }
     
     // Check if service is available for a specific room
     public boolean isServiceAvailableForRoom(int roomId, int serviceId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM room_service_assignments rsa " +
-                    "JOIN rooms r ON rsa.room_type_id = r.room_type_id " +
-                    "WHERE r.room_id = ? AND rsa.service_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, roomId);
-            stmt.setInt(2, serviceId);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
-            }
+        ServiceAvailabilityMatrix matrix = getAvailabilityMatrix();
+        Integer roomTypeId = findRoomTypeId(matrix, roomId);
+        return roomTypeId != null && matrix.isAvailable(roomTypeId, serviceId);
+    }
+    
+    // Check if service is complimentary for a specific room
+    public boolean isServiceComplimentaryForRoom(int roomId, int serviceId) throws SQLException {
+        ServiceAvailabilityMatrix matrix = getAvailabilityMatrix();
+        Integer roomTypeId = findRoomTypeId(matrix, roomId);
+        return roomTypeId != null && matrix.isComplimentary(roomTypeId, serviceId);
+    }
+    
+    // Room type of a room (null if the room does not exist)
+    public Integer getRoomTypeId(int roomId) throws SQLException {
+        return findRoomTypeId(getAvailabilityMatrix(), roomId);
+    }
+    
+    // Pricing engine over the current catalog snapshot and availability matrix
+    public ServicePricingEngine getPricingEngine() throws SQLException {
+        return new ServicePricingEngine(getCatalog(), getAvailabilityMatrix());
+    }
+    
+    // Room type from the matrix; rooms added after it was loaded trigger a reload
+    private Integer findRoomTypeId(ServiceAvailabilityMatrix matrix, int roomId) throws SQLException {
+        Integer roomTypeId = matrix.getRoomTypeId(roomId);
+        if (roomTypeId == null) {
+            roomTypeId = refreshAvailabilityMatrix().getRoomTypeId(roomId);
         }
-        return false;
+        return roomTypeId;
     }
     
     // Get service categories
     public List<String> getServiceCategories() throws SQLException {
-        String sql = "SELECT DISTINCT service_category FROM room_services " +
-                    "WHERE is_active = 'Y' ORDER BY service_category";
-        
-        List<String> categories = new ArrayList<>();
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                categories.add(rs.getString("service_category"));
-            }
-        }
-        return categories;
+        return getCatalog().getActiveCategories();
     }
     
     // Create new service
@@ -243,7 +320,7 @@ public class RoomServiceDAO {
                     "VALUES (room_service_seq.NEXTVAL, ?, ?, ?, ?, 'Y')";
 
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, new String[]{"service_id"})) {
 
             pstmt.setString(1, service.getServiceName());
             pstmt.setString(2, service.getServiceDescription());
@@ -251,66 +328,29 @@ public class RoomServiceDAO {
             pstmt.setDouble(4, service.getBasePrice());
 
             pstmt.executeUpdate();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    service.setServiceId(generatedKeys.getInt(1));
+                }
+            }
         }
+        service.setActive(true);
+        publish(service.getServiceId());
     }
 
     // Find active services (alternative method)
     public List<RoomService> findActive() throws SQLException {
-        String sql = "SELECT * FROM room_services WHERE is_active = 'Y'";
-        List<RoomService> services = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
-             ResultSet rs = pstmt.executeQuery()) {
-
-            while (rs.next()) {
-                services.add(mapResultSetToRoomService(rs));
-            }
-        }
-        return services;
+        return findActiveServices();
     }
 
     // Find services by room type (alternative method)
     public List<RoomService> findByRoomType(int roomTypeId) throws SQLException {
-        String sql = "SELECT rs.* FROM room_services rs " +
-                    "JOIN room_type_services rts ON rs.service_id = rts.service_id " +
-                    "WHERE rts.room_type_id = ? AND rs.is_active = 'Y'";
-        List<RoomService> services = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, roomTypeId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    services.add(mapResultSetToRoomService(rs));
-                }
-            }
-        }
-        return services;
+        return findServicesForRoomType(roomTypeId);
     }
 
-    // Search services by term (alternative method)
+    // Search services by term in name or description (alternative method)
     public List<RoomService> search(String searchTerm) throws SQLException {
-        String sql = "SELECT * FROM room_services WHERE is_active = 'Y' AND " +
-                    "(LOWER(service_name) LIKE ? OR LOWER(service_description) LIKE ?)";
-        List<RoomService> services = new ArrayList<>();
-
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            String pattern = "%" + searchTerm.toLowerCase() + "%";
-            pstmt.setString(1, pattern);
-            pstmt.setString(2, pattern);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    services.add(mapResultSetToRoomService(rs));
-                }
-            }
-        }
-        return services;
+        return getCatalog().search(searchTerm, true);
     }
 
     // Helper method to map ResultSet to RoomService object
@@ -1,19 +1,55 @@
 package com.hotel.dao;
 
+import com.hotel.model.ServicePopularity;
+import com.hotel.model.ServicePopularityTracker;
+import com.hotel.model.ServicePostingResult;
+import com.hotel.model.ServicePricingEngine;
+import com.hotel.model.ServiceSpend;
 import com.hotel.model.ServiceUsage;
 import com.hotel.model.RoomService;
 import com.hotel.util.DatabaseConnection;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for ServiceUsage operations
  */
 public class ServiceUsageDAO {
     
+    // Per-day usage counters behind the popularity rankings, shared by every DAO instance
+    private static final ServicePopularityTracker POPULARITY = new ServicePopularityTracker();
+    
+    // Charges posted per transaction by addServiceUsageBatch (keeps IN lists under Oracle's 1000 limit)
+    private static final int POSTING_BATCH_SIZE = 500;
+    
+    // Booking IDs per IN list in findByBookingIds
+    private static final int LOOKUP_BATCH_SIZE = 500;
+    
+    // Booking columns needed to validate and price a posted charge
+    private static class BookingInfo {
+        final String status;
+        final int customerId;
+        final Integer roomTypeId;
+        
+        BookingInfo(String status, int customerId, Integer roomTypeId) {
+            this.status = status;
+            this.customerId = customerId;
+            this.roomTypeId = roomTypeId;
+        }
+    }
+    
     // Add service usage using stored procedure
     public long addServiceUsage(long bookingId, int customerId, int serviceId, int quantity) throws SQLException {
         String sql = "{CALL add_service_usage(?, ?, ?, ?, ?, ?, ?)}";
@@ -35,13 +71,236 @@ public class ServiceUsageDAO {
             String message = stmt.getString(7);
             
             if (success == 1) {
-                return stmt.getLong(5);
+                long usageId = stmt.getLong(5);
+                POPULARITY.record(LocalDate.now(), serviceId, quantity);
+                if (VIPAnalyticsDAO.isCubeLoaded()) {
+                    // The procedure prices the charge; read the cost back for the VIP analytics cube
+                    try (PreparedStatement select = conn.prepareStatement(
+                            "SELECT total_cost FROM customer_service_usage WHERE usage_id = ?")) {
+                        select.setLong(1, usageId);
+                        try (ResultSet rs = select.executeQuery()) {
+                            if (rs.next()) {
+                                VIPAnalyticsDAO.recordServiceSpend(customerId, LocalDate.now(), rs.getDouble(1));
+                            }
+                        }
+                    }
+                } else {
+                    // Make sure a cube load in progress starts over
+                    VIPAnalyticsDAO.invalidateCube();
+                }
+                return usageId;
             } else {
                 throw new SQLException("Failed to add service usage: " + message);
             }
         }
     }
     
+    // Post many service charges at once, applying the same checks and pricing as add_service_usage.
+    // Each chunk of POSTING_BATCH_SIZE charges is one transaction: bookings, prices and complimentary
+    // flags are read with one query each, and all valid rows go in as one JDBC batch, so the
+    // trg_update_services_total compound trigger refreshes services_total once per booking per batch.
+    // A posting whose posting reference is already in customer_service_usage is reported as already
+    // posted instead of being inserted again, so a retried batch is safe to resubmit.
+    // Returns one result per posting, in input order.
+    public List<ServicePostingResult> addServiceUsageBatch(List<ServiceUsage> postings) throws SQLException {
+        List<ServicePostingResult> results = new ArrayList<>(postings.size());
+        if (postings.isEmpty()) {
+            return results;
+        }
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < postings.size(); from += POSTING_BATCH_SIZE) {
+                    int to = Math.min(postings.size(), from + POSTING_BATCH_SIZE);
+                    List<ServicePostingResult> chunkResults = postServiceUsageChunk(conn, postings.subList(from, to));
+                    conn.commit();
+                    LocalDate today = LocalDate.now();
+                    for (ServicePostingResult result : chunkResults) {
+                        if (result.isSuccess() && !result.isDuplicate()) {
+                            ServiceUsage usage = result.getUsage();
+                            POPULARITY.record(today, usage.getServiceId(), usage.getQuantity());
+                            VIPAnalyticsDAO.recordServiceSpend(usage.getCustomerId(), today, usage.getTotalCost());
+                        }
+                    }
+                    results.addAll(chunkResults);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return results;
+    }
+    
+    private List<ServicePostingResult> postServiceUsageChunk(Connection conn, List<ServiceUsage> chunk) throws SQLException {
+        Set<Long> bookingIds = new LinkedHashSet<>();
+        Set<Integer> serviceIds = new LinkedHashSet<>();
+        for (ServiceUsage posting : chunk) {
+            bookingIds.add(posting.getBookingId());
+            serviceIds.add(posting.getServiceId());
+        }
+        
+        Map<Long, BookingInfo> bookings = new HashMap<>();
+        String bookingSql = "SELECT b.booking_id, b.booking_status, b.customer_id, r.type_id " +
+                           "FROM bookings b LEFT JOIN rooms r ON b.room_id = r.room_id " +
+                           "WHERE b.booking_id IN (" + placeholders(bookingIds.size()) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(bookingSql)) {
+            bindAll(stmt, bookingIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int roomTypeId = rs.getInt("type_id");
+                    bookings.put(rs.getLong("booking_id"), new BookingInfo(
+                            rs.getString("booking_status"),
+                            rs.getInt("customer_id"),
+                            rs.wasNull() ? null : roomTypeId));
+                }
+            }
+        }
+        
+        Map<Integer, Double> prices = new HashMap<>();
+        String priceSql = "SELECT service_id, base_price FROM room_services " +
+                         "WHERE is_active = 'Y' AND service_id IN (" + placeholders(serviceIds.size()) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(priceSql)) {
+            bindAll(stmt, serviceIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    prices.put(rs.getInt("service_id"), rs.getDouble("base_price"));
+                }
+            }
+        }
+        
+        Set<Long> complimentary = new HashSet<>();
+        String complimentarySql = "SELECT room_type_id, service_id FROM room_service_assignments " +
+                                 "WHERE is_complimentary = 'Y' AND service_id IN (" + placeholders(serviceIds.size()) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(complimentarySql)) {
+            bindAll(stmt, serviceIds);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    complimentary.add(assignmentKey(rs.getInt("room_type_id"), rs.getInt("service_id")));
+                }
+            }
+        }
+        
+        // Postings already written by an earlier attempt of a retried or replayed batch
+        List<String> references = new ArrayList<>();
+        for (ServiceUsage posting : chunk) {
+            if (posting.getPostingReference() != null) {
+                references.add(posting.getPostingReference());
+            }
+        }
+        Map<String, Long> postedUsageIds = new HashMap<>();
+        if (!references.isEmpty()) {
+            String postedSql = "SELECT posting_ref, usage_id FROM customer_service_usage " +
+                              "WHERE posting_ref IN (" + placeholders(references.size()) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(postedSql)) {
+                for (int i = 0; i < references.size(); i++) {
+                    stmt.setString(i + 1, references.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        postedUsageIds.put(rs.getString("posting_ref"), rs.getLong("usage_id"));
+                    }
+                }
+            }
+        }
+        
+        // Validate and price every posting
+        List<ServicePostingResult> results = new ArrayList<>(chunk.size());
+        List<ServiceUsage> accepted = new ArrayList<>();
+        for (ServiceUsage posting : chunk) {
+            Long postedUsageId = posting.getPostingReference() != null
+                    ? postedUsageIds.get(posting.getPostingReference()) : null;
+            if (postedUsageId != null) {
+                posting.setUsageId(postedUsageId);
+                results.add(ServicePostingResult.alreadyPosted(posting));
+                continue;
+            }
+            
+            BookingInfo booking = bookings.get(posting.getBookingId());
+            Double price = prices.get(posting.getServiceId());
+            String error;
+            if (booking == null) {
+                error = "Booking not found";
+            } else {
+                error = ServicePricingEngine.validateBooking(booking.status, booking.customerId, posting.getCustomerId());
+                if (error == null && price == null) {
+                    error = "Service not found or inactive";
+                }
+            }
+            
+            if (error != null) {
+                results.add(ServicePostingResult.rejected(posting, error));
+                continue;
+            }
+            
+            boolean isComplimentary = booking.roomTypeId != null
+                    && complimentary.contains(assignmentKey(booking.roomTypeId, posting.getServiceId()));
+            posting.setUnitPrice(price);
+            posting.setComplimentary(isComplimentary);
+            posting.setTotalCost(ServicePricingEngine.lineTotal(price, posting.getQuantity(), isComplimentary));
+            accepted.add(posting);
+            results.add(ServicePostingResult.posted(posting));
+        }
+        
+        if (accepted.isEmpty()) {
+            return results;
+        }
+        
+        // Reserve usage IDs for the whole batch in one round trip
+        String sequenceSql = "SELECT usage_seq.NEXTVAL FROM dual CONNECT BY LEVEL <= ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sequenceSql)) {
+            stmt.setInt(1, accepted.size());
+            try (ResultSet rs = stmt.executeQuery()) {
+                for (ServiceUsage usage : accepted) {
+                    if (!rs.next()) {
+                        throw new SQLException("Failed to reserve service usage IDs");
+                    }
+                    usage.setUsageId(rs.getLong(1));
+                }
+            }
+        }
+        
+        String insertSql = "INSERT INTO customer_service_usage (usage_id, booking_id, customer_id, service_id, " +
+                          "usage_date, quantity, unit_price, total_cost, is_complimentary, posting_ref) " +
+                          "VALUES (?, ?, ?, ?, SYSDATE, ?, ?, ?, ?, ?)";
+        Date usageDate = new Date();
+        try (PreparedStatement stmt = conn.prepareStatement(insertSql)) {
+            for (ServiceUsage usage : accepted) {
+                stmt.setLong(1, usage.getUsageId());
+                stmt.setLong(2, usage.getBookingId());
+                stmt.setInt(3, usage.getCustomerId());
+                stmt.setInt(4, usage.getServiceId());
+                stmt.setInt(5, usage.getQuantity());
+                stmt.setDouble(6, usage.getUnitPrice());
+                stmt.setDouble(7, usage.getTotalCost());
+                stmt.setString(8, usage.isComplimentary() ? "Y" : "N");
+                stmt.setString(9, usage.getPostingReference());
+                stmt.addBatch();
+                usage.setUsageDate(usageDate);
+            }
+            stmt.executeBatch();
+        }
+        return results;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private static void bindAll(PreparedStatement stmt, Collection<? extends Number> ids) throws SQLException {
+        int index = 1;
+        for (Number id : ids) {
+            stmt.setLong(index++, id.longValue());
+        }
+    }
+    
+    private static long assignmentKey(int roomTypeId, int serviceId) {
+        return ((long) roomTypeId << 32) | (serviceId & 0xFFFFFFFFL);
+    }
+    
     // Create service usage (alias for addServiceUsage)
     public long create(long bookingId, int customerId, int serviceId, int quantity) throws SQLException {
         return addServiceUsage(bookingId, customerId, serviceId, quantity);
@@ -64,7 +323,7 @@ public class ServiceUsageDAO {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    return mapResultSetToServiceUsage(rs);
+                    return new UsageRowMapper(rs).map(rs);
                 }
             }
         }
@@ -89,8 +348,9 @@ public class ServiceUsageDAO {
             stmt.setInt(1, customerId);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                UsageRowMapper mapper = new UsageRowMapper(rs);
                 while (rs.next()) {
-                    usageList.add(mapResultSetToServiceUsage(rs));
+                    usageList.add(mapper.map(rs));
                 }
             }
         }
@@ -115,61 +375,98 @@ public class ServiceUsageDAO {
             stmt.setLong(1, bookingId);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                UsageRowMapper mapper = new UsageRowMapper(rs);
                 while (rs.next()) {
-                    usageList.add(mapResultSetToServiceUsage(rs));
+                    usageList.add(mapper.map(rs));
                 }
             }
         }
         return usageList;
     }
     
-    // Get customer service summary using stored procedure
+    // Find service usage for many bookings at once, keyed by booking ID in the order given.
+    // Every requested booking gets an entry (empty if it has no usage); IDs are sent in IN lists
+    // of at most LOOKUP_BATCH_SIZE so a whole screen of bookings costs one or two queries.
+    public Map<Long, List<ServiceUsage>> findByBookingIds(Collection<Long> bookingIds) throws SQLException {
+        Map<Long, List<ServiceUsage>> usageByBooking = new LinkedHashMap<>();
+        for (Long bookingId : bookingIds) {
+            usageByBooking.put(bookingId, new ArrayList<>());
+        }
+        if (usageByBooking.isEmpty()) {
+            return usageByBooking;
+        }
+        
+        List<Long> ids = new ArrayList<>(usageByBooking.keySet());
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + LOOKUP_BATCH_SIZE));
+                String sql = "SELECT csu.usage_id, csu.booking_id, csu.customer_id, csu.service_id, " +
+                            "csu.usage_date, csu.quantity, csu.unit_price, csu.total_cost, " +
+                            "csu.is_complimentary, rs.service_name, rs.service_category, rs.base_price " +
+                            "FROM customer_service_usage csu " +
+                            "JOIN room_services rs ON csu.service_id = rs.service_id " +
+                            "WHERE csu.booking_id IN (" + placeholders(chunk.size()) + ") " +
+                            "ORDER BY csu.booking_id, csu.usage_date DESC";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindAll(stmt, chunk);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        UsageRowMapper mapper = new UsageRowMapper(rs);
+                        while (rs.next()) {
+                            ServiceUsage usage = mapper.map(rs);
+                            usageByBooking.get(usage.getBookingId()).add(usage);
+                        }
+                    }
+                }
+            }
+        }
+        return usageByBooking;
+    }
+    
+    // Customer service summary by category, read from the customer_service_rollup table
     public List<ServiceUsage> getCustomerServiceSummary(int customerId) throws SQLException {
-        String sql = "{CALL get_customer_service_summary(?, ?, ?, ?, ?)}";
+        String sql = "SELECT service_category, SUM(total_quantity) AS total_quantity, " +
+                    "SUM(total_cost) AS total_cost, SUM(usage_count) AS usage_count, " +
+                    "MAX(usage_month) AS last_month " +
+                    "FROM customer_service_rollup WHERE customer_id = ? AND usage_count > 0 " +
+                    "GROUP BY service_category ORDER BY SUM(total_cost) DESC";
         
+        List<ServiceUsage> summaryList = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
-             CallableStatement stmt = conn.prepareCall(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, customerId);
-            stmt.registerOutParameter(2, Types.REF_CURSOR); // service_cursor
-            stmt.registerOutParameter(3, Types.NUMERIC); // total_cost
-            stmt.registerOutParameter(4, Types.NUMERIC); // success
-            stmt.registerOutParameter(5, Types.VARCHAR); // message
-            
-            stmt.execute();
-            
-            int success = stmt.getInt(4);
-            if (success == 1) {
-                List<ServiceUsage> summaryList = new ArrayList<>();
-                try (ResultSet rs = (ResultSet) stmt.getObject(2)) {
-                    while (rs.next()) {
-                        ServiceUsage summary = new ServiceUsage();
-                        summary.setServiceId(0); // Summary record
-                        summary.setCustomerId(customerId);
-                        summary.setQuantity(rs.getInt("total_quantity"));
-                        summary.setUnitPrice(rs.getDouble("avg_unit_price"));
-                        summary.setTotalCost(rs.getDouble("total_cost"));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ServiceUsage summary = new ServiceUsage();
+                    summary.setServiceId(0); // Summary record
+                    summary.setCustomerId(customerId);
+                    summary.setQuantity(rs.getInt("total_quantity"));
+                    summary.setTotalCost(rs.getDouble("total_cost"));
+                    summary.setUnitPrice(summary.getQuantity() > 0 ? summary.getTotalCost() / summary.getQuantity() : 0.0);
 
-                        // Convert java.sql.Date to java.util.Date
-                        java.sql.Date usageSqlDate = rs.getDate("last_used_date");
-                        summary.setUsageDate(usageSqlDate != null ? new java.util.Date(usageSqlDate.getTime()) : null);
+                    java.sql.Date lastMonth = rs.getDate("last_month");
+                    summary.setUsageDate(lastMonth != null ? new java.util.Date(lastMonth.getTime()) : null);
 
-                        summary.setNotes("Service: " + rs.getString("service_name") +
-                                       ", Category: " + rs.getString("service_category") +
-                                       ", Bookings: " + rs.getInt("bookings_used"));
-                        summaryList.add(summary);
-                    }
+                    summary.setNotes("Category: " + rs.getString("service_category") +
+                                   ", Uses: " + rs.getLong("usage_count") +
+                                   ", Quantity: " + summary.getQuantity() +
+                                   ", Total: " + summary.getFormattedTotalCost());
+                    summaryList.add(summary);
                 }
-                return summaryList;
-            } else {
-                throw new SQLException("Failed to get service summary: " + stmt.getString(5));
             }
         }
+        return summaryList;
     }
     
-    // Calculate total service cost for customer
+    // Calculate total service cost for customer: one booking's services_total, or all-time spend from the rollup
     public double calculateCustomerServiceTotal(int customerId, Long bookingId) throws SQLException {
-        String sql = "SELECT calculate_customer_service_total(?, ?) FROM DUAL";
+        String sql;
+        if (bookingId != null) {
+            sql = "SELECT NVL(services_total, 0) FROM bookings WHERE customer_id = ? AND booking_id = ?";
+        } else {
+            sql = "SELECT NVL(SUM(total_cost), 0) FROM customer_service_rollup WHERE customer_id = ?";
+        }
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -177,8 +474,6 @@ public class ServiceUsageDAO {
             stmt.setInt(1, customerId);
             if (bookingId != null) {
                 stmt.setLong(2, bookingId);
-            } else {
-                stmt.setNull(2, Types.NUMERIC);
             }
             
             try (ResultSet rs = stmt.executeQuery()) {
@@ -190,6 +485,79 @@ public class ServiceUsageDAO {
         return 0.0;
     }
     
+    // Monthly spend per category for a customer from fromMonth (null for all months), newest month first
+    public List<ServiceSpend> findServiceSpend(int customerId, Date fromMonth) throws SQLException {
+        String sql = "SELECT customer_id, usage_month, service_category, total_quantity, total_cost, usage_count " +
+                    "FROM customer_service_rollup WHERE customer_id = ? AND usage_count > 0 " +
+                    (fromMonth != null ? "AND usage_month >= TRUNC(?, 'MM') " : "") +
+                    "ORDER BY usage_month DESC, total_cost DESC";
+        
+        List<ServiceSpend> spendList = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, customerId);
+            if (fromMonth != null) {
+                stmt.setDate(2, new java.sql.Date(fromMonth.getTime()));
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ServiceSpend spend = new ServiceSpend();
+                    spend.setCustomerId(rs.getInt("customer_id"));
+                    spend.setMonth(rs.getDate("usage_month"));
+                    spend.setCategory(toServiceCategory(rs.getString("service_category")));
+                    spend.setTotalQuantity(rs.getLong("total_quantity"));
+                    spend.setTotalCost(rs.getDouble("total_cost"));
+                    spend.setUsageCount(rs.getLong("usage_count"));
+                    spendList.add(spend);
+                }
+            }
+        }
+        return spendList;
+    }
+    
+    // Rebuild customer_service_rollup from customer_service_usage (backfill, or repair after bulk loads
+    // that bypassed the trigger). Returns the number of rollup rows written.
+    public int rebuildServiceSpendRollup() throws SQLException {
+        String deleteSql = "DELETE FROM customer_service_rollup";
+        String insertSql = "INSERT INTO customer_service_rollup " +
+                    "(customer_id, usage_month, service_category, total_quantity, total_cost, usage_count) " +
+                    "SELECT csu.customer_id, TRUNC(NVL(csu.usage_date, SYSDATE), 'MM'), " +
+                    "NVL(rs.service_category, 'OTHER'), SUM(NVL(csu.quantity, 0)), SUM(NVL(csu.total_cost, 0)), COUNT(*) " +
+                    "FROM customer_service_usage csu " +
+                    "LEFT JOIN room_services rs ON csu.service_id = rs.service_id " +
+                    "GROUP BY csu.customer_id, TRUNC(NVL(csu.usage_date, SYSDATE), 'MM'), NVL(rs.service_category, 'OTHER')";
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(deleteSql);
+                int rows = stmt.executeUpdate(insertSql);
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+    
+    // Rollup categories outside the enum (e.g. 'OTHER' for uncategorized services) map to null
+    private static RoomService.ServiceCategory toServiceCategory(String category) {
+        if (category == null) {
+            return null;
+        }
+        try {
+            return RoomService.ServiceCategory.valueOf(category);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
     // Update service usage (removed notes column)
     public void update(ServiceUsage serviceUsage) throws SQLException {
         String sql = "UPDATE customer_service_usage SET quantity = ?, unit_price = ?, " +
@@ -206,6 +574,8 @@ public class ServiceUsageDAO {
 
             stmt.executeUpdate();
         }
+        POPULARITY.invalidate();
+        VIPAnalyticsDAO.invalidateCube();
     }
     
     // Delete service usage
@@ -218,6 +588,8 @@ public class ServiceUsageDAO {
             stmt.setLong(1, usageId);
             stmt.executeUpdate();
         }
+        POPULARITY.invalidate();
+        VIPAnalyticsDAO.invalidateCube();
     }
     
     // Find service usage by date range
@@ -239,8 +611,9 @@ public class ServiceUsageDAO {
             stmt.setDate(2, new java.sql.Date(endDate.getTime()));
             
             try (ResultSet rs = stmt.executeQuery()) {
+                UsageRowMapper mapper = new UsageRowMapper(rs);
                 while (rs.next()) {
-                    usageList.add(mapResultSetToServiceUsage(rs));
+                    usageList.add(mapper.map(rs));
                 }
             }
         }
@@ -282,42 +655,118 @@ public class ServiceUsageDAO {
         return popularServices;
     }
     
-    // Find service usage by customer ID and date (legacy method, not Oracle-safe; left as-is)
+    // Most used services (by quantity) in the current day, week or month, from the running counters
+    public List<ServicePopularity> getPopularServices(ServicePopularity.Window window, int limit) throws SQLException {
+        if (!POPULARITY.isLoaded()) {
+            POPULARITY.load(loadPopularityEntries());
+        }
+        return POPULARITY.topK(window.getStart(LocalDate.now()), limit);
+    }
+    
+    // Same ranking computed exactly in SQL, for verifying the running counters
+    public List<ServicePopularity> getPopularServicesExact(ServicePopularity.Window window, int limit) throws SQLException {
+        String sql = "SELECT * FROM (" +
+                    "SELECT csu.service_id, rs.service_name, SUM(csu.quantity) AS total_quantity, " +
+                    "COUNT(*) AS usage_count " +
+                    "FROM customer_service_usage csu " +
+                    "JOIN room_services rs ON csu.service_id = rs.service_id " +
+                    "WHERE csu.usage_date >= ? " +
+                    "GROUP BY csu.service_id, rs.service_name " +
+                    "ORDER BY total_quantity DESC, csu.service_id" +
+                    ") WHERE ROWNUM <= ?";
+        
+        List<ServicePopularity> ranking = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, java.sql.Date.valueOf(window.getStart(LocalDate.now())));
+            stmt.setInt(2, limit);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ranking.add(new ServicePopularity(
+                            rs.getInt("service_id"),
+                            rs.getString("service_name"),
+                            rs.getLong("total_quantity"),
+                            rs.getLong("usage_count")));
+                }
+            }
+        }
+        return ranking;
+    }
+    
+    // Per-day, per-service usage for the tracker's retention period
+    private List<ServicePopularityTracker.Entry> loadPopularityEntries() throws SQLException {
+        String sql = "SELECT TRUNC(usage_date) AS usage_day, service_id, " +
+                    "SUM(quantity) AS total_quantity, COUNT(*) AS usage_count " +
+                    "FROM customer_service_usage WHERE usage_date >= ? " +
+                    "GROUP BY TRUNC(usage_date), service_id";
+        
+        List<ServicePopularityTracker.Entry> entries = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, java.sql.Date.valueOf(LocalDate.now().minusDays(ServicePopularityTracker.RETENTION_DAYS)));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new ServicePopularityTracker.Entry(
+                            rs.getDate("usage_day").toLocalDate(),
+                            rs.getInt("service_id"),
+                            rs.getLong("total_quantity"),
+                            rs.getLong("usage_count")));
+                }
+            }
+        }
+        return entries;
+    }
+    
+    // Find service usage by customer ID on one calendar day.
+    // Uses a half-open usage_date range bound as DATE so idx_service_usage_cust_date can be range-scanned.
     public List<ServiceUsage> findByCustomerIdAndDate(int customerId, Date date) throws SQLException {
-        String sql = "SELECT su.*, rs.* FROM service_usage su " +
-                    "JOIN room_services rs ON su.service_id = rs.service_id " +
-                    "WHERE su.customer_id = ? AND DATE(su.usage_date) = DATE(?)";
+        String sql = "SELECT csu.usage_id, csu.booking_id, csu.customer_id, csu.service_id, " +
+                    "csu.usage_date, csu.quantity, csu.unit_price, csu.total_cost, " +
+                    "csu.is_complimentary, rs.service_name, rs.service_category, rs.base_price " +
+                    "FROM customer_service_usage csu " +
+                    "JOIN room_services rs ON csu.service_id = rs.service_id " +
+                    "WHERE csu.customer_id = ? AND csu.usage_date >= ? AND csu.usage_date < ? " +
+                    "ORDER BY csu.usage_date";
+
+        LocalDate day = date instanceof java.sql.Date
+                ? ((java.sql.Date) date).toLocalDate()
+                : date.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
 
         List<ServiceUsage> usages = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setInt(1, customerId);
-            pstmt.setDate(2, new java.sql.Date(date.getTime()));
+            pstmt.setDate(2, java.sql.Date.valueOf(day));
+            pstmt.setDate(3, java.sql.Date.valueOf(day.plusDays(1)));
 
             try (ResultSet rs = pstmt.executeQuery()) {
+                UsageRowMapper mapper = new UsageRowMapper(rs);
                 while (rs.next()) {
-                    ServiceUsage usage = mapResultSetToServiceUsage(rs);
-                    RoomService service = new RoomService();
-                    service.setServiceId(rs.getInt("service_id"));
-                    service.setServiceName(rs.getString("service_name"));
-                    service.setBasePrice(rs.getDouble("price"));
-                    usage.setRoomService(service);
-                    usages.add(usage);
+                    usages.add(mapper.map(rs));
                 }
             }
         }
         return usages;
     }
 
-    // Find most popular services (legacy method, not fully Oracle compatible)
+    // Find most popular services by number of times used.
+    // Usage rows are aggregated by service_id before joining room_services, so the join touches one row per service.
     public List<ServiceUsage> findMostPopular(int limit) throws SQLException {
-        String sql = "SELECT su.*, rs.*, COUNT(*) as usage_count " +
-                    "FROM service_usage su " +
-                    "JOIN room_services rs ON su.service_id = rs.service_id " +
-                    "GROUP BY su.service_id, rs.service_name, rs.price " +
-                    "ORDER BY usage_count DESC " +
-                    "FETCH ?";
+        String sql = "SELECT u.service_id, rs.service_name, rs.service_category, rs.base_price, " +
+                    "u.usage_count, u.total_quantity, u.total_cost " +
+                    "FROM (SELECT service_id, COUNT(*) AS usage_count, SUM(quantity) AS total_quantity, " +
+                    "      SUM(total_cost) AS total_cost " +
+                    "      FROM customer_service_usage GROUP BY service_id) u " +
+                    "JOIN room_services rs ON u.service_id = rs.service_id " +
+                    "ORDER BY u.usage_count DESC, u.total_quantity DESC " +
+                    "FETCH FIRST ? ROWS ONLY";
 
         List<ServiceUsage> usages = new ArrayList<>();
         try (Connection conn = DatabaseConnection.getConnection();
@@ -327,12 +776,21 @@ public class ServiceUsageDAO {
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    ServiceUsage usage = mapResultSetToServiceUsage(rs);
                     RoomService service = new RoomService();
                     service.setServiceId(rs.getInt("service_id"));
                     service.setServiceName(rs.getString("service_name"));
-                    service.setBasePrice(rs.getDouble("price"));
+                    String category = rs.getString("service_category");
+                    if (category != null) {
+                        service.setServiceCategoryFromString(category);
+                    }
+                    service.setBasePrice(rs.getDouble("base_price"));
+                    ServiceUsage usage = new ServiceUsage();
                     usage.setRoomService(service);
+                    // Aggregates are set after the service, which would otherwise recompute the total
+                    usage.setQuantity(rs.getInt("total_quantity"));
+                    usage.setTotalCost(rs.getDouble("total_cost"));
+                    usage.setNotes("Service: " + service.getServiceName() +
+                                   ", Uses: " + rs.getLong("usage_count"));
                     usages.add(usage);
                 }
             }
@@ -340,59 +798,98 @@ public class ServiceUsageDAO {
         return usages;
     }
 
-    // Helper method to map ResultSet to ServiceUsage object (notes column removed from table)
-    private ServiceUsage mapResultSetToServiceUsage(ResultSet rs) throws SQLException {
-        ServiceUsage usage = new ServiceUsage();
-        usage.setUsageId(rs.getLong("usage_id"));
-        usage.setBookingId(rs.getLong("booking_id"));
-        usage.setCustomerId(rs.getInt("customer_id"));
-        usage.setServiceId(rs.getInt("service_id"));
-        usage.setUsageDate(rs.getTimestamp("usage_date"));
-        usage.setQuantity(rs.getInt("quantity"));
-        usage.setUnitPrice(rs.getDouble("unit_price"));
-        usage.setTotalCost(rs.getDouble("total_cost"));
-        usage.setComplimentary("Y".equals(rs.getString("is_complimentary")));
-        // Populate RoomService so UI can display name instead of "Unknown Service"
-        try {
-            String svcName = rs.getString("service_name");
-            if (svcName != null) {
-                RoomService svc = new RoomService();
-                svc.setServiceId(rs.getInt("service_id"));
-                svc.setServiceName(svcName);
-                try { svc.setServiceCategoryFromString(rs.getString("service_category")); } catch (Exception ignored) {}
+    // Maps customer_service_usage rows. Column positions are looked up from the metadata once per
+    // result set; the room_services columns (service_name, service_category, base_price) are optional.
+    private static final class UsageRowMapper {
+        private final int usageId;
+        private final int bookingId;
+        private final int customerId;
+        private final int serviceId;
+        private final int usageDate;
+        private final int quantity;
+        private final int unitPrice;
+        private final int totalCost;
+        private final int isComplimentary;
+        private final int serviceName;
+        private final int serviceCategory;
+        private final int basePrice;
+
+        UsageRowMapper(ResultSet rs) throws SQLException {
+            ColumnPositions positions = new ColumnPositions(rs);
+            usageId = positions.position("usage_id");
+            bookingId = positions.position("booking_id");
+            customerId = positions.position("customer_id");
+            serviceId = positions.position("service_id");
+            usageDate = positions.position("usage_date");
+            quantity = positions.position("quantity");
+            unitPrice = positions.position("unit_price");
+            totalCost = positions.position("total_cost");
+            isComplimentary = positions.position("is_complimentary");
+            serviceName = positions.position("service_name");
+            serviceCategory = positions.position("service_category");
+            basePrice = positions.position("base_price");
+        }
+
+        ServiceUsage map(ResultSet rs) throws SQLException {
+            ServiceUsage usage = new ServiceUsage();
+            usage.setUsageId(rs.getLong(usageId));
+            usage.setBookingId(rs.getLong(bookingId));
+            usage.setCustomerId(rs.getInt(customerId));
+            usage.setServiceId(rs.getInt(serviceId));
+            usage.setUsageDate(rs.getTimestamp(usageDate));
+            usage.setQuantity(rs.getInt(quantity));
+            double charged = rs.getDouble(unitPrice);
+            double total = rs.getDouble(totalCost);
+            usage.setComplimentary("Y".equals(rs.getString(isComplimentary)));
+
+            // Populate RoomService so UI can display name instead of "Unknown Service"
+            String name = serviceName > 0 ? rs.getString(serviceName) : null;
+            if (name != null) {
+                RoomService service = new RoomService();
+                service.setServiceId(usage.getServiceId());
+                service.setServiceName(name);
+                String category = serviceCategory > 0 ? rs.getString(serviceCategory) : null;
+                if (category != null) {
+                    service.setServiceCategoryFromString(category);
+                }
                 // Prefer base_price if present, else fall back to unit_price
-                double basePrice;
-                try { basePrice = rs.getDouble("base_price"); } catch (SQLException e) { basePrice = rs.getDouble("unit_price"); }
-                svc.setBasePrice(basePrice);
-                usage.setRoomService(svc);
+                service.setBasePrice(basePrice > 0 ? rs.getDouble(basePrice) : charged);
+                usage.setRoomService(service);
             }
-        } catch (SQLException ignored) {
-            // Column not present; ignore
+
+            // Set after the service, which would otherwise reprice the row at base_price
+            usage.setUnitPrice(charged);
+            usage.setTotalCost(total);
+            return usage;
         }
-        return usage;
     }
 
     // ==================== MISSING METHODS ====================
 
     /**
-     * Calculate customer service total with date parameter (alternative signature)
+     * Calculate customer service total with date parameter (alternative signature).
+     * Whole months after fromDate come from the rollup; only the part of fromDate's own month is read from usage rows.
      */
     public double calculateCustomerServiceTotal(int customerId, Date fromDate) throws SQLException {
-        String sql;
-        if (fromDate != null) {
-            sql = "SELECT NVL(SUM(total_cost), 0) FROM customer_service_usage " +
-                  "WHERE customer_id = ? AND usage_date >= ?";
-        } else {
-            sql = "SELECT NVL(SUM(total_cost), 0) FROM customer_service_usage " +
-                  "WHERE customer_id = ?";
+        if (fromDate == null) {
+            return calculateCustomerServiceTotal(customerId, (Long) null);
         }
 
+        String sql = "SELECT " +
+                "(SELECT NVL(SUM(total_cost), 0) FROM customer_service_rollup " +
+                " WHERE customer_id = ? AND usage_month > TRUNC(?, 'MM')) + " +
+                "(SELECT NVL(SUM(total_cost), 0) FROM customer_service_usage " +
+                " WHERE customer_id = ? AND usage_date >= ? AND usage_date < ADD_MONTHS(TRUNC(?, 'MM'), 1)) " +
+                "FROM DUAL";
+
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Timestamp from = new Timestamp(fromDate.getTime());
             stmt.setInt(1, customerId);
-            if (fromDate != null) {
-                stmt.setDate(2, new java.sql.Date(fromDate.getTime()));
-            }
+            stmt.setTimestamp(2, from);
+            stmt.setInt(3, customerId);
+            stmt.setTimestamp(4, from);
+            stmt.setTimestamp(5, from);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -0,0 +1,151 @@
+package com.hotel.dao;
+
+import com.hotel.model.VIPMember;
+import com.hotel.model.VIPTierCube;
+import com.hotel.model.VIPTierStats;
+import com.hotel.util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the VIP tier analytics cube.
+ *
+ * Activity is attributed to the tier of the customer's active membership. Tiers always come
+ * from the VIPMemberDAO discount index: the seed queries group bookings and service spend by
+ * customer and month and look each customer's tier up there, and bookings, cancellations and
+ * service charges posted afterwards are added under the tier the index has at that moment.
+ * A tier change would move a customer's history, so VIPMemberDAO drops the cube whenever an
+ * indexed tier changes and the next query rebuilds it.
+ */
+public class VIPAnalyticsDAO {
+
+    /**
+     * Tier × month cells, shared by all DAO instances (loaded on first query)
+     */
+    private static final VIPTierCube CUBE = new VIPTierCube();
+
+    // Seeds read again when bookings or charges keep landing while one is running
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+
+    /**
+     * Totals per tier for the months from..to inclusive, VIP levels first and non-members last
+     */
+    public List<VIPTierStats> getTierStats(YearMonth from, YearMonth to) throws SQLException {
+        if (!CUBE.isLoaded()) {
+            loadCube();
+        }
+        return CUBE.summarize(from, to);
+    }
+
+    /**
+     * (Re)build the cube from bookings and the monthly service spend rollup, per customer and
+     * month, with each customer's tier taken from the discount index. A seed that overlapped a
+     * booking, service charge or tier change is thrown away and read again.
+     */
+    public void loadCube() throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            long generation = CUBE.getGeneration();
+            if (CUBE.load(readCubeEntries(), generation)) {
+                return;
+            }
+            if (attempt >= MAX_LOAD_ATTEMPTS) {
+                throw new SQLException("VIP analytics changed during each of " + MAX_LOAD_ATTEMPTS
+                        + " load attempts; try again");
+            }
+        }
+    }
+
+    private List<VIPTierCube.Entry> readCubeEntries() throws SQLException {
+        String bookingSql = "SELECT b.customer_id, TRUNC(b.booking_date, 'MM') AS booking_month, " +
+                           "COUNT(*) AS booking_count, NVL(SUM(b.total_amount), 0) AS revenue, " +
+                           "NVL(SUM(b.discount_applied), 0) AS discount_given " +
+                           "FROM bookings b " +
+                           "WHERE b.booking_status <> 'CANCELLED' AND b.booking_date IS NOT NULL " +
+                           "GROUP BY b.customer_id, TRUNC(b.booking_date, 'MM')";
+        String serviceSql = "SELECT customer_id, usage_month, SUM(total_cost) AS service_spend " +
+                           "FROM customer_service_rollup " +
+                           "GROUP BY customer_id, usage_month";
+        VIPMemberDAO vipMemberDAO = new VIPMemberDAO();
+        List<VIPTierCube.Entry> entries = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(bookingSql)) {
+                pstmt.setFetchSize(500);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        VIPMember.MembershipLevel level = vipMemberDAO.getMembershipLevel(rs.getInt("customer_id"));
+                        YearMonth month = toYearMonth(rs.getDate("booking_month"));
+                        entries.add(new VIPTierCube.Entry(month, level, VIPTierCube.Measure.BOOKINGS, rs.getLong("booking_count")));
+                        entries.add(new VIPTierCube.Entry(month, level, VIPTierCube.Measure.REVENUE, rs.getDouble("revenue")));
+                        entries.add(new VIPTierCube.Entry(month, level, VIPTierCube.Measure.DISCOUNT, rs.getDouble("discount_given")));
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(serviceSql)) {
+                pstmt.setFetchSize(500);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(new VIPTierCube.Entry(toYearMonth(rs.getDate("usage_month")),
+                                vipMemberDAO.getMembershipLevel(rs.getInt("customer_id")),
+                                VIPTierCube.Measure.SERVICE_SPEND, rs.getDouble("service_spend")));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Add a new booking (sign 1) or take back a cancelled one (sign -1) under the customer's current tier.
+     * Never fails the caller: if the tier cannot be read, the cube is dropped and rebuilt on the next query.
+     */
+    static void recordBooking(int customerId, LocalDate bookingDate, double amount, double discount, int sign) {
+        if (!CUBE.isLoaded()) {
+            // Nothing to add to, but a load in progress must not publish without this booking
+            CUBE.invalidate();
+            return;
+        }
+        try {
+            VIPMember.MembershipLevel level = new VIPMemberDAO().getMembershipLevel(customerId);
+            CUBE.recordBooking(level, YearMonth.from(bookingDate), amount, discount, sign);
+        } catch (SQLException e) {
+            CUBE.invalidate();
+        }
+    }
+
+    /**
+     * Add posted service charges under the customer's current tier
+     */
+    static void recordServiceSpend(int customerId, LocalDate usageDate, double amount) {
+        if (amount == 0) return;
+        if (!CUBE.isLoaded()) {
+            CUBE.invalidate();
+            return;
+        }
+        try {
+            VIPMember.MembershipLevel level = new VIPMemberDAO().getMembershipLevel(customerId);
+            CUBE.recordServiceSpend(level, YearMonth.from(usageDate), amount);
+        } catch (SQLException e) {
+            CUBE.invalidate();
+        }
+    }
+
+    static boolean isCubeLoaded() {
+        return CUBE.isLoaded();
+    }
+
+    /**
+     * Drop the cube after changes it cannot follow incrementally; the next query rebuilds it
+     */
+    public static void invalidateCube() {
+        CUBE.invalidate();
+    }
+
+    private static YearMonth toYearMonth(Date month) {
+        return YearMonth.from(month.toLocalDate());
+    }
+}
@@ -1,18 +1,67 @@
 package com.hotel.dao;
 
+import com.hotel.model.MembershipExpiryQueue;
+import com.hotel.model.VIPDiscountIndex;
 import com.hotel.model.VIPMember;
+import com.hotel.model.VIPMembershipEngine;
+import com.hotel.model.VIPMembershipRun;
 import com.hotel.model.Customer;
 import com.hotel.util.DatabaseConnection;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for VIP Member operations
  */
 public class VIPMemberDAO {
     
+    /**
+     * Member and customer columns read by every listing (explicit, so no column is fetched twice)
+     */
+    private static final String VIP_COLUMNS =
+            "vm.vip_id, vm.customer_id, vm.membership_level, " +
+            "vm.discount_percentage, vm.membership_start_date, vm.membership_end_date, " +
+            "vm.benefits, vm.is_active, " +
+            "c.first_name, c.last_name, c.email, c.phone, c.total_spent, c.loyalty_points";
+    
+    /**
+     * Listing with booking counts: bookings are aggregated once per customer and joined,
+     * instead of a correlated COUNT(*) per member row
+     */
+    private static final String VIP_DETAILS_SELECT =
+            "SELECT " + VIP_COLUMNS + ", NVL(bc.booking_count, 0) AS booking_count " +
+            "FROM vip_members vm " +
+            "JOIN customers c ON vm.customer_id = c.customer_id " +
+            "LEFT JOIN (SELECT customer_id, COUNT(*) AS booking_count FROM bookings GROUP BY customer_id) bc " +
+            "ON bc.customer_id = vm.customer_id ";
+    
+    /**
+     * Active discounts by customer, shared by all DAO instances (loaded on first lookup)
+     */
+    private static final VIPDiscountIndex DISCOUNTS = new VIPDiscountIndex();
+    
+    /**
+     * Active memberships by end date, for the expiry scheduler (loaded when the scheduler starts)
+     */
+    private static final MembershipExpiryQueue EXPIRIES = new MembershipExpiryQueue();
+    
+    // Rows fetched per round trip from the get_vip_members_detailed cursor and the full-table
+    // membership scans (driver default is 10)
+    private static final int CURSOR_FETCH_SIZE = 500;
+    
+    // Most membership changes written per transaction by the promotion/renewal engine
+    private static final int APPLY_BATCH_SIZE = 500;
+    
     /**
      * Create a new VIP member
      */
@@ -47,13 +96,19 @@ public class VIPMemberDAO {
             
             pstmt.setString(6, vipMember.getBenefits());
             
-            int rowsAffected = pstmt.executeUpdate();
+            int rowsAffected;
+            try {
+                rowsAffected = pstmt.executeUpdate();
+            } catch (SQLException e) {
+                throw alreadyMemberOr(e);
+            }
             
             if (rowsAffected > 0) {
                 rs = pstmt.getGeneratedKeys();
                 if (rs.next()) {
                     int vipId = rs.getInt(1);
                     vipMember.setVipId(vipId);
+                    refreshDiscount(vipId);
                     return vipId;
                 }
             }
@@ -65,10 +120,143 @@ public class VIPMemberDAO {
         }
     }
     
+    /**
+     * Promote a customer to VIP in one round trip: a single PL/SQL block inserts the membership
+     * only if the customer exists, is active and has no active membership, and returns the new VIP ID.
+     * Throws if the guard rejects the promotion.
+     */
+    public VIPMember promoteCustomer(int customerId, VIPMember.MembershipLevel level) throws SQLException {
+        String sql = "BEGIN " +
+                    "INSERT INTO vip_members (vip_id, customer_id, membership_level, discount_percentage, " +
+                    "membership_start_date, membership_end_date, benefits, is_active) " +
+                    "SELECT vip_seq.NEXTVAL, c.customer_id, ?, ?, TRUNC(SYSDATE), NULL, ?, 'Y' " +
+                    "FROM customers c WHERE c.customer_id = ? AND c.is_active = 'Y' " +
+                    "AND NOT EXISTS (SELECT 1 FROM vip_members vm " +
+                    "WHERE vm.customer_id = c.customer_id AND vm.is_active = 'Y'); " +
+                    "? := CASE WHEN SQL%ROWCOUNT = 1 THEN vip_seq.CURRVAL ELSE 0 END; " +
+                    "END;";
+
+        VIPMember vipMember = new VIPMember();
+        vipMember.setCustomerId(customerId);
+        vipMember.setMembershipLevel(level);
+        vipMember.setDiscountPercentage(VIPMember.getDefaultDiscountForLevel(level));
+        vipMember.setBenefits(VIPMember.getDefaultBenefitsForLevel(level));
+        vipMember.setActive(true);
+
+        int vipId;
+        try (Connection conn = DatabaseConnection.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+
+            cstmt.setString(1, level.name());
+            cstmt.setDouble(2, vipMember.getDiscountPercentage());
+            cstmt.setString(3, vipMember.getBenefits());
+            cstmt.setInt(4, customerId);
+            cstmt.registerOutParameter(5, Types.NUMERIC);
+
+            try {
+                cstmt.execute();
+            } catch (SQLException e) {
+                // A concurrent promotion got past the NOT EXISTS guard first
+                throw alreadyMemberOr(e);
+            }
+            vipId = cstmt.getInt(5);
+        }
+
+        if (vipId == 0) {
+            // Rejected by the guard; find out why only on this path
+            if (findByCustomerId(customerId) != null) {
+                throw new SQLException("Customer is already a VIP member");
+            }
+            throw new SQLException("Customer not found or inactive");
+        }
+
+        vipMember.setVipId(vipId);
+        vipMember.setJoinDate(new Date(System.currentTimeMillis()));
+
+        // Everything the caches need is known here, so no re-read as after other writes
+        // (no end date, so nothing to queue for expiry)
+        putDiscount(customerId, level, vipMember.getDiscountPercentage(), null);
+        CustomerDAO.removeFromVIPEligible(customerId);
+        return vipMember;
+    }
+
+    /**
+     * Insert a batch of imported members in one transaction. Each row is guarded like a promotion
+     * (skipped if the customer already has an active membership, including one that a concurrent
+     * session created after the guard ran); returns one update count per row, 0 for skipped rows.
+     * Call {@link #reloadMembershipCaches()} once the whole import is done.
+     */
+    public int[] insertVIPMembers(List<VIPMember> members) throws SQLException {
+        if (members.isEmpty()) return new int[0];
+        String sql = "INSERT INTO vip_members (vip_id, customer_id, membership_level, discount_percentage, " +
+                    "membership_start_date, membership_end_date, benefits, is_active) " +
+                    "SELECT vip_seq.NEXTVAL, ?, ?, ?, ?, ?, ?, 'Y' FROM dual " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM vip_members WHERE customer_id = ? AND is_active = 'Y')";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int[] counts = executeGuardedInserts(conn, pstmt, members, (stmt, member) -> {
+                    stmt.setInt(1, member.getCustomerId());
+                    stmt.setString(2, member.getMembershipLevelString());
+                    stmt.setDouble(3, member.getDiscountPercentage());
+                    stmt.setDate(4, member.getMembershipStartDate());
+                    if (member.getMembershipEndDate() != null) {
+                        stmt.setDate(5, member.getMembershipEndDate());
+                    } else {
+                        stmt.setNull(5, Types.DATE);
+                    }
+                    stmt.setString(6, member.getBenefits());
+                    stmt.setInt(7, member.getCustomerId());
+                });
+                conn.commit();
+                return counts;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Stream all active members (with customer name and contact) to a consumer in vip_id order,
+     * one row at a time. Returns the number of members streamed.
+     */
+    public int streamActiveMembers(Consumer<VIPMember> consumer) throws SQLException {
+        String sql = "SELECT " + VIP_COLUMNS + " FROM vip_members vm " +
+                    "JOIN customers c ON vm.customer_id = c.customer_id " +
+                    "WHERE vm.is_active = 'Y' ORDER BY vm.vip_id";
+        int count = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setFetchSize(CURSOR_FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                CursorRowMapper mapper = new CursorRowMapper(rs);
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Get all VIP members with detailed information using cursor procedure
      */
     public List<VIPMember> getAllVIPMembersDetailed(String membershipLevel) throws SQLException {
+        return getAllVIPMembersDetailed(membershipLevel, CURSOR_FETCH_SIZE);
+    }
+    
+    /**
+     * Get all VIP members with detailed information using cursor procedure,
+     * fetching fetchSize rows per round trip from the cursor
+     */
+    public List<VIPMember> getAllVIPMembersDetailed(String membershipLevel, int fetchSize) throws SQLException {
         String sql = "{call get_vip_members_detailed(?, ?)}";
         
         Connection conn = null;
@@ -79,6 +267,7 @@ public class VIPMemberDAO {
         try {
             conn = DatabaseConnection.getConnection();
             cstmt = conn.prepareCall(sql);
+            cstmt.setFetchSize(fetchSize);
             
             if (membershipLevel != null && !membershipLevel.trim().isEmpty()) {
                 cstmt.setString(1, membershipLevel);
@@ -91,9 +280,11 @@ public class VIPMemberDAO {
             cstmt.execute();
             
             rs = (ResultSet) cstmt.getObject(2);
+            rs.setFetchSize(fetchSize);
             
+            CursorRowMapper mapper = new CursorRowMapper(rs);
             while (rs.next()) {
-                vipMembers.add(mapCursorResultToVIPMember(rs));
+                vipMembers.add(mapper.map(rs));
             }
             
             return vipMembers;
@@ -233,6 +424,9 @@ public class VIPMemberDAO {
             pstmt.setInt(5, vipMember.getVipId());
             
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                refreshDiscount(vipMember.getVipId());
+            }
             return rowsAffected > 0;
             
         } finally {
@@ -256,6 +450,9 @@ public class VIPMemberDAO {
             pstmt.setInt(1, vipId);
             
             int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected > 0) {
+                refreshDiscount(vipId);
+            }
             return rowsAffected > 0;
             
         } finally {
@@ -325,31 +522,19 @@ public class VIPMemberDAO {
     }
     
     /**
-     * Process VIP renewals using stored procedure
+     * Renew memberships that have reached their end date (or expire them if spending no longer qualifies)
      */
-    public void processVIPRenewals() throws SQLException {
-        String sql = "{call process_vip_renewals()}";
-
-        Connection conn = null;
-        CallableStatement cstmt = null;
-        
-        try {
-            conn = DatabaseConnection.getConnection();
-            cstmt = conn.prepareCall(sql);
-            cstmt.execute();
-            
-        } finally {
-            DatabaseConnection.closeResources(conn, cstmt);
-        }
+    public VIPMembershipRun processVIPRenewals(String runBy, boolean dryRun) throws SQLException {
+        return runMembershipEngine(VIPMembershipEngine.renewals(), dryRun, runBy);
     }
     
     /**
      * Find all VIP members
      */
     public List<VIPMember> findAll() throws SQLException {
-        String sql = "SELECT v.*, c.* FROM vip_members v " +
-                    "JOIN customers c ON v.customer_id = c.customer_id " +
-                    "WHERE v.is_active = 'Y'";
+        String sql = "SELECT " + VIP_COLUMNS + " FROM vip_members vm " +
+                    "JOIN customers c ON vm.customer_id = c.customer_id " +
+                    "WHERE vm.is_active = 'Y'";
         List<VIPMember> members = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -384,8 +569,12 @@ public class VIPMemberDAO {
             pstmt.setString(5, member.isActive() ? "Y" : "N");
             pstmt.setInt(6, member.getVipId());
 
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
         }
+        refreshDiscount(member.getVipId());
+        return true;
     }
 
     /**
@@ -403,9 +592,9 @@ public class VIPMemberDAO {
      * Get VIP members by membership level with details
      */
     public List<VIPMember> findByLevelWithDetails(VIPMember.MembershipLevel level) throws SQLException {
-        String sql = "SELECT v.*, c.* FROM vip_members v " +
-                    "JOIN customers c ON v.customer_id = c.customer_id " +
-                    "WHERE v.is_active = 'Y' AND v.membership_level = ?";
+        String sql = "SELECT " + VIP_COLUMNS + " FROM vip_members vm " +
+                    "JOIN customers c ON vm.customer_id = c.customer_id " +
+                    "WHERE vm.is_active = 'Y' AND vm.membership_level = ?";
         List<VIPMember> members = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -425,11 +614,9 @@ public class VIPMemberDAO {
      * Get all active VIP members with additional details
      */
     public List<VIPMember> findAllWithDetails() throws SQLException {
-        String sql = "SELECT v.*, c.*, " +
-                    "(SELECT COUNT(*) FROM bookings b WHERE b.customer_id = c.customer_id) as booking_count " +
-                    "FROM vip_members v " +
-                    "JOIN customers c ON v.customer_id = c.customer_id " +
-                    "WHERE v.is_active = 'Y'";
+        String sql = VIP_DETAILS_SELECT +
+                    "WHERE vm.is_active = 'Y' " +
+                    "ORDER BY vm.vip_id";
         List<VIPMember> members = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getConnection();
@@ -483,44 +670,75 @@ public class VIPMemberDAO {
     }
     
     /**
-     * Map cursor result to VIPMember object (for stored procedure results)
+     * Maps get_vip_members_detailed cursor rows (and the active member export, which selects the
+     * same columns). Column positions are resolved once per cursor;
+     * cursors that only return customer_name (older procedure versions) are split on the first space.
      */
-    private VIPMember mapCursorResultToVIPMember(ResultSet rs) throws SQLException {
-        VIPMember vipMember = new VIPMember();
-        
-        vipMember.setVipId(rs.getInt("vip_id"));
-        vipMember.setCustomerId(rs.getInt("customer_id"));
-        vipMember.setMembershipLevelFromString(rs.getString("membership_level"));
-        vipMember.setDiscountPercentage(rs.getDouble("discount_percentage"));
-        
-        // Convert java.sql.Date to model's date type (java.sql.Date)
-        java.sql.Date startSqlDate = rs.getDate("membership_start_date");
-        if (startSqlDate != null) {
-            vipMember.setMembershipStartDate(startSqlDate);
-        }
-        
-        java.sql.Date endSqlDate = rs.getDate("membership_end_date");
-        if (endSqlDate != null) {
-            vipMember.setMembershipEndDate(endSqlDate);
+    private static final class CursorRowMapper {
+        private final int vipId;
+        private final int customerId;
+        private final int membershipLevel;
+        private final int discountPercentage;
+        private final int startDate;
+        private final int endDate;
+        private final int benefits;
+        private final int firstName;
+        private final int lastName;
+        private final int customerName;
+        private final int email;
+        private final int phone;
+        private final int totalSpent;
+        private final int loyaltyPoints;
+
+        CursorRowMapper(ResultSet rs) throws SQLException {
+            ColumnPositions positions = new ColumnPositions(rs);
+            vipId = positions.position("vip_id");
+            customerId = positions.position("customer_id");
+            membershipLevel = positions.position("membership_level");
+            discountPercentage = positions.position("discount_percentage");
+            startDate = positions.position("membership_start_date");
+            endDate = positions.position("membership_end_date");
+            benefits = positions.position("benefits");
+            firstName = positions.position("first_name");
+            lastName = positions.position("last_name");
+            customerName = positions.position("customer_name");
+            email = positions.position("email");
+            phone = positions.position("phone");
+            totalSpent = positions.position("total_spent");
+            loyaltyPoints = positions.position("loyalty_points");
         }
-        
-        vipMember.setBenefits(rs.getString("benefits"));
-        vipMember.setActive(true); // From cursor, only active members are returned
-        
-        // Add customer details
-        Customer customer = new Customer();
-        customer.setCustomerId(vipMember.getCustomerId());
-        customer.setFirstName(rs.getString("customer_name").split(" ")[0]);
-        if (rs.getString("customer_name").split(" ").length > 1) {
-            customer.setLastName(rs.getString("customer_name").split(" ")[1]);
+
+        VIPMember map(ResultSet rs) throws SQLException {
+            VIPMember vipMember = new VIPMember();
+            vipMember.setVipId(rs.getInt(vipId));
+            vipMember.setCustomerId(rs.getInt(customerId));
+            vipMember.setMembershipLevelFromString(rs.getString(membershipLevel));
+            vipMember.setDiscountPercentage(rs.getDouble(discountPercentage));
+            vipMember.setMembershipStartDate(rs.getDate(startDate));
+            vipMember.setMembershipEndDate(rs.getDate(endDate));
+            vipMember.setBenefits(rs.getString(benefits));
+            vipMember.setActive(true); // From cursor, only active members are returned
+
+            // Add customer details
+            Customer customer = new Customer();
+            customer.setCustomerId(vipMember.getCustomerId());
+            if (firstName > 0) {
+                customer.setFirstName(rs.getString(firstName));
+                customer.setLastName(lastName > 0 ? rs.getString(lastName) : null);
+            } else if (customerName > 0) {
+                String name = rs.getString(customerName);
+                int space = name != null ? name.indexOf(' ') : -1;
+                customer.setFirstName(space >= 0 ? name.substring(0, space) : name);
+                customer.setLastName(space >= 0 ? name.substring(space + 1) : null);
+            }
+            if (email > 0) customer.setEmail(rs.getString(email));
+            if (phone > 0) customer.setPhone(rs.getString(phone));
+            if (totalSpent > 0) customer.setTotalSpent(rs.getDouble(totalSpent));
+            if (loyaltyPoints > 0) customer.setLoyaltyPoints(rs.getInt(loyaltyPoints));
+            vipMember.setCustomer(customer);
+
+            return vipMember;
         }
-        customer.setEmail(rs.getString("email"));
-        customer.setPhone(rs.getString("phone"));
-        customer.setTotalSpent(rs.getDouble("total_spent"));
-        customer.setLoyaltyPoints(rs.getInt("loyalty_points"));
-        vipMember.setCustomer(customer);
-        
-        return vipMember;
     }
 
     /**
@@ -533,16 +751,368 @@ public class VIPMemberDAO {
     }
 
     /**
-     * Promote top customers to VIP status using stored procedure
+     * Promote customers whose spending reaches a VIP level, and upgrade members who outgrew theirs
      */
-    public void promoteTopCustomersToVIP(String promotedBy) throws SQLException {
-        String sql = "{call promote_top_customers_to_vip(?)}";
+    public VIPMembershipRun promoteTopCustomersToVIP(String promotedBy, boolean dryRun) throws SQLException {
+        return runMembershipEngine(VIPMembershipEngine.promotions(), dryRun, promotedBy);
+    }
+
+    /**
+     * Plan membership changes from one scan of customers and active memberships, then
+     * (unless dryRun) apply them in transactions of at most APPLY_BATCH_SIZE rows.
+     * Writes re-check the row they change, so members altered since the scan are skipped.
+     */
+    public VIPMembershipRun runMembershipEngine(VIPMembershipEngine engine, boolean dryRun, String runBy)
+            throws SQLException {
+        String scanSql = "SELECT c.customer_id, c.first_name, c.last_name, c.total_spent, " +
+                        "c.is_active AS customer_active, vm.vip_id, vm.membership_level, vm.membership_end_date " +
+                        "FROM customers c " +
+                        "LEFT JOIN vip_members vm ON vm.customer_id = c.customer_id AND vm.is_active = 'Y' " +
+                        "WHERE vm.vip_id IS NOT NULL OR (c.is_active = 'Y' AND c.total_spent >= ?)";
+
+        VIPMembershipRun run = new VIPMembershipRun(dryRun, runBy);
+        long start = System.currentTimeMillis();
+        long scanned;
 
         try (Connection conn = DatabaseConnection.getConnection();
-             CallableStatement cstmt = conn.prepareCall(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(scanSql)) {
 
-            cstmt.setString(1, promotedBy);
-            cstmt.execute();
+            pstmt.setFetchSize(CURSOR_FETCH_SIZE);
+            pstmt.setDouble(1, VIPMembershipEngine.GOLD_THRESHOLD);
+            scanned = evaluateCandidates(pstmt, engine, run);
+        }
+        run.recordScan(scanned, System.currentTimeMillis() - start);
+
+        if (!dryRun && !run.getChanges().isEmpty()) {
+            applyAndSync(run);
+        }
+        return run;
+    }
+
+    /**
+     * Apply exactly the changes a dry run planned, so the confirmed preview is what gets applied.
+     * Rows altered since the preview are skipped by the same write re-checks as a normal run.
+     */
+    public VIPMembershipRun applyMembershipRun(VIPMembershipRun preview, String runBy) throws SQLException {
+        VIPMembershipRun run = VIPMembershipRun.fromPreview(preview, runBy);
+        if (!run.getChanges().isEmpty()) {
+            applyAndSync(run);
+        }
+        return run;
+    }
+
+    /**
+     * Renew or expire up to max memberships that the expiry queue has due on or before today.
+     * Returns null when nothing is due. Only the due rows are read; no table scan.
+     */
+    public VIPMembershipRun processDueMemberships(LocalDate today, int max) throws SQLException {
+        List<Integer> due = EXPIRIES.pollDue(today, Math.min(max, APPLY_BATCH_SIZE));
+        if (due.isEmpty()) {
+            return null;
+        }
+        String scanSql = "SELECT c.customer_id, c.first_name, c.last_name, c.total_spent, " +
+                        "c.is_active AS customer_active, vm.vip_id, vm.membership_level, vm.membership_end_date " +
+                        "FROM vip_members vm JOIN customers c ON vm.customer_id = c.customer_id " +
+                        "WHERE vm.is_active = 'Y' AND vm.vip_id IN (" +
+                        String.join(", ", Collections.nCopies(due.size(), "?")) + ")";
+
+        VIPMembershipEngine engine = new VIPMembershipEngine(false, true, today);
+        VIPMembershipRun run = new VIPMembershipRun(false, "Expiry scheduler");
+        try {
+            long start = System.currentTimeMillis();
+            long scanned;
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(scanSql)) {
+
+                for (int i = 0; i < due.size(); i++) {
+                    pstmt.setInt(i + 1, due.get(i));
+                }
+                scanned = evaluateCandidates(pstmt, engine, run);
+            }
+            run.recordScan(scanned, System.currentTimeMillis() - start);
+
+            if (!run.getChanges().isEmpty()) {
+                applyAndSync(run);
+            }
+        } catch (SQLException e) {
+            // Those not applied are still due; queue them again so the next attempt picks them up
+            Set<Integer> applied = new HashSet<>();
+            for (VIPMembershipEngine.Change change : run.getAppliedChanges()) {
+                applied.add(change.getVipId());
+            }
+            for (int vipId : due) {
+                if (!applied.contains(vipId)) {
+                    EXPIRIES.schedule(vipId, today);
+                }
+            }
+            throw e;
+        }
+
+        // Rows changed since they were queued (or skipped by the re-check): queue them from their current state
+        Set<Integer> handled = new HashSet<>();
+        for (VIPMembershipEngine.Change change : run.getAppliedChanges()) {
+            handled.add(change.getVipId());
+        }
+        for (int vipId : due) {
+            if (!handled.contains(vipId)) {
+                refreshDiscount(vipId);
+            }
+        }
+        return run;
+    }
+
+    // Evaluate every scanned row and add the resulting changes to the run; returns the row count
+    private long evaluateCandidates(PreparedStatement pstmt, VIPMembershipEngine engine, VIPMembershipRun run)
+            throws SQLException {
+        long scanned = 0;
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                scanned++;
+                Date endDate = rs.getDate("membership_end_date");
+                VIPMembershipEngine.Candidate candidate = new VIPMembershipEngine.Candidate(
+                        rs.getInt("customer_id"),
+                        rs.getString("first_name") + " " + rs.getString("last_name"),
+                        rs.getDouble("total_spent"),
+                        "Y".equals(rs.getString("customer_active")),
+                        rs.getInt("vip_id"),
+                        toMembershipLevel(rs.getString("membership_level")),
+                        endDate != null ? endDate.toLocalDate() : null);
+                VIPMembershipEngine.Change change = engine.evaluate(candidate);
+                if (change != null) {
+                    run.addChange(change);
+                }
+            }
+        }
+        return scanned;
+    }
+
+    // Apply a run's changes and sync the caches with whatever committed, even when a later batch fails
+    private void applyAndSync(VIPMembershipRun run) throws SQLException {
+        long start = System.currentTimeMillis();
+        try {
+            applyMembershipChanges(run);
+        } finally {
+            run.setApplyMillis(System.currentTimeMillis() - start);
+            syncAfterRun(run);
+        }
+    }
+
+    // Bring the discount index, expiry queue and eligible set in line with what a run applied
+    private void syncAfterRun(VIPMembershipRun run) {
+        if (run.getAppliedCount(VIPMembershipEngine.Action.PROMOTE) > 0) {
+            // New vip IDs are not known here; reload
+            try {
+                reloadMembershipCaches();
+            } catch (SQLException e) {
+                // The changes are committed; drop the cached sets so they reload
+                System.err.println("VIP caches not reloaded after membership run: " + e.getMessage());
+                invalidateDiscounts();
+                CustomerDAO.invalidateVIPEligibility();
+            }
+            return;
+        }
+        for (VIPMembershipEngine.Change change : run.getAppliedChanges()) {
+            switch (change.getAction()) {
+                case UPGRADE:
+                case RENEW:
+                    Date endDate = change.getNewEndDate() != null ? Date.valueOf(change.getNewEndDate()) : null;
+                    putDiscount(change.getCustomerId(), change.getNewLevel(),
+                            change.getNewDiscountPercentage(), endDate);
+                    EXPIRIES.schedule(change.getVipId(), change.getNewEndDate());
+                    break;
+                case EXPIRE:
+                    removeDiscount(change.getCustomerId());
+                    EXPIRIES.remove(change.getVipId());
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reload the discount index and expiry queue and drop the eligibility set after bulk inserts
+     */
+    public void reloadMembershipCaches() throws SQLException {
+        loadDiscounts();
+        VIPAnalyticsDAO.invalidateCube();
+        if (EXPIRIES.isLoaded()) {
+            loadExpiryQueue();
+        }
+        CustomerDAO.invalidateVIPEligibility();
+    }
+
+    /**
+     * (Re)load the expiry queue from all active memberships that have an end date
+     */
+    public void loadExpiryQueue() throws SQLException {
+        String sql = "SELECT vip_id, membership_end_date FROM vip_members " +
+                    "WHERE is_active = 'Y' AND membership_end_date IS NOT NULL";
+        Map<Integer, LocalDate> endDates = new HashMap<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setFetchSize(CURSOR_FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    endDates.put(rs.getInt("vip_id"), rs.getDate("membership_end_date").toLocalDate());
+                }
+            }
+        }
+        EXPIRIES.load(endDates);
+    }
+
+    /**
+     * Earliest end date in the expiry queue, or null if nothing is queued
+     */
+    public LocalDate getNextExpiryDate() {
+        return EXPIRIES.nextDueDate();
+    }
+
+    /**
+     * Listener run when a membership becomes due earlier than everything queued (null to clear)
+     */
+    public void setExpiryListener(Runnable listener) {
+        EXPIRIES.setEarlierDueListener(listener);
+    }
+
+    private void applyMembershipChanges(VIPMembershipRun run) throws SQLException {
+        String insertSql = "INSERT INTO vip_members (vip_id, customer_id, membership_level, discount_percentage, " +
+                          "membership_start_date, membership_end_date, benefits, is_active) " +
+                          "SELECT vip_seq.NEXTVAL, ?, ?, ?, TRUNC(SYSDATE), ?, ?, 'Y' FROM dual " +
+                          "WHERE NOT EXISTS (SELECT 1 FROM vip_members WHERE customer_id = ? AND is_active = 'Y')";
+        String updateSql = "UPDATE vip_members SET membership_level = ?, discount_percentage = ?, " +
+                          "membership_end_date = ? WHERE vip_id = ? AND is_active = 'Y' AND membership_level = ?";
+        String expireSql = "UPDATE vip_members SET is_active = 'N' WHERE vip_id = ? AND is_active = 'Y'";
+
+        List<VIPMembershipEngine.Change> changes = run.getChanges();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+                 PreparedStatement updateStmt = conn.prepareStatement(updateSql);
+                 PreparedStatement expireStmt = conn.prepareStatement(expireSql)) {
+
+                for (int from = 0; from < changes.size(); from += APPLY_BATCH_SIZE) {
+                    List<VIPMembershipEngine.Change> batch =
+                            changes.subList(from, Math.min(from + APPLY_BATCH_SIZE, changes.size()));
+                    List<VIPMembershipEngine.Change> inserts = new ArrayList<>();
+                    List<VIPMembershipEngine.Change> updates = new ArrayList<>();
+                    List<VIPMembershipEngine.Change> expiries = new ArrayList<>();
+
+                    for (VIPMembershipEngine.Change change : batch) {
+                        switch (change.getAction()) {
+                            case PROMOTE:
+                                inserts.add(change);
+                                break;
+                            case UPGRADE:
+                            case RENEW:
+                                updateStmt.setString(1, change.getNewLevel().name());
+                                updateStmt.setDouble(2, change.getNewDiscountPercentage());
+                                if (change.getNewEndDate() != null) {
+                                    updateStmt.setDate(3, Date.valueOf(change.getNewEndDate()));
+                                } else {
+                                    updateStmt.setNull(3, Types.DATE);
+                                }
+                                updateStmt.setInt(4, change.getVipId());
+                                updateStmt.setString(5, change.getOldLevel().name());
+                                updateStmt.addBatch();
+                                updates.add(change);
+                                break;
+                            case EXPIRE:
+                                expireStmt.setInt(1, change.getVipId());
+                                expireStmt.addBatch();
+                                expiries.add(change);
+                                break;
+                        }
+                    }
+
+                    // Inserts run first, so a unique-index retry inside them has nothing else to roll back
+                    int[] insertCounts = inserts.isEmpty() ? new int[0] :
+                            executeGuardedInserts(conn, insertStmt, inserts, (stmt, change) -> {
+                                stmt.setInt(1, change.getCustomerId());
+                                stmt.setString(2, change.getNewLevel().name());
+                                stmt.setDouble(3, change.getNewDiscountPercentage());
+                                stmt.setDate(4, Date.valueOf(change.getNewEndDate()));
+                                stmt.setString(5, VIPMember.getDefaultBenefitsForLevel(change.getNewLevel()));
+                                stmt.setInt(6, change.getCustomerId());
+                            });
+                    int[] updateCounts = updates.isEmpty() ? new int[0] : updateStmt.executeBatch();
+                    int[] expireCounts = expiries.isEmpty() ? new int[0] : expireStmt.executeBatch();
+                    conn.commit();
+
+                    recordApplied(run, inserts, insertCounts);
+                    recordApplied(run, updates, updateCounts);
+                    recordApplied(run, expiries, expireCounts);
+                    run.recordBatch();
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, T row) throws SQLException;
+    }
+
+    /**
+     * Run guarded membership inserts as one batch. If idx_vip_one_active rejects a row (another
+     * session activated that customer after the NOT EXISTS guard ran), the batch is rolled back and
+     * redone one row at a time so only the conflicting rows are skipped (count 0). Must be the
+     * first statement of the caller's transaction.
+     */
+    private static <T> int[] executeGuardedInserts(Connection conn, PreparedStatement pstmt, List<T> rows,
+                                                   RowBinder<T> binder) throws SQLException {
+        for (T row : rows) {
+            binder.bind(pstmt, row);
+            pstmt.addBatch();
+        }
+        try {
+            return pstmt.executeBatch();
+        } catch (SQLException e) {
+            if (!isUniqueViolation(e)) throw e;
+            conn.rollback();
+            pstmt.clearBatch();
+        }
+
+        int[] counts = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            binder.bind(pstmt, rows.get(i));
+            try {
+                counts[i] = pstmt.executeUpdate();
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) throw e;
+                counts[i] = 0;
+            }
+        }
+        return counts;
+    }
+
+    // ORA-00001: unique constraint violated (here: idx_vip_one_active)
+    private static boolean isUniqueViolation(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            if (next.getErrorCode() == 1 && "23000".equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SQLException alreadyMemberOr(SQLException e) {
+        return isUniqueViolation(e) ? new SQLException("Customer is already a VIP member", e) : e;
+    }
+
+    private static void recordApplied(VIPMembershipRun run, List<VIPMembershipEngine.Change> changes, int[] counts) {
+        for (int i = 0; i < changes.size() && i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                run.recordApplied(changes.get(i));
+            }
         }
     }
 
@@ -552,13 +1122,7 @@ public class VIPMemberDAO {
      * Find VIP members by membership level with detailed information
      */
     public List<VIPMember> findByMembershipLevelWithDetails(VIPMember.MembershipLevel level) throws SQLException {
-        String sql = "SELECT vm.vip_id, vm.customer_id, vm.membership_level, " +
-                    "vm.discount_percentage, vm.membership_start_date, vm.membership_end_date, " +
-                    "vm.benefits, vm.is_active, " +
-                    "c.first_name, c.last_name, c.email, c.phone, c.total_spent, c.loyalty_points, " +
-                    "(SELECT COUNT(*) FROM bookings b WHERE b.customer_id = c.customer_id) as booking_count " +
-                    "FROM vip_members vm " +
-                    "JOIN customers c ON vm.customer_id = c.customer_id " +
+        String sql = VIP_DETAILS_SELECT +
                     "WHERE vm.membership_level = ? AND vm.is_active = 'Y' " +
                     "ORDER BY c.total_spent DESC";
 
@@ -579,4 +1143,223 @@ public class VIPMemberDAO {
         }
         return vipMembers;
     }
+
+    /**
+     * One page of active VIP members (optionally of one level) with booking counts, in vip_id order.
+     * Pass the last vip_id of the previous page (0 for the first page); the page is found by
+     * keyset on vip_id, and bookings are only counted for the members on the page.
+     */
+    public List<VIPMember> findPageWithDetails(VIPMember.MembershipLevel level, int afterVipId, int pageSize)
+            throws SQLException {
+        String sql = "WITH page AS (" +
+                    "  SELECT " + VIP_COLUMNS + " FROM vip_members vm " +
+                    "  JOIN customers c ON vm.customer_id = c.customer_id " +
+                    "  WHERE vm.is_active = 'Y' AND vm.vip_id > ? " +
+                    (level != null ? "  AND vm.membership_level = ? " : "") +
+                    "  ORDER BY vm.vip_id FETCH FIRST ? ROWS ONLY) " +
+                    "SELECT page.*, NVL(bc.booking_count, 0) AS booking_count FROM page " +
+                    "LEFT JOIN (SELECT customer_id, COUNT(*) AS booking_count FROM bookings " +
+                    "           WHERE customer_id IN (SELECT customer_id FROM page) GROUP BY customer_id) bc " +
+                    "ON bc.customer_id = page.customer_id " +
+                    "ORDER BY page.vip_id";
+
+        List<VIPMember> vipMembers = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            pstmt.setInt(index++, afterVipId);
+            if (level != null) {
+                pstmt.setString(index++, level.name());
+            }
+            pstmt.setInt(index, pageSize);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    vipMembers.add(mapResultSetToVIPMemberWithDetails(rs));
+                }
+            }
+        }
+        return vipMembers;
+    }
+
+    /**
+     * Number of active VIP members per membership level
+     */
+    public Map<VIPMember.MembershipLevel, Integer> countActiveByLevel() throws SQLException {
+        String sql = "SELECT membership_level, COUNT(*) AS member_count FROM vip_members " +
+                    "WHERE is_active = 'Y' GROUP BY membership_level";
+
+        Map<VIPMember.MembershipLevel, Integer> counts = new EnumMap<>(VIPMember.MembershipLevel.class);
+        for (VIPMember.MembershipLevel level : VIPMember.MembershipLevel.values()) {
+            counts.put(level, 0);
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                String level = rs.getString("membership_level");
+                if (level == null) continue;
+                try {
+                    counts.merge(VIPMember.MembershipLevel.valueOf(level.toUpperCase()),
+                            rs.getInt("member_count"), Integer::sum);
+                } catch (IllegalArgumentException e) {
+                    // Unknown level; not counted
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Combined total_spent of the customers with an active VIP membership
+     */
+    public double sumActiveMemberSpending() throws SQLException {
+        String sql = "SELECT NVL(SUM(c.total_spent), 0) FROM vip_members vm " +
+                    "JOIN customers c ON vm.customer_id = c.customer_id " +
+                    "WHERE vm.is_active = 'Y'";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            return rs.next() ? rs.getDouble(1) : 0.0;
+        }
+    }
+
+    /**
+     * Discount percentage a customer gets today from an active, unexpired membership (0 if none).
+     * Served from memory; the index is loaded from vip_members on first use.
+     */
+    public double getDiscountPercentage(int customerId) throws SQLException {
+        if (!DISCOUNTS.isLoaded()) {
+            loadDiscounts();
+        }
+        return DISCOUNTS.getDiscountPercentage(customerId);
+    }
+
+    /**
+     * Level of a customer's active membership, or null if none (served from the discount index)
+     */
+    public VIPMember.MembershipLevel getMembershipLevel(int customerId) throws SQLException {
+        if (!DISCOUNTS.isLoaded()) {
+            loadDiscounts();
+        }
+        return DISCOUNTS.getLevel(customerId);
+    }
+
+    /**
+     * Drop the discount index when it may have missed a membership change; the next lookup reloads it.
+     * The analytics cube takes its tiers from the index, so it goes too.
+     */
+    public static void invalidateDiscounts() {
+        DISCOUNTS.invalidate();
+        VIPAnalyticsDAO.invalidateCube();
+    }
+
+    // Index a customer's active membership; a tier change re-attributes their history in the analytics cube
+    private static void putDiscount(int customerId, VIPMember.MembershipLevel level, double discountPercentage,
+                                    Date endDate) {
+        if (DISCOUNTS.getLevel(customerId) != level) {
+            VIPAnalyticsDAO.invalidateCube();
+        }
+        DISCOUNTS.put(customerId, level, discountPercentage, endDate);
+    }
+
+    private static void removeDiscount(int customerId) {
+        if (DISCOUNTS.getLevel(customerId) != null) {
+            VIPAnalyticsDAO.invalidateCube();
+        }
+        DISCOUNTS.remove(customerId);
+    }
+
+    /**
+     * (Re)load the in-memory discount index from all active memberships
+     */
+    public void loadDiscounts() throws SQLException {
+        String sql = "SELECT customer_id, membership_level, discount_percentage, membership_end_date " +
+                    "FROM vip_members WHERE is_active = 'Y'";
+        List<VIPDiscountIndex.Entry> entries = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setFetchSize(CURSOR_FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    VIPMember.MembershipLevel level = toMembershipLevel(rs.getString("membership_level"));
+                    if (level == null) continue;
+                    entries.add(new VIPDiscountIndex.Entry(rs.getInt("customer_id"), level,
+                            rs.getDouble("discount_percentage"), rs.getDate("membership_end_date")));
+                }
+            }
+        }
+        DISCOUNTS.load(entries);
+    }
+
+    // Re-read one membership after a write and update (or drop) its discount entry
+    private void refreshDiscount(int vipId) throws SQLException {
+        if (!DISCOUNTS.isLoaded() && !EXPIRIES.isLoaded()) return;
+        String sql = "SELECT customer_id, membership_level, discount_percentage, membership_end_date, is_active " +
+                    "FROM vip_members WHERE vip_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, vipId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return;
+                int customerId = rs.getInt("customer_id");
+                VIPMember.MembershipLevel level = toMembershipLevel(rs.getString("membership_level"));
+                Date endDate = rs.getDate("membership_end_date");
+                if ("Y".equals(rs.getString("is_active")) && level != null) {
+                    putDiscount(customerId, level, rs.getDouble("discount_percentage"), endDate);
+                    EXPIRIES.schedule(vipId, endDate != null ? endDate.toLocalDate() : null);
+                    CustomerDAO.removeFromVIPEligible(customerId);
+                } else {
+                    removeDiscount(customerId);
+                    EXPIRIES.remove(vipId);
+                    new CustomerDAO().refreshVIPEligibility(customerId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-read a customer's active membership after it may have been changed outside this DAO
+     * (the update_vip_status trigger runs when check-out raises total_spent)
+     */
+    public void refreshCustomerDiscount(int customerId) throws SQLException {
+        if (!DISCOUNTS.isLoaded()) return;
+        String sql = "SELECT membership_level, discount_percentage, membership_end_date " +
+                    "FROM vip_members WHERE customer_id = ? AND is_active = 'Y' " +
+                    "ORDER BY discount_percentage DESC";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, customerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                VIPMember.MembershipLevel level = rs.next() ? toMembershipLevel(rs.getString("membership_level")) : null;
+                if (level != null) {
+                    putDiscount(customerId, level, rs.getDouble("discount_percentage"),
+                            rs.getDate("membership_end_date"));
+                } else {
+                    removeDiscount(customerId);
+                }
+            }
+        }
+    }
+
+    static VIPMember.MembershipLevel toMembershipLevel(String level) {
+        if (level == null) return null;
+        try {
+            return VIPMember.MembershipLevel.valueOf(level.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
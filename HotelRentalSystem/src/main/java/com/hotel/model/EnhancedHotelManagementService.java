@@ -1,33 +1,66 @@
 package com.hotel.model;
 
 import com.hotel.dao.*;
-
+import com.hotel.util.InvoiceRenderer;
+import com.hotel.util.VIPMemberCsvReader;
+import com.hotel.util.VIPMemberCsvWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Enhanced service class for hotel management operations with new features
  * Includes room services, invoice generation, and more
  */
 public class EnhancedHotelManagementService {
+    private static final int OVERDUE_SWEEP_BATCH_SIZE = 500;
+    private static final int LOYALTY_COMPACTION_BATCH_SIZE = 1000;
+    private static final int VIP_IMPORT_BATCH_SIZE = 500;
+    private static final String SERVICE_CHARGE_JOURNAL = "data/service_charges.journal";
+
+    // Shared by every service instance (panels create their own services)
+    private static ServiceChargeQueue serviceChargeQueue;
+    private static MembershipExpiryScheduler membershipExpiryScheduler;
+
     private final CustomerDAO customerDAO;
+    private final LoyaltyLedgerDAO loyaltyLedgerDAO;
     private final BookingDAO bookingDAO;
     private final RoomDAO roomDAO;
     private final VIPMemberDAO vipMemberDAO;
     private final RoomServiceDAO roomServiceDAO;
     private final ServiceUsageDAO serviceUsageDAO;
     private final InvoiceDAO invoiceDAO;
+    private final VIPAnalyticsDAO vipAnalyticsDAO;
 
     public EnhancedHotelManagementService() {
         this.customerDAO = new CustomerDAO();
+        this.loyaltyLedgerDAO = new LoyaltyLedgerDAO();
         this.bookingDAO = new BookingDAO();
         this.roomDAO = new RoomDAO();
         this.vipMemberDAO = new VIPMemberDAO();
         this.roomServiceDAO = new RoomServiceDAO();
         this.serviceUsageDAO = new ServiceUsageDAO();
         this.invoiceDAO = new InvoiceDAO();
+        this.vipAnalyticsDAO = new VIPAnalyticsDAO();
     }
 
     // ==================== ENHANCED CUSTOMER MANAGEMENT ====================
@@ -41,6 +74,11 @@ public class EnhancedHotelManagementService {
         return customerDAO.findById(customerId);
     }
     
+    // Several customers in one query, keyed by customer ID
+    public Map<Integer, Customer> getCustomers(Collection<Integer> customerIds) throws SQLException {
+        return customerDAO.findByIds(customerIds);
+    }
+    
     public List<Customer> getAllCustomers() throws SQLException {
         return customerDAO.findAll();
     }
@@ -97,13 +135,10 @@ public class EnhancedHotelManagementService {
         // Calculate total amount
         double baseAmount = room.getBasePrice() * numberOfNights;
 
-        // Check for VIP discount
+        // Check for VIP discount (in-memory index of active memberships)
         double discount = 0.0;
         try {
-            VIPMember vipMember = vipMemberDAO.findByCustomerId(booking.getCustomerId());
-            if (vipMember != null && vipMember.isActive()) {
-                discount = baseAmount * (vipMember.getDiscountPercentage() / 100.0);
-            }
+            discount = baseAmount * (vipMemberDAO.getDiscountPercentage(booking.getCustomerId()) / 100.0);
         } catch (SQLException e) {
             // No VIP membership, continue without discount
         }
@@ -158,7 +193,23 @@ public class EnhancedHotelManagementService {
     }
 
     public boolean checkOutCustomer(int bookingId) throws SQLException {
-        return bookingDAO.checkOutCustomer(bookingId);
+        boolean checkedOut = bookingDAO.checkOutCustomer(bookingId);
+        if (checkedOut) {
+            // Check-out raised total_spent: re-evaluate VIP eligibility (and any membership the trigger granted)
+            try {
+                int customerId = customerDAO.findCustomerIdByBooking(bookingId);
+                if (customerId > 0) {
+                    customerDAO.refreshVIPEligibility(customerId);
+                    vipMemberDAO.refreshCustomerDiscount(customerId);
+                }
+            } catch (SQLException e) {
+                // The check-out itself is committed; drop the cached sets so they reload
+                System.err.println("VIP state not refreshed after check-out: " + e.getMessage());
+                CustomerDAO.invalidateVIPEligibility();
+                VIPMemberDAO.invalidateDiscounts();
+            }
+        }
+        return checkedOut;
     }
 
     public Booking getBookingById(int bookingId) throws SQLException {
@@ -268,6 +319,55 @@ public class EnhancedHotelManagementService {
         return roomServiceDAO.findByRoomType(roomTypeId);
     }
     
+    public boolean isServiceAvailableForRoom(int roomId, int serviceId) throws SQLException {
+        return roomServiceDAO.isServiceAvailableForRoom(roomId, serviceId);
+    }
+    
+    public boolean isServiceComplimentaryForRoom(int roomId, int serviceId) throws SQLException {
+        return roomServiceDAO.isServiceComplimentaryForRoom(roomId, serviceId);
+    }
+    
+    public void assignServiceToRoomType(int roomTypeId, int serviceId, boolean complimentary) throws SQLException {
+        roomServiceDAO.assignServiceToRoomType(roomTypeId, serviceId, complimentary);
+    }
+    
+    public void removeServiceFromRoomType(int roomTypeId, int serviceId) throws SQLException {
+        roomServiceDAO.removeServiceFromRoomType(roomTypeId, serviceId);
+    }
+    
+    // Load the service catalog and the room type x service availability matrix (done once at startup)
+    public void loadServiceAvailability() throws SQLException {
+        roomServiceDAO.refreshCatalog();
+        roomServiceDAO.refreshAvailabilityMatrix();
+    }
+    
+    // Load active VIP discounts into memory (done once at startup; kept current by VIP writes)
+    public void loadVIPDiscounts() throws SQLException {
+        vipMemberDAO.loadDiscounts();
+    }
+    
+    // Price a cart (service ID -> quantity) for a booking in memory, as add_service_usage would charge it
+    public List<ServiceQuote> quoteServices(Booking booking, Map<Integer, Integer> cart) throws SQLException {
+        Integer roomTypeId = roomServiceDAO.getRoomTypeId(booking.getRoomId());
+        return roomServiceDAO.getPricingEngine().quoteCart(booking, booking.getCustomerId(), roomTypeId, cart);
+    }
+    
+    public ServiceQuote quoteService(Booking booking, int serviceId, int quantity) throws SQLException {
+        Map<Integer, Integer> cart = new HashMap<>();
+        cart.put(serviceId, quantity);
+        return quoteServices(booking, cart).get(0);
+    }
+    
+    // Pricing engine over the current catalog and availability snapshots, for repeated quotes without database access
+    public ServicePricingEngine getServicePricingEngine() throws SQLException {
+        return roomServiceDAO.getPricingEngine();
+    }
+    
+    // Room type of a room (null if the room does not exist)
+    public Integer getRoomTypeId(int roomId) throws SQLException {
+        return roomServiceDAO.getRoomTypeId(roomId);
+    }
+    
     public RoomService getRoomService(int serviceId) throws SQLException {
         return roomServiceDAO.findById(serviceId);
     }
@@ -294,6 +394,54 @@ public class EnhancedHotelManagementService {
         return serviceUsageDAO.create(bookingId, customerId, serviceId, quantity);
     }
     
+    // Renew/expire VIP memberships as their end dates arrive (started once at startup)
+    public static synchronized MembershipExpiryScheduler startMembershipExpiryScheduler() throws SQLException {
+        if (membershipExpiryScheduler == null) {
+            MembershipExpiryScheduler scheduler = new MembershipExpiryScheduler(new VIPMemberDAO());
+            scheduler.start();
+            membershipExpiryScheduler = scheduler;
+        }
+        return membershipExpiryScheduler;
+    }
+    
+    public static synchronized void stopMembershipExpiryScheduler() {
+        if (membershipExpiryScheduler != null) {
+            membershipExpiryScheduler.stop();
+            membershipExpiryScheduler = null;
+        }
+    }
+    
+    // Start the service charge queue, replaying any charges left in its journal
+    public static synchronized ServiceChargeQueue startServiceChargeQueue() throws IOException {
+        if (serviceChargeQueue == null) {
+            ServiceChargeQueue queue = new ServiceChargeQueue(new ServiceUsageDAO(), new File(SERVICE_CHARGE_JOURNAL));
+            queue.start();
+            serviceChargeQueue = queue;
+        }
+        return serviceChargeQueue;
+    }
+    
+    public static synchronized ServiceChargeQueue getServiceChargeQueue() {
+        return serviceChargeQueue;
+    }
+    
+    public static synchronized void shutdownServiceChargeQueue(long timeoutMillis) {
+        if (serviceChargeQueue != null) {
+            serviceChargeQueue.shutdown(timeoutMillis);
+            serviceChargeQueue = null;
+        }
+    }
+    
+    // Queue a charge for background posting; returns its journal sequence number
+    public long queueServiceUsage(long bookingId, int customerId, int serviceId, int quantity) throws IOException {
+        return startServiceChargeQueue().post(bookingId, customerId, serviceId, quantity);
+    }
+    
+    // Post many charges in one go; each posting gets its own result
+    public List<ServicePostingResult> addServiceUsageBatch(List<ServiceUsage> postings) throws SQLException {
+        return serviceUsageDAO.addServiceUsageBatch(postings);
+    }
+    
     public List<ServiceUsage> getCustomerServiceUsage(int customerId) throws SQLException {
         return serviceUsageDAO.findByCustomerId(customerId);
     }
@@ -302,6 +450,11 @@ public class EnhancedHotelManagementService {
         return serviceUsageDAO.findByBookingId(bookingId);
     }
     
+    // Service usage for several bookings in one query, keyed by booking ID
+    public Map<Long, List<ServiceUsage>> getBookingServiceUsage(Collection<Long> bookingIds) throws SQLException {
+        return serviceUsageDAO.findByBookingIds(bookingIds);
+    }
+    
     // ==================== VIP MEMBER MANAGEMENT ====================
 
     public VIPMember createVIPMember(VIPMember vipMember) throws SQLException {
@@ -341,12 +494,59 @@ public class EnhancedHotelManagementService {
         return vipMemberDAO.findByMembershipLevelWithDetails(level);
     }
 
-    public void processVIPRenewals() throws SQLException {
-        vipMemberDAO.processVIPRenewals();
+    // Keyset-paged VIP listing (level null for all levels); afterVipId is the last vip_id already shown
+    public List<VIPMember> getVIPMembersPage(VIPMember.MembershipLevel level, int afterVipId, int pageSize) throws SQLException {
+        return vipMemberDAO.findPageWithDetails(level, afterVipId, pageSize);
+    }
+
+    public Map<VIPMember.MembershipLevel, Integer> getVIPMemberCountsByLevel() throws SQLException {
+        return vipMemberDAO.countActiveByLevel();
+    }
+
+    // Total spent by all active VIP members, summed in the database
+    public double getTotalVIPSpending() throws SQLException {
+        return vipMemberDAO.sumActiveMemberSpending();
     }
 
-    public void promoteTopCustomersToVIP(String promotedBy) throws SQLException {
-        vipMemberDAO.promoteTopCustomersToVIP(promotedBy);
+    public VIPMember getVIPMember(int vipId) throws SQLException {
+        return vipMemberDAO.findById(vipId);
+    }
+
+    // Bookings, revenue, discounts and service spend per VIP tier for the months covering from..to
+    public List<VIPTierStats> getVIPTierStats(Date from, Date to) throws SQLException {
+        return vipAnalyticsDAO.getTierStats(toYearMonth(from), toYearMonth(to));
+    }
+
+    public List<VIPTierStats> getVIPTierStats(YearMonth from, YearMonth to) throws SQLException {
+        return vipAnalyticsDAO.getTierStats(from, to);
+    }
+
+    // Build the tier analytics cube now rather than on the first report
+    public void rebuildVIPAnalytics() throws SQLException {
+        vipAnalyticsDAO.loadCube();
+    }
+
+    // Renewals/expiries the renewal run would make, without changing anything
+    public VIPMembershipRun previewVIPRenewals() throws SQLException {
+        return vipMemberDAO.processVIPRenewals("System", true);
+    }
+
+    public VIPMembershipRun processVIPRenewals() throws SQLException {
+        return vipMemberDAO.processVIPRenewals("System", false);
+    }
+
+    // Promotions/upgrades the promotion run would make, without changing anything
+    public VIPMembershipRun previewVIPPromotions() throws SQLException {
+        return vipMemberDAO.promoteTopCustomersToVIP("System", true);
+    }
+
+    public VIPMembershipRun promoteTopCustomersToVIP(String promotedBy) throws SQLException {
+        return vipMemberDAO.promoteTopCustomersToVIP(promotedBy, false);
+    }
+
+    // Apply the changes of a confirmed preview rather than planning them again
+    public VIPMembershipRun applyVIPMembershipRun(VIPMembershipRun preview, String runBy) throws SQLException {
+        return vipMemberDAO.applyMembershipRun(preview, runBy);
     }
     
     // ==================== INVOICE MANAGEMENT ====================
@@ -379,14 +579,68 @@ public class EnhancedHotelManagementService {
         return invoiceDAO.findByDateRange(new java.sql.Date(startDate.getTime()), new java.sql.Date(endDate.getTime()));
     }
 
+    /**
+     * Build an unsaved invoice for a booking so it can be previewed before generation
+     */
+    public Invoice buildInvoicePreview(long bookingId, double taxRate) throws SQLException {
+        Booking booking = bookingDAO.findById((int) bookingId);
+        if (booking == null) {
+            throw new SQLException("Booking not found with ID: " + bookingId);
+        }
+
+        Invoice invoice = new Invoice();
+        invoice.setBookingId(bookingId);
+        invoice.setCustomer(customerDAO.findById(booking.getCustomerId()));
+
+        invoice.addLineItem(InvoiceLineItem.createRoomCharge(0, "Room Charges", booking.getTotalAmount()));
+        if (booking.getExtraCharges() > 0) {
+            invoice.addLineItem(InvoiceLineItem.createExtraCharge(0, "Additional Charges", booking.getExtraCharges()));
+        }
+        for (ServiceUsage usage : serviceUsageDAO.findByBookingId(bookingId)) {
+            InvoiceLineItem item = InvoiceLineItem.createServiceCharge(0, usage.getServiceName(),
+                    usage.getQuantity(), usage.getUnitPrice(), usage.getServiceId(), usage.getUsageId());
+            item.setLineTotal(usage.getTotalCost());
+            invoice.addLineItem(item);
+        }
+
+        double subtotal = invoice.getLineItems().stream()
+                .mapToDouble(InvoiceLineItem::getLineTotal)
+                .sum();
+        invoice.addLineItem(InvoiceLineItem.createTaxCharge(0,
+                String.format("Tax (%.1f%%)", taxRate * 100), subtotal * taxRate));
+        invoice.calculateTotals();
+
+        return invoice;
+    }
+
+    /**
+     * Stream every invoice in a date range into one text document.
+     * Invoices are rendered as they are read, so memory use does not grow with the range.
+     */
+    public int exportInvoices(Date startDate, Date endDate, OutputStream out) throws SQLException, IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        InvoiceRenderer renderer = new InvoiceRenderer(writer);
+        try {
+            invoiceDAO.streamByDateRange(new java.sql.Date(startDate.getTime()),
+                    new java.sql.Date(endDate.getTime()), renderer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        renderer.flush();
+        return renderer.getRenderedCount();
+    }
+
     // ==================== REPORTING AND ANALYTICS ====================
 
     public double getTotalRevenue(Date startDate, Date endDate) throws SQLException {
-        List<Invoice> invoices = invoiceDAO.findByDateRange(new java.sql.Date(startDate.getTime()), new java.sql.Date(endDate.getTime()));
-        return invoices.stream()
-                .filter(invoice -> invoice.getPaymentStatus() == Invoice.PaymentStatus.PAID)
-                .mapToDouble(Invoice::getTotalAmount)
-                .sum();
+        return invoiceDAO.getRevenue(new java.sql.Date(startDate.getTime()), new java.sql.Date(endDate.getTime()),
+                Invoice.PaymentStatus.PAID);
+    }
+
+    public List<RevenueSummary> getRevenueSummary(Date startDate, Date endDate,
+                                                  RevenueSummary.Period period) throws SQLException {
+        return invoiceDAO.aggregateRevenue(new java.sql.Date(startDate.getTime()),
+                new java.sql.Date(endDate.getTime()), period);
     }
 
     public int getTotalCustomersCount() throws SQLException {
@@ -469,6 +723,11 @@ public class EnhancedHotelManagementService {
         return invoiceDAO.findByBookingId(bookingId);
     }
 
+    // Which of the given bookings already have an invoice, in one query
+    public Set<Long> getInvoicedBookingIds(Collection<Long> bookingIds) throws SQLException {
+        return invoiceDAO.findInvoicedBookingIds(bookingIds);
+    }
+
     public Invoice generateInvoice(int bookingId, double taxRate, String createdBy) throws SQLException {
         Booking booking = bookingDAO.findById(bookingId);
         if (booking == null) {
@@ -513,10 +772,16 @@ public class EnhancedHotelManagementService {
     }
 
     public double getPendingPaymentAmount() throws SQLException {
-        List<Invoice> pendingInvoices = getPendingInvoices();
-        return pendingInvoices.stream()
-                .mapToDouble(Invoice::getTotalAmount)
-                .sum();
+        return invoiceDAO.getPendingPaymentAmount();
+    }
+
+    public List<String> reconcileReceivables() throws SQLException {
+        return invoiceDAO.reconcileReceivables();
+    }
+
+    // Mark past-due pending invoices as overdue; returns how many were changed
+    public int sweepOverdueInvoices() throws SQLException {
+        return invoiceDAO.markOverdueInvoices(OVERDUE_SWEEP_BATCH_SIZE);
     }
 
     // VIP Member Methods
@@ -532,24 +797,129 @@ public class EnhancedHotelManagementService {
         }
     }
 
-    public VIPMember promoteToVIP(int customerId, VIPMember.MembershipLevel level) throws SQLException {
-        Customer customer = customerDAO.findById(customerId);
-        if (customer == null) {
-            throw new SQLException("Customer not found");
+    /**
+     * Import VIP members from CSV (see {@link VIPMemberCsvReader} for the columns).
+     * Rows are parsed as they are read, checked against a preloaded set of active customer IDs
+     * and inserted VIP_IMPORT_BATCH_SIZE at a time; customers that are already members are rejected.
+     */
+    public VIPTransferResult importVIPMembers(InputStream in) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        VIPTransferResult result = new VIPTransferResult(VIPTransferResult.Direction.IMPORT);
+        Set<Integer> customerIds = customerDAO.findActiveCustomerIds();
+        VIPMemberCsvReader reader = new VIPMemberCsvReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+
+        List<VIPMember> batch = new ArrayList<>(VIP_IMPORT_BATCH_SIZE);
+        List<Integer> batchLines = new ArrayList<>(VIP_IMPORT_BATCH_SIZE);
+        try {
+            VIPMemberCsvReader.Row row;
+            while ((row = reader.next()) != null) {
+                result.recordRead();
+                if (!row.isValid()) {
+                    result.recordRejected(row.getLineNumber(), row.getError());
+                    continue;
+                }
+                if (!customerIds.contains(row.getMember().getCustomerId())) {
+                    result.recordRejected(row.getLineNumber(),
+                            "Customer " + row.getMember().getCustomerId() + " not found or inactive");
+                    continue;
+                }
+                batch.add(row.getMember());
+                batchLines.add(row.getLineNumber());
+                if (batch.size() == VIP_IMPORT_BATCH_SIZE) {
+                    insertVIPImportBatch(batch, batchLines, result);
+                }
+            }
+            insertVIPImportBatch(batch, batchLines, result);
+        } finally {
+            if (result.getRowsWritten() > 0) {
+                vipMemberDAO.reloadMembershipCaches();
+            }
+            result.setElapsedMillis(System.currentTimeMillis() - start);
         }
+        return result;
+    }
+
+    private void insertVIPImportBatch(List<VIPMember> batch, List<Integer> lines, VIPTransferResult result)
+            throws SQLException {
+        if (batch.isEmpty()) return;
+        int[] counts = vipMemberDAO.insertVIPMembers(batch);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                result.recordRejected(lines.get(i),
+                        "Customer " + batch.get(i).getCustomerId() + " is already a VIP member");
+            } else {
+                result.recordWritten(1);
+            }
+        }
+        result.recordBatch();
+        batch.clear();
+        lines.clear();
+    }
+
+    /**
+     * Stream all active VIP members to CSV, in the layout {@link #importVIPMembers} reads
+     */
+    public VIPTransferResult exportVIPMembers(OutputStream out) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        VIPTransferResult result = new VIPTransferResult(VIPTransferResult.Direction.EXPORT);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        VIPMemberCsvWriter csv = new VIPMemberCsvWriter(writer);
+        try {
+            vipMemberDAO.streamActiveMembers(csv);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+        result.recordWritten(csv.getWrittenCount());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        return result;
+    }
 
-        VIPMember vipMember = new VIPMember();
-        vipMember.setCustomerId(customerId);
-        vipMember.setMembershipLevel(level);
-        vipMember.setJoinDate(new java.sql.Date(System.currentTimeMillis()));
-        vipMember.setDiscountPercentage(VIPMember.getDefaultDiscountForLevel(level));
-        vipMember.setBenefits(VIPMember.getDefaultBenefitsForLevel(level));
-        vipMember.setActive(true);
-
-        int vipId = vipMemberDAO.createVIPMember(vipMember);
-        vipMember.setVipId(vipId);
+    // Validates and inserts in one round trip; throws if the customer is missing, inactive or already a VIP
+    public VIPMember promoteToVIP(int customerId, VIPMember.MembershipLevel level) throws SQLException {
+        return vipMemberDAO.promoteCustomer(customerId, level);
+    }
 
-        return vipMember;
+    // ==================== LOYALTY POINTS ====================
+    
+    // Exact balance (compacted points plus ledger events not yet folded in)
+    public int getLoyaltyPointsBalance(int customerId) throws SQLException {
+        return loyaltyLedgerDAO.getBalance(customerId);
+    }
+    
+    public List<LoyaltyPointEvent> getLoyaltyPointHistory(int customerId) throws SQLException {
+        return loyaltyLedgerDAO.findByCustomerId(customerId);
+    }
+    
+    public LoyaltyPointEvent redeemLoyaltyPoints(int customerId, int points, Long bookingId, String description)
+            throws SQLException {
+        return loyaltyLedgerDAO.redeem(customerId, points, bookingId, description);
+    }
+    
+    // Balances by customer ID for display, looked up in batches. Every customer gets an entry:
+    // the exact ledger balance, or the compacted loyalty_points column (which lags until the next
+    // compaction) when the customer is missing or the ledger cannot be read.
+    public Map<Integer, Integer> getLoyaltyPointsBalances(Collection<Customer> customers) {
+        List<Integer> customerIds = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            customerIds.add(customer.getCustomerId());
+        }
+        Map<Integer, Integer> balances = new HashMap<>();
+        try {
+            balances.putAll(loyaltyLedgerDAO.getBalances(customerIds));
+        } catch (SQLException e) {
+            System.err.println("Loyalty balances not read, showing compacted points: " + e.getMessage());
+        }
+        for (Customer customer : customers) {
+            balances.putIfAbsent(customer.getCustomerId(), customer.getLoyaltyPoints());
+        }
+        return balances;
+    }
+    
+    // Fold pending ledger events into customers.loyalty_points (run periodically)
+    public int compactLoyaltyLedger() throws SQLException {
+        return loyaltyLedgerDAO.compact(LOYALTY_COMPACTION_BATCH_SIZE);
     }
 
     // Customer Methods
@@ -570,10 +940,41 @@ public class EnhancedHotelManagementService {
         return serviceUsageDAO.calculateCustomerServiceTotal(customerId, fromDate);
     }
 
+    // Monthly spend per category over the last given number of months (including the current one)
+    public List<ServiceSpend> getServiceSpend(int customerId, int months) throws SQLException {
+        Date fromMonth = java.sql.Date.valueOf(java.time.LocalDate.now().withDayOfMonth(1).minusMonths(months - 1));
+        return serviceUsageDAO.findServiceSpend(customerId, fromMonth);
+    }
+
+    // Recompute the service spend rollup from the usage table
+    public int rebuildServiceSpendRollup() throws SQLException {
+        return serviceUsageDAO.rebuildServiceSpendRollup();
+    }
+
     public List<ServiceUsage> getMostPopularServices(int limit) throws SQLException {
         return serviceUsageDAO.getMostPopularServices(limit);
     }
 
+    // Most used services this day/week/month, served from in-memory counters
+    public List<ServicePopularity> getPopularServices(ServicePopularity.Window window, int limit) throws SQLException {
+        List<ServicePopularity> ranking = serviceUsageDAO.getPopularServices(window, limit);
+        if (!ranking.isEmpty()) {
+            Map<Integer, String> names = new HashMap<>();
+            for (RoomService service : roomServiceDAO.findAll()) {
+                names.put(service.getServiceId(), service.getServiceName());
+            }
+            for (ServicePopularity popularity : ranking) {
+                popularity.setServiceName(names.get(popularity.getServiceId()));
+            }
+        }
+        return ranking;
+    }
+
+    // Same ranking recomputed exactly in the database
+    public List<ServicePopularity> getPopularServicesExact(ServicePopularity.Window window, int limit) throws SQLException {
+        return serviceUsageDAO.getPopularServicesExact(window, limit);
+    }
+
     // Room and Reports Methods
     public double getRoomOccupancyRate(Date startDate, Date endDate) throws SQLException {
         List<Room> allRooms = roomDAO.findAll();
@@ -608,4 +1009,8 @@ public class EnhancedHotelManagementService {
             getTotalRevenue(new Date(System.currentTimeMillis() - 30L * 24 * 60 * 60 * 1000), new Date()) // Last 30 days
         };
     }
+
+    private static YearMonth toYearMonth(Date date) {
+        return YearMonth.from(Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()));
+    }
 }
@@ -309,17 +309,17 @@ public class Invoice {
     public void calculateTotals() {
         if (lineItems != null) {
             subtotal = lineItems.stream()
-                    .filter(item -> !item.getItemType().equals("TAX") && !item.getItemType().equals("DISCOUNT"))
+                    .filter(item -> !item.isTax() && !item.isDiscount())
                     .mapToDouble(InvoiceLineItem::getLineTotal)
                     .sum();
             
             taxAmount = lineItems.stream()
-                    .filter(item -> item.getItemType().equals("TAX"))
+                    .filter(InvoiceLineItem::isTax)
                     .mapToDouble(InvoiceLineItem::getLineTotal)
                     .sum();
             
             discountAmount = Math.abs(lineItems.stream()
-                    .filter(item -> item.getItemType().equals("DISCOUNT"))
+                    .filter(InvoiceLineItem::isDiscount)
                     .mapToDouble(InvoiceLineItem::getLineTotal)
                     .sum());
             
@@ -0,0 +1,119 @@
+package com.hotel.model;
+
+import java.util.Date;
+
+/**
+ * Model class representing one entry in the append-only loyalty points ledger
+ */
+public class LoyaltyPointEvent {
+
+    public enum EventType {
+        EARN, REDEEM, ADJUST
+    }
+
+    private long eventId;
+    private int customerId;
+    private Long bookingId;
+    private EventType eventType;
+    private int points;
+    private String description;
+    private Date eventDate;
+    private boolean compacted;
+
+    // Constructors
+    public LoyaltyPointEvent() {
+    }
+
+    public LoyaltyPointEvent(int customerId, Long bookingId, EventType eventType, int points, String description) {
+        this.customerId = customerId;
+        this.bookingId = bookingId;
+        this.eventType = eventType;
+        this.points = points;
+        this.description = description;
+    }
+
+    // Points redeemed are stored as a negative amount
+    public static LoyaltyPointEvent redeem(int customerId, Long bookingId, int points, String description) {
+        return new LoyaltyPointEvent(customerId, bookingId, EventType.REDEEM, -Math.abs(points), description);
+    }
+
+    public static LoyaltyPointEvent earn(int customerId, Long bookingId, int points, String description) {
+        return new LoyaltyPointEvent(customerId, bookingId, EventType.EARN, Math.abs(points), description);
+    }
+
+    // Getters and Setters
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+
+    public Long getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(Long bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    public EventType getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(EventType eventType) {
+        this.eventType = eventType;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public void setPoints(int points) {
+        this.points = points;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Date getEventDate() {
+        return eventDate;
+    }
+
+    public void setEventDate(Date eventDate) {
+        this.eventDate = eventDate;
+    }
+
+    // True once the event has been folded into customers.loyalty_points
+    public boolean isCompacted() {
+        return compacted;
+    }
+
+    public void setCompacted(boolean compacted) {
+        this.compacted = compacted;
+    }
+
+    @Override
+    public String toString() {
+        return "LoyaltyPointEvent{" +
+                "eventId=" + eventId +
+                ", customerId=" + customerId +
+                ", eventType=" + eventType +
+                ", points=" + points +
+                '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.hotel.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Active memberships with an end date, ordered by that date.
+ *
+ * End dates are whole days, so memberships are bucketed per day and the earliest bucket is
+ * always the next one due; rescheduling a membership moves it between buckets. The queue is
+ * loaded once and then kept current by the VIP writes, so the expiry scheduler never has to
+ * scan vip_members to find out what is due.
+ */
+public class MembershipExpiryQueue {
+
+    private final NavigableMap<LocalDate, Set<Integer>> vipIdsByEndDate = new TreeMap<>();
+    private final Map<Integer, LocalDate> endDateByVipId = new HashMap<>();
+    private boolean loaded;
+    // Called (outside the lock) when a membership becomes due earlier than everything queued
+    private volatile Runnable earlierDueListener;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the contents with the given vip ID to end date pairs
+     */
+    public void load(Map<Integer, LocalDate> endDates) {
+        synchronized (this) {
+            vipIdsByEndDate.clear();
+            endDateByVipId.clear();
+            for (Map.Entry<Integer, LocalDate> entry : endDates.entrySet()) {
+                add(entry.getKey(), entry.getValue());
+            }
+            loaded = true;
+        }
+        notifyEarlierDue();
+    }
+
+    /**
+     * Queue (or move) a membership; a null end date removes it
+     */
+    public void schedule(int vipId, LocalDate endDate) {
+        boolean earlier;
+        synchronized (this) {
+            if (!loaded) return;
+            removeQueued(vipId);
+            if (endDate == null) return;
+            earlier = vipIdsByEndDate.isEmpty() || endDate.isBefore(vipIdsByEndDate.firstKey());
+            add(vipId, endDate);
+        }
+        if (earlier) {
+            notifyEarlierDue();
+        }
+    }
+
+    public synchronized void remove(int vipId) {
+        if (!loaded) return;
+        removeQueued(vipId);
+    }
+
+    /**
+     * Take up to max memberships whose end date is on or before the given day, earliest first
+     */
+    public synchronized List<Integer> pollDue(LocalDate today, int max) {
+        List<Integer> due = new ArrayList<>();
+        Iterator<Map.Entry<LocalDate, Set<Integer>>> buckets =
+                vipIdsByEndDate.headMap(today, true).entrySet().iterator();
+        while (buckets.hasNext() && due.size() < max) {
+            Set<Integer> vipIds = buckets.next().getValue();
+            Iterator<Integer> ids = vipIds.iterator();
+            while (ids.hasNext() && due.size() < max) {
+                Integer vipId = ids.next();
+                ids.remove();
+                endDateByVipId.remove(vipId);
+                due.add(vipId);
+            }
+            if (vipIds.isEmpty()) {
+                buckets.remove();
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Earliest queued end date, or null if nothing is queued
+     */
+    public synchronized LocalDate nextDueDate() {
+        return vipIdsByEndDate.isEmpty() ? null : vipIdsByEndDate.firstKey();
+    }
+
+    public synchronized int size() {
+        return endDateByVipId.size();
+    }
+
+    public void setEarlierDueListener(Runnable listener) {
+        this.earlierDueListener = listener;
+    }
+
+    private void add(int vipId, LocalDate endDate) {
+        vipIdsByEndDate.computeIfAbsent(endDate, day -> new LinkedHashSet<>()).add(vipId);
+        endDateByVipId.put(vipId, endDate);
+    }
+
+    private void removeQueued(int vipId) {
+        LocalDate endDate = endDateByVipId.remove(vipId);
+        if (endDate == null) return;
+        Set<Integer> vipIds = vipIdsByEndDate.get(endDate);
+        vipIds.remove(vipId);
+        if (vipIds.isEmpty()) {
+            vipIdsByEndDate.remove(endDate);
+        }
+    }
+
+    private void notifyEarlierDue() {
+        Runnable listener = earlierDueListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+}
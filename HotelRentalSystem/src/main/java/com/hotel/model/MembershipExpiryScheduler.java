@@ -0,0 +1,144 @@
+package com.hotel.model;
+
+import com.hotel.dao.VIPMemberDAO;
+import com.hotel.util.BackgroundScheduler;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews or expires VIP memberships when their end date arrives.
+ *
+ * Instead of polling vip_members, the scheduler arms a single one-shot job for the start of
+ * the earliest end date in the DAO's expiry queue. When it fires, it drains the due memberships
+ * in batches (renew at the level current spending earns, or expire), then arms itself for the
+ * next end date. VIP writes that queue an earlier end date re-arm it through the queue's listener.
+ */
+public class MembershipExpiryScheduler {
+
+    private static final String JOB_NAME = "vip-membership-expiry";
+    private static final int BATCH_SIZE = 200;
+    private static final long RETRY_DELAY_MINUTES = 5;
+
+    private final VIPMemberDAO vipMemberDAO;
+
+    private ScheduledFuture<?> pending;
+    private LocalDate pendingDate;
+    private boolean processing;
+    private boolean running;
+
+    // Metrics
+    private volatile long processedCount;
+    private volatile long lastRunMillis;
+
+    public MembershipExpiryScheduler(VIPMemberDAO vipMemberDAO) {
+        this.vipMemberDAO = vipMemberDAO;
+    }
+
+    /**
+     * Load the expiry queue and arm the job for the earliest end date
+     */
+    public synchronized void start() throws SQLException {
+        if (running) return;
+        vipMemberDAO.loadExpiryQueue();
+        vipMemberDAO.setExpiryListener(this::reschedule);
+        running = true;
+        reschedule();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        vipMemberDAO.setExpiryListener(null);
+        cancelPending();
+    }
+
+    /**
+     * Day the job is armed for, or null if nothing is queued
+     */
+    public synchronized LocalDate getNextRunDate() {
+        return pendingDate;
+    }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    // Arm the job for the earliest queued end date unless it is already armed for that day or earlier
+    private synchronized void reschedule() {
+        if (!running || processing) return;
+        LocalDate next = vipMemberDAO.getNextExpiryDate();
+        if (next == null) {
+            cancelPending();
+            return;
+        }
+        if (pending != null && !pending.isDone() && !next.isBefore(pendingDate)) {
+            return;
+        }
+        cancelPending();
+        long dueMillis = next.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long delay = Math.max(0, dueMillis - System.currentTimeMillis());
+        pending = BackgroundScheduler.schedule(JOB_NAME, this::processDue, delay, TimeUnit.MILLISECONDS);
+        pendingDate = next;
+    }
+
+    private void processDue() {
+        synchronized (this) {
+            if (!running) return;
+            pending = null;
+            pendingDate = null;
+            processing = true;
+        }
+
+        long start = System.currentTimeMillis();
+        int renewed = 0;
+        int expired = 0;
+        boolean failed = true;
+        try {
+            LocalDate today = LocalDate.now();
+            VIPMembershipRun run;
+            while ((run = vipMemberDAO.processDueMemberships(today, BATCH_SIZE)) != null) {
+                renewed += run.getAppliedCount(VIPMembershipEngine.Action.RENEW);
+                expired += run.getAppliedCount(VIPMembershipEngine.Action.EXPIRE);
+            }
+            failed = false;
+        } catch (SQLException e) {
+            System.err.println("VIP membership expiry failed, will retry: " + e.getMessage());
+        } finally {
+            // Runs for unchecked failures too, so the scheduler is never left stuck in processing
+            long elapsed = System.currentTimeMillis() - start;
+            lastRunMillis = elapsed;
+            processedCount += renewed + expired;
+            if (renewed + expired > 0) {
+                System.out.println(String.format("VIP expiry: %d renewed, %d expired in %d ms (%.0f rows/s)",
+                        renewed, expired, elapsed, elapsed > 0 ? (renewed + expired) * 1000.0 / elapsed : 0.0));
+            }
+
+            synchronized (this) {
+                processing = false;
+                if (running) {
+                    if (failed) {
+                        pending = BackgroundScheduler.schedule(JOB_NAME, this::processDue, RETRY_DELAY_MINUTES, TimeUnit.MINUTES);
+                        pendingDate = LocalDate.now();
+                    } else {
+                        reschedule();
+                    }
+                }
+            }
+        }
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+            pendingDate = null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.hotel.model;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory receivables ledger holding running invoice totals per payment status and per invoice day.
+ *
+ * Totals are seeded once from an aggregate over the invoices table and then adjusted
+ * as invoices are created or change status, so outstanding and collected amounts are
+ * constant-time reads. Invoices changed outside the application (stored procedures,
+ * triggers) are picked up by {@link #reconcile(List)}.
+ */
+public class ReceivablesLedger {
+
+    private static final int STATUS_COUNT = Invoice.PaymentStatus.values().length;
+
+    /**
+     * One aggregate row: the totals for a payment status on one invoice day
+     */
+    public static class Entry {
+        private final Invoice.PaymentStatus status;
+        private final LocalDate day;
+        private final long count;
+        private final double amount;
+
+        public Entry(Invoice.PaymentStatus status, LocalDate day, long count, double amount) {
+            this.status = status;
+            this.day = day;
+            this.count = count;
+            this.amount = amount;
+        }
+
+        public Invoice.PaymentStatus getStatus() { return status; }
+        public LocalDate getDay() { return day; }
+        public long getCount() { return count; }
+        public double getAmount() { return amount; }
+    }
+
+    private final double[] amountByStatus = new double[STATUS_COUNT];
+    private final long[] countByStatus = new long[STATUS_COUNT];
+    private final NavigableMap<LocalDate, double[]> amountByDay = new TreeMap<>();
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the ledger contents with the given aggregate rows
+     */
+    public synchronized void load(List<Entry> entries) {
+        Arrays.fill(amountByStatus, 0.0);
+        Arrays.fill(countByStatus, 0L);
+        amountByDay.clear();
+        for (Entry entry : entries) {
+            apply(entry.getStatus(), entry.getDay(), entry.getCount(), entry.getAmount());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Record a newly created invoice
+     */
+    public synchronized void recordCreated(Invoice.PaymentStatus status, Date invoiceDate, double amount) {
+        if (!loaded) return;
+        apply(status, toDay(invoiceDate), 1, amount);
+    }
+
+    /**
+     * Move an invoice between statuses and/or amounts
+     */
+    public synchronized void recordChange(Date invoiceDate,
+                                          Invoice.PaymentStatus oldStatus, double oldAmount,
+                                          Invoice.PaymentStatus newStatus, double newAmount) {
+        if (!loaded) return;
+        LocalDate day = toDay(invoiceDate);
+        apply(oldStatus, day, -1, -oldAmount);
+        apply(newStatus, day, 1, newAmount);
+    }
+
+    public synchronized double getAmount(Invoice.PaymentStatus status) {
+        return amountByStatus[status.ordinal()];
+    }
+
+    public synchronized long getCount(Invoice.PaymentStatus status) {
+        return countByStatus[status.ordinal()];
+    }
+
+    /**
+     * Amount still owed (pending and overdue invoices)
+     */
+    public synchronized double getOutstandingAmount() {
+        return amountByStatus[Invoice.PaymentStatus.PENDING.ordinal()]
+                + amountByStatus[Invoice.PaymentStatus.OVERDUE.ordinal()];
+    }
+
+    /**
+     * Amount collected (paid invoices)
+     */
+    public synchronized double getCollectedAmount() {
+        return amountByStatus[Invoice.PaymentStatus.PAID.ordinal()];
+    }
+
+    /**
+     * Amount for a status over an inclusive range of invoice days
+     */
+    public synchronized double getAmount(Invoice.PaymentStatus status, Date fromDate, Date toDate) {
+        double total = 0.0;
+        for (double[] amounts : amountByDay.subMap(toDay(fromDate), true, toDay(toDate), true).values()) {
+            total += amounts[status.ordinal()];
+        }
+        return total;
+    }
+
+    /**
+     * Compare the ledger with freshly aggregated rows, then reset it to them.
+     * Returns a description of every status or day whose totals disagreed.
+     */
+    public synchronized List<String> reconcile(List<Entry> actualEntries) {
+        List<String> differences = new ArrayList<>();
+        if (!loaded) {
+            load(actualEntries);
+            return differences;
+        }
+
+        ReceivablesLedger actual = new ReceivablesLedger();
+        actual.load(actualEntries);
+
+        for (Invoice.PaymentStatus status : Invoice.PaymentStatus.values()) {
+            int i = status.ordinal();
+            if (countByStatus[i] != actual.countByStatus[i] || !sameAmount(amountByStatus[i], actual.amountByStatus[i])) {
+                differences.add(String.format("%s: ledger %d/%.2f, invoices %d/%.2f", status,
+                        countByStatus[i], amountByStatus[i], actual.countByStatus[i], actual.amountByStatus[i]));
+            }
+        }
+
+        TreeSet<LocalDate> days = new TreeSet<>(amountByDay.keySet());
+        days.addAll(actual.amountByDay.keySet());
+        for (LocalDate day : days) {
+            double[] expected = amountByDay.getOrDefault(day, new double[STATUS_COUNT]);
+            double[] found = actual.amountByDay.getOrDefault(day, new double[STATUS_COUNT]);
+            for (Invoice.PaymentStatus status : Invoice.PaymentStatus.values()) {
+                int i = status.ordinal();
+                if (!sameAmount(expected[i], found[i])) {
+                    differences.add(String.format("%s %s: ledger %.2f, invoices %.2f", day, status, expected[i], found[i]));
+                }
+            }
+        }
+
+        System.arraycopy(actual.amountByStatus, 0, amountByStatus, 0, STATUS_COUNT);
+        System.arraycopy(actual.countByStatus, 0, countByStatus, 0, STATUS_COUNT);
+        amountByDay.clear();
+        amountByDay.putAll(actual.amountByDay);
+        return differences;
+    }
+
+    private void apply(Invoice.PaymentStatus status, LocalDate day, long count, double amount) {
+        if (status == null) {
+            status = Invoice.PaymentStatus.PENDING;
+        }
+        int i = status.ordinal();
+        amountByStatus[i] += amount;
+        countByStatus[i] += count;
+        amountByDay.computeIfAbsent(day, d -> new double[STATUS_COUNT])[i] += amount;
+    }
+
+    private static boolean sameAmount(double a, double b) {
+        return Math.abs(a - b) < 0.005;
+    }
+
+    private static LocalDate toDay(Date date) {
+        if (date == null) {
+            return LocalDate.now();
+        }
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
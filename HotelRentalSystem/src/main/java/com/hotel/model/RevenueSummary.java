@@ -0,0 +1,101 @@
+package com.hotel.model;
+
+import java.util.Date;
+
+/**
+ * Model class representing aggregated invoice totals for one period and payment status
+ */
+public class RevenueSummary {
+    
+    /**
+     * Aggregation period; the format is the Oracle TRUNC date format for the period start
+     */
+    public enum Period {
+        DAY("DD"), WEEK("IW"), MONTH("MM");
+        
+        private final String truncFormat;
+        
+        Period(String truncFormat) {
+            this.truncFormat = truncFormat;
+        }
+        
+        public String getTruncFormat() {
+            return truncFormat;
+        }
+    }
+    
+    private Date periodStart;
+    private Period period;
+    private Invoice.PaymentStatus paymentStatus;
+    private long invoiceCount;
+    private double totalAmount;
+    
+    // Constructors
+    public RevenueSummary() {
+    }
+    
+    public RevenueSummary(Date periodStart, Period period, Invoice.PaymentStatus paymentStatus,
+                          long invoiceCount, double totalAmount) {
+        this.periodStart = periodStart;
+        this.period = period;
+        this.paymentStatus = paymentStatus;
+        this.invoiceCount = invoiceCount;
+        this.totalAmount = totalAmount;
+    }
+    
+    // Getters and Setters
+    public Date getPeriodStart() {
+        return periodStart;
+    }
+    
+    public void setPeriodStart(Date periodStart) {
+        this.periodStart = periodStart;
+    }
+    
+    public Period getPeriod() {
+        return period;
+    }
+    
+    public void setPeriod(Period period) {
+        this.period = period;
+    }
+    
+    public Invoice.PaymentStatus getPaymentStatus() {
+        return paymentStatus;
+    }
+    
+    public void setPaymentStatus(Invoice.PaymentStatus paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+    
+    public long getInvoiceCount() {
+        return invoiceCount;
+    }
+    
+    public void setInvoiceCount(long invoiceCount) {
+        this.invoiceCount = invoiceCount;
+    }
+    
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
+    public String getFormattedTotalAmount() {
+        return String.format("$%.2f", totalAmount);
+    }
+    
+    @Override
+    public String toString() {
+        return "RevenueSummary{" +
+                "periodStart=" + periodStart +
+                ", period=" + period +
+                ", paymentStatus=" + paymentStatus +
+                ", invoiceCount=" + invoiceCount +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
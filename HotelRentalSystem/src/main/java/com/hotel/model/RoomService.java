@@ -34,6 +34,16 @@ public class RoomService {
         this.basePrice = basePrice;
     }
     
+    public RoomService(RoomService other) {
+        this.serviceId = other.serviceId;
+        this.serviceName = other.serviceName;
+        this.serviceDescription = other.serviceDescription;
+        this.serviceCategory = other.serviceCategory;
+        this.basePrice = other.basePrice;
+        this.isActive = other.isActive;
+        this.createdDate = other.createdDate;
+    }
+    
     // Getters and Setters
     public int getServiceId() {
         return serviceId;
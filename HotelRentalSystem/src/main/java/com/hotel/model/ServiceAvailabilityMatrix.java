@@ -0,0 +1,68 @@
+package com.hotel.model;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory copy of room_service_assignments: for every room type, a bit set of the
+ * assigned service IDs and a bit set of the complimentary ones, plus the room type of every room.
+ *
+ * A matrix is filled once while loading and is read-only after it has been published,
+ * so lookups need no locking and no database access.
+ */
+public class ServiceAvailabilityMatrix {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final Map<Integer, BitSet> availableByRoomType = new HashMap<>();
+    private final Map<Integer, BitSet> complimentaryByRoomType = new HashMap<>();
+    private final Map<Integer, Integer> roomTypeByRoom = new HashMap<>();
+
+    /**
+     * Add one assignment row (only while loading)
+     */
+    public void addAssignment(int roomTypeId, int serviceId, boolean complimentary) {
+        availableByRoomType.computeIfAbsent(roomTypeId, id -> new BitSet()).set(serviceId);
+        if (complimentary) {
+            complimentaryByRoomType.computeIfAbsent(roomTypeId, id -> new BitSet()).set(serviceId);
+        }
+    }
+
+    /**
+     * Add one room to room type mapping (only while loading)
+     */
+    public void addRoom(int roomId, int roomTypeId) {
+        roomTypeByRoom.put(roomId, roomTypeId);
+    }
+
+    public boolean isAvailable(int roomTypeId, int serviceId) {
+        return serviceId >= 0 && availableByRoomType.getOrDefault(roomTypeId, EMPTY).get(serviceId);
+    }
+
+    public boolean isComplimentary(int roomTypeId, int serviceId) {
+        return serviceId >= 0 && complimentaryByRoomType.getOrDefault(roomTypeId, EMPTY).get(serviceId);
+    }
+
+    /**
+     * Room type of a room, or null if the room was not known when the matrix was loaded
+     */
+    public Integer getRoomTypeId(int roomId) {
+        return roomTypeByRoom.get(roomId);
+    }
+
+    /**
+     * Service IDs assigned to a room type (a copy, safe to modify)
+     */
+    public BitSet getServiceIds(int roomTypeId) {
+        return (BitSet) availableByRoomType.getOrDefault(roomTypeId, EMPTY).clone();
+    }
+
+    public int getAssignmentCount() {
+        int count = 0;
+        for (BitSet services : availableByRoomType.values()) {
+            count += services.cardinality();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,134 @@
+package com.hotel.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable snapshot of the room service catalog, indexed by service ID, by category
+ * and by lowercase service name (for prefix lookups).
+ *
+ * A snapshot is never modified after construction; a change produces a new snapshot
+ * ({@link #withService(RoomService)}) that the owner publishes in one reference swap, so
+ * readers need no locking. The snapshot keeps its own copies of the services and hands
+ * out copies, so callers may edit what they receive without affecting other readers.
+ */
+public class ServiceCatalog {
+
+    private static final Comparator<RoomService> BY_NAME =
+            Comparator.comparing(RoomService::getServiceName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparingInt(RoomService::getServiceId);
+
+    private final Map<Integer, RoomService> byId = new HashMap<>();
+    private final List<RoomService> all = new ArrayList<>();
+    private final List<RoomService> active = new ArrayList<>();
+    private final Map<RoomService.ServiceCategory, List<RoomService>> activeByCategory =
+            new EnumMap<>(RoomService.ServiceCategory.class);
+    private final NavigableMap<String, List<RoomService>> activeByLowerName = new TreeMap<>();
+    private final List<String> activeCategories = new ArrayList<>();
+
+    public ServiceCatalog(Collection<RoomService> services) {
+        for (RoomService service : services) {
+            all.add(new RoomService(service));
+        }
+        all.sort(BY_NAME);
+
+        TreeSet<String> categories = new TreeSet<>();
+        for (RoomService service : all) {
+            byId.put(service.getServiceId(), service);
+            if (!service.isActive()) continue;
+
+            active.add(service);
+            if (service.getServiceCategory() != null) {
+                activeByCategory.computeIfAbsent(service.getServiceCategory(), c -> new ArrayList<>()).add(service);
+                categories.add(service.getServiceCategory().name());
+            }
+            activeByLowerName.computeIfAbsent(lowerName(service), n -> new ArrayList<>()).add(service);
+        }
+        activeCategories.addAll(categories);
+    }
+
+    /**
+     * New snapshot with the given service added or replaced (matched by ID)
+     */
+    public ServiceCatalog withService(RoomService service) {
+        Map<Integer, RoomService> services = new HashMap<>(byId);
+        services.put(service.getServiceId(), service);
+        return new ServiceCatalog(services.values());
+    }
+
+    public RoomService findById(int serviceId) {
+        RoomService service = byId.get(serviceId);
+        return service != null ? new RoomService(service) : null;
+    }
+
+    // All services (active and inactive), ordered by name
+    public List<RoomService> getAll() {
+        return copyOf(all);
+    }
+
+    // Active services, ordered by name
+    public List<RoomService> getActive() {
+        return copyOf(active);
+    }
+
+    // Active services in a category, ordered by name
+    public List<RoomService> findByCategory(RoomService.ServiceCategory category) {
+        return copyOf(activeByCategory.getOrDefault(category, Collections.emptyList()));
+    }
+
+    // Active services whose name starts with the prefix (case-insensitive), ordered by name
+    public List<RoomService> findByNamePrefix(String prefix) {
+        String lower = prefix.toLowerCase();
+        List<RoomService> matches = new ArrayList<>();
+        for (List<RoomService> services : activeByLowerName.subMap(lower, true, lower + Character.MAX_VALUE, false).values()) {
+            for (RoomService service : services) {
+                matches.add(new RoomService(service));
+            }
+        }
+        return matches;
+    }
+
+    // Active services whose name (and optionally description) contains the term (case-insensitive)
+    public List<RoomService> search(String term, boolean includeDescription) {
+        String lower = term.toLowerCase();
+        List<RoomService> matches = new ArrayList<>();
+        for (RoomService service : active) {
+            if (lowerName(service).contains(lower)
+                    || (includeDescription && service.getServiceDescription() != null
+                        && service.getServiceDescription().toLowerCase().contains(lower))) {
+                matches.add(new RoomService(service));
+            }
+        }
+        return matches;
+    }
+
+    // Distinct categories of active services, sorted
+    public List<String> getActiveCategories() {
+        return new ArrayList<>(activeCategories);
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    private static String lowerName(RoomService service) {
+        return service.getServiceName() != null ? service.getServiceName().toLowerCase() : "";
+    }
+
+    private static List<RoomService> copyOf(List<RoomService> services) {
+        List<RoomService> copies = new ArrayList<>(services.size());
+        for (RoomService service : services) {
+            copies.add(new RoomService(service));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,362 @@
+package com.hotel.model;
+
+import com.hotel.dao.ServiceUsageDAO;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind queue for service charges.
+ *
+ * A posted charge is appended to a local journal file and acknowledged immediately; a
+ * background flusher coalesces queued charges into batched database writes
+ * ({@link ServiceUsageDAO#addServiceUsageBatch(List)}) and then marks them done in the journal.
+ * Charges still in the journal when the application stops are replayed on the next start.
+ *
+ * Every posting carries a unique reference that is written into its usage row in the same
+ * transaction, so a batch that is retried, or replayed after a crash between the database commit
+ * and the journal acknowledgement, is not charged twice. A batch that fails to reach the database
+ * is retried with a growing delay until it goes through; only postings the database rejects
+ * (unknown booking, inactive service, ...) are copied to the dead-letter file next to the journal.
+ *
+ * Journal lines are "P|seq|bookingId|customerId|serviceId|quantity|postedMillis|reference" for a
+ * posting and "A|seq" once it has been written, rejected or dead-lettered. The file is truncated
+ * whenever the queue drains completely.
+ */
+public class ServiceChargeQueue {
+
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long LINGER_MILLIS = 200;
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60000;
+
+    private static class PendingCharge {
+        final long sequence;
+        final ServiceUsage usage;
+        final String record;
+
+        PendingCharge(long sequence, ServiceUsage usage, String record) {
+            this.sequence = sequence;
+            this.usage = usage;
+            this.record = record;
+        }
+    }
+
+    private final ServiceUsageDAO serviceUsageDAO;
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private final LinkedBlockingQueue<PendingCharge> queue = new LinkedBlockingQueue<>();
+    private final List<Consumer<ServicePostingResult>> listeners = new CopyOnWriteArrayList<>();
+    private final Object journalLock = new Object();
+
+    private FileChannel journal;
+    private long nextSequence = 1;
+    private int pendingCount;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // Metrics
+    private volatile long lastFlushLatencyMillis;
+    private volatile long totalFlushLatencyMillis;
+    private volatile long flushCount;
+    private volatile long postedCount;
+    private volatile long rejectedCount;
+    private volatile long deadLetterCount;
+
+    public ServiceChargeQueue(ServiceUsageDAO serviceUsageDAO, File journalFile) {
+        this.serviceUsageDAO = serviceUsageDAO;
+        this.journalPath = journalFile.toPath();
+        this.deadLetterPath = journalPath.resolveSibling(journalPath.getFileName() + ".dead");
+    }
+
+    /**
+     * Open the journal, re-queue charges that were never flushed and start the flusher
+     */
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        for (PendingCharge charge : replayJournal()) {
+            queue.add(charge);
+            nextSequence = Math.max(nextSequence, charge.sequence + 1);
+        }
+        synchronized (journalLock) {
+            pendingCount = queue.size();
+        }
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "service-charge-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue a charge; returns as soon as it is durable in the journal
+     */
+    public long post(long bookingId, int customerId, int serviceId, int quantity) throws IOException {
+        ServiceUsage usage = new ServiceUsage();
+        usage.setBookingId(bookingId);
+        usage.setCustomerId(customerId);
+        usage.setServiceId(serviceId);
+        usage.setQuantity(quantity);
+        usage.setUsageDate(new Date());
+        usage.setPostingReference(UUID.randomUUID().toString());
+
+        synchronized (journalLock) {
+            if (!running) {
+                throw new IllegalStateException("Service charge queue is not running");
+            }
+            long sequence = nextSequence++;
+            String record = "P|" + sequence + "|" + bookingId + "|" + customerId + "|" + serviceId
+                    + "|" + quantity + "|" + usage.getUsageDate().getTime() + "|" + usage.getPostingReference();
+            appendToJournal(record);
+            queue.add(new PendingCharge(sequence, usage, record));
+            pendingCount++;
+            return sequence;
+        }
+    }
+
+    /**
+     * Stop the flusher after writing what is queued, waiting at most timeoutMillis.
+     * Anything left unwritten stays in the journal for the next start.
+     */
+    public void shutdown(long timeoutMillis) {
+        Thread thread;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            thread = flusher;
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing service charge journal: " + e.getMessage());
+            }
+        }
+    }
+
+    // Receives the outcome of every flushed charge (called on the flusher thread)
+    public void addListener(Consumer<ServicePostingResult> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ServicePostingResult> listener) {
+        listeners.remove(listener);
+    }
+
+    // Charges posted but not yet acknowledged, including the batch being flushed
+    public int getQueueDepth() {
+        synchronized (journalLock) {
+            return pendingCount;
+        }
+    }
+
+    public long getLastFlushLatencyMillis() {
+        return lastFlushLatencyMillis;
+    }
+
+    public double getAverageFlushLatencyMillis() {
+        long flushes = flushCount;
+        return flushes == 0 ? 0.0 : (double) totalFlushLatencyMillis / flushes;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getPostedCount() {
+        return postedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getDeadLetterCount() {
+        return deadLetterCount;
+    }
+
+    private void runFlusher() {
+        List<PendingCharge> batch = new ArrayList<>();
+        int attempts = 0;
+        long retryDelay = MIN_RETRY_DELAY_MILLIS;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    PendingCharge first = queue.poll(LINGER_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    // Give a burst of postings a moment to arrive so they share one round trip
+                    Thread.sleep(LINGER_MILLIS);
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                }
+
+                flush(batch);
+                batch.clear();
+                attempts = 0;
+                retryDelay = MIN_RETRY_DELAY_MILLIS;
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (SQLException | IOException e) {
+                // Connection and journal failures are transient: keep the batch and try again, backing
+                // off so an outage is not hammered. It stays in the journal if the queue is shut down.
+                System.err.println("Service charge flush failed (attempt " + ++attempts + "), retrying in "
+                        + retryDelay + " ms: " + e.getMessage());
+                if (!running) break;
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException ie) {
+                    if (!running) break;
+                }
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void flush(List<PendingCharge> batch) throws SQLException, IOException {
+        List<ServiceUsage> postings = new ArrayList<>(batch.size());
+        for (PendingCharge charge : batch) {
+            postings.add(charge.usage);
+        }
+
+        long start = System.currentTimeMillis();
+        List<ServicePostingResult> results = serviceUsageDAO.addServiceUsageBatch(postings);
+        long latency = System.currentTimeMillis() - start;
+
+        // Results come back in posting order
+        List<PendingCharge> rejected = new ArrayList<>();
+        List<ServicePostingResult> rejectedResults = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (!results.get(i).isSuccess()) {
+                rejected.add(batch.get(i));
+                rejectedResults.add(results.get(i));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            deadLetter(rejected, rejectedResults);
+        }
+        acknowledge(batch);
+
+        lastFlushLatencyMillis = latency;
+        totalFlushLatencyMillis += latency;
+        flushCount++;
+        for (ServicePostingResult result : results) {
+            if (result.isSuccess()) {
+                postedCount++;
+            } else {
+                rejectedCount++;
+            }
+            for (Consumer<ServicePostingResult> listener : listeners) {
+                listener.accept(result);
+            }
+        }
+    }
+
+    // Keep a copy of postings the database rejected in the dead-letter file (in journal format, each
+    // preceded by the reason, for manual correction and replay). Written before the batch is
+    // acknowledged so a crash in between cannot lose them.
+    private void deadLetter(List<PendingCharge> charges, List<ServicePostingResult> results) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        Date now = new Date();
+        for (int i = 0; i < charges.size(); i++) {
+            lines.append("# ").append(now).append(": ").append(results.get(i).getMessage()).append('\n');
+            lines.append(charges.get(i).record).append('\n');
+        }
+        Files.write(deadLetterPath, lines.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+
+        System.err.println("Moved " + charges.size() + " rejected service charge(s) to " + deadLetterPath);
+        deadLetterCount += charges.size();
+    }
+
+    // Mark a batch done in the journal, truncating it once nothing is pending
+    private void acknowledge(List<PendingCharge> batch) throws IOException {
+        synchronized (journalLock) {
+            StringBuilder acks = new StringBuilder();
+            for (PendingCharge charge : batch) {
+                acks.append("A|").append(charge.sequence).append('\n');
+            }
+            appendToJournal(acks.substring(0, acks.length() - 1));
+            pendingCount -= batch.size();
+            if (pendingCount == 0) {
+                journal.truncate(0);
+                journal.force(false);
+            }
+        }
+    }
+
+    private void appendToJournal(String lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((lines + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+    }
+
+    // Postings in the journal without a matching acknowledgement, in posting order
+    private List<PendingCharge> replayJournal() throws IOException {
+        Map<Long, PendingCharge> pending = new LinkedHashMap<>();
+        if (!Files.exists(journalPath)) {
+            return new ArrayList<>();
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|");
+                try {
+                    if (parts.length == 8 && "P".equals(parts[0])) {
+                        ServiceUsage usage = new ServiceUsage();
+                        usage.setBookingId(Long.parseLong(parts[2]));
+                        usage.setCustomerId(Integer.parseInt(parts[3]));
+                        usage.setServiceId(Integer.parseInt(parts[4]));
+                        usage.setQuantity(Integer.parseInt(parts[5]));
+                        usage.setUsageDate(new Date(Long.parseLong(parts[6])));
+                        usage.setPostingReference(parts[7]);
+                        long sequence = Long.parseLong(parts[1]);
+                        pending.put(sequence, new PendingCharge(sequence, usage, line));
+                    } else if (parts.length == 2 && "A".equals(parts[0])) {
+                        pending.remove(Long.parseLong(parts[1]));
+                    }
+                } catch (NumberFormatException e) {
+                    // Torn write from a crash; the posting was never acknowledged to the caller
+                    System.err.println("Skipping corrupt service charge journal line: " + line);
+                }
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            System.out.println("Replaying " + pending.size() + " unflushed service charge(s) from " + journalPath);
+        }
+        return new ArrayList<>(pending.values());
+    }
+}
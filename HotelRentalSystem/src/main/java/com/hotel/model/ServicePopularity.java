@@ -0,0 +1,89 @@
+package com.hotel.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Model class representing how often a service was used within a time window
+ */
+public class ServicePopularity {
+    
+    /**
+     * Calendar windows the popularity rankings are kept for
+     */
+    public enum Window {
+        TODAY, WEEK, MONTH;
+        
+        // First day of the window that contains the given day
+        public LocalDate getStart(LocalDate today) {
+            switch (this) {
+                case WEEK:
+                    return today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return today.withDayOfMonth(1);
+                default:
+                    return today;
+            }
+        }
+    }
+    
+    private int serviceId;
+    private String serviceName;
+    private long totalQuantity;
+    private long usageCount;
+    
+    // Constructors
+    public ServicePopularity() {
+    }
+    
+    public ServicePopularity(int serviceId, String serviceName, long totalQuantity, long usageCount) {
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.totalQuantity = totalQuantity;
+        this.usageCount = usageCount;
+    }
+    
+    // Getters and Setters
+    public int getServiceId() {
+        return serviceId;
+    }
+    
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+    
+    public String getServiceName() {
+        return serviceName != null ? serviceName : "Service #" + serviceId;
+    }
+    
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+    
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+    
+    public void setTotalQuantity(long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+    
+    public long getUsageCount() {
+        return usageCount;
+    }
+    
+    public void setUsageCount(long usageCount) {
+        this.usageCount = usageCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "ServicePopularity{" +
+                "serviceId=" + serviceId +
+                ", serviceName='" + serviceName + '\'' +
+                ", totalQuantity=" + totalQuantity +
+                ", usageCount=" + usageCount +
+                '}';
+    }
+}
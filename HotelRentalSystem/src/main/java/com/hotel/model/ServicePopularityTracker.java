@@ -0,0 +1,111 @@
+package com.hotel.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Running per-day usage counters for every service, kept for the last RETENTION_DAYS days.
+ *
+ * The catalog holds tens of services, so exact counters are cheaper than a sketch: a ranking
+ * for this week or month merges at most a month of day buckets and sorts the few services
+ * that appear in them. Counters are seeded from one grouped query and then advanced as
+ * usages are posted; anything changed behind the tracker's back is fixed by reloading.
+ */
+public class ServicePopularityTracker {
+
+    // Covers a whole month plus the days of a week that started in the previous month
+    public static final int RETENTION_DAYS = 62;
+
+    /**
+     * One aggregate row: usage of a service on one day
+     */
+    public static class Entry {
+        private final LocalDate day;
+        private final int serviceId;
+        private final long quantity;
+        private final long usageCount;
+
+        public Entry(LocalDate day, int serviceId, long quantity, long usageCount) {
+            this.day = day;
+            this.serviceId = serviceId;
+            this.quantity = quantity;
+            this.usageCount = usageCount;
+        }
+
+        public LocalDate getDay() { return day; }
+        public int getServiceId() { return serviceId; }
+        public long getQuantity() { return quantity; }
+        public long getUsageCount() { return usageCount; }
+    }
+
+    // [0] = total quantity, [1] = number of usages
+    private final NavigableMap<LocalDate, Map<Integer, long[]>> countsByDay = new TreeMap<>();
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Start over from the given per-day counts
+     */
+    public synchronized void load(List<Entry> entries) {
+        countsByDay.clear();
+        for (Entry entry : entries) {
+            add(entry.getDay(), entry.getServiceId(), entry.getQuantity(), entry.getUsageCount());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Forget all counts; the next read reloads them
+     */
+    public synchronized void invalidate() {
+        countsByDay.clear();
+        loaded = false;
+    }
+
+    /**
+     * Count one posted usage
+     */
+    public synchronized void record(LocalDate day, int serviceId, int quantity) {
+        if (!loaded) return;
+        add(day, serviceId, quantity, 1);
+        countsByDay.headMap(day.minusDays(RETENTION_DAYS), false).clear();
+    }
+
+    /**
+     * The k most used services (by quantity) from the given day onwards
+     */
+    public synchronized List<ServicePopularity> topK(LocalDate from, int k) {
+        Map<Integer, long[]> totals = new HashMap<>();
+        for (Map<Integer, long[]> day : countsByDay.tailMap(from, true).values()) {
+            for (Map.Entry<Integer, long[]> entry : day.entrySet()) {
+                long[] total = totals.computeIfAbsent(entry.getKey(), id -> new long[2]);
+                total[0] += entry.getValue()[0];
+                total[1] += entry.getValue()[1];
+            }
+        }
+
+        List<ServicePopularity> ranking = new ArrayList<>(totals.size());
+        for (Map.Entry<Integer, long[]> entry : totals.entrySet()) {
+            ranking.add(new ServicePopularity(entry.getKey(), null, entry.getValue()[0], entry.getValue()[1]));
+        }
+        ranking.sort(Comparator.comparingLong(ServicePopularity::getTotalQuantity).reversed()
+                .thenComparingInt(ServicePopularity::getServiceId));
+        return ranking.size() > k ? new ArrayList<>(ranking.subList(0, k)) : ranking;
+    }
+
+    private void add(LocalDate day, int serviceId, long quantity, long usages) {
+        long[] counts = countsByDay.computeIfAbsent(day, d -> new HashMap<>())
+                .computeIfAbsent(serviceId, id -> new long[2]);
+        counts[0] += quantity;
+        counts[1] += usages;
+    }
+}
@@ -0,0 +1,64 @@
+package com.hotel.model;
+
+/**
+ * Outcome of posting one service charge in a batch
+ */
+public class ServicePostingResult {
+    
+    private final ServiceUsage usage;
+    private final boolean success;
+    private final String message;
+    private final boolean duplicate;
+    
+    private ServicePostingResult(ServiceUsage usage, boolean success, String message, boolean duplicate) {
+        this.usage = usage;
+        this.success = success;
+        this.message = message;
+        this.duplicate = duplicate;
+    }
+    
+    public static ServicePostingResult posted(ServiceUsage usage) {
+        return new ServicePostingResult(usage, true, "Service added successfully", false);
+    }
+    
+    // The posting reference was already written by an earlier attempt; nothing was inserted this time
+    public static ServicePostingResult alreadyPosted(ServiceUsage usage) {
+        return new ServicePostingResult(usage, true, "Service charge already posted", true);
+    }
+    
+    public static ServicePostingResult rejected(ServiceUsage usage, String message) {
+        return new ServicePostingResult(usage, false, message, false);
+    }
+    
+    // The posted charge; on success it carries the usage ID, price and complimentary flag
+    public ServiceUsage getUsage() {
+        return usage;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+    
+    public long getUsageId() {
+        return success ? usage.getUsageId() : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "ServicePostingResult{" +
+                "bookingId=" + usage.getBookingId() +
+                ", serviceId=" + usage.getServiceId() +
+                ", quantity=" + usage.getQuantity() +
+                ", success=" + success +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.hotel.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices service charges in Java. The rules restate those of the add_service_usage PL/SQL
+ * procedure, which is a separate implementation, so a change to either must be made to both:
+ * the booking must be CONFIRMED or CHECKED_IN and belong to the customer, the service must
+ * be active, the unit price is its base price, and a service marked complimentary for the
+ * booking's room type costs nothing. VIP discounts apply to room prices only, never to services.
+ *
+ * An engine works on one catalog snapshot and one availability matrix, so a whole cart is
+ * priced without database access.
+ */
+public class ServicePricingEngine {
+    
+    private final ServiceCatalog catalog;
+    private final ServiceAvailabilityMatrix availability;
+    
+    public ServicePricingEngine(ServiceCatalog catalog, ServiceAvailabilityMatrix availability) {
+        this.catalog = catalog;
+        this.availability = availability;
+    }
+    
+    /**
+     * Reason the procedure would reject a charge on this booking, or null if it is accepted
+     */
+    public static String validateBooking(String bookingStatus, int bookingCustomerId, int customerId) {
+        if (!"CONFIRMED".equals(bookingStatus) && !"CHECKED_IN".equals(bookingStatus)) {
+            return "Services can only be added to confirmed or active bookings";
+        }
+        if (bookingCustomerId != customerId) {
+            return "Customer does not match booking";
+        }
+        return null;
+    }
+    
+    public static double lineTotal(double unitPrice, int quantity, boolean complimentary) {
+        return complimentary ? 0.0 : unitPrice * quantity;
+    }
+    
+    /**
+     * Price one service for a room type (null if the room type is unknown)
+     */
+    public ServiceQuote quote(Integer roomTypeId, int serviceId, int quantity) {
+        RoomService service = catalog.findById(serviceId);
+        if (service == null || !service.isActive()) {
+            return ServiceQuote.rejected(serviceId, quantity, "Service not found or inactive");
+        }
+        boolean complimentary = roomTypeId != null && availability.isComplimentary(roomTypeId, serviceId);
+        double unitPrice = service.getBasePrice();
+        return ServiceQuote.priced(service, quantity, unitPrice, complimentary,
+                lineTotal(unitPrice, quantity, complimentary));
+    }
+    
+    /**
+     * Price a cart of service ID to quantity for one booking, one quote per line in cart order.
+     * Every line is rejected when the booking itself would be.
+     */
+    public List<ServiceQuote> quoteCart(Booking booking, int customerId, Integer roomTypeId,
+                                        Map<Integer, Integer> cart) {
+        String bookingError = validateBooking(booking.getBookingStatus(), booking.getCustomerId(), customerId);
+        List<ServiceQuote> quotes = new ArrayList<>(cart.size());
+        for (Map.Entry<Integer, Integer> line : cart.entrySet()) {
+            if (bookingError != null) {
+                quotes.add(ServiceQuote.rejected(line.getKey(), line.getValue(), bookingError));
+            } else {
+                quotes.add(quote(roomTypeId, line.getKey(), line.getValue()));
+            }
+        }
+        return quotes;
+    }
+    
+    /**
+     * Sum of the priced lines
+     */
+    public static double total(List<ServiceQuote> quotes) {
+        double total = 0.0;
+        for (ServiceQuote quote : quotes) {
+            if (quote.isPriced()) {
+                total += quote.getLineTotal();
+            }
+        }
+        return total;
+    }
+}
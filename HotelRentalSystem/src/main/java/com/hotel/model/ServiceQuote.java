@@ -0,0 +1,86 @@
+package com.hotel.model;
+
+/**
+ * Price of one cart line as add_service_usage would charge it, or the reason it would be rejected
+ */
+public class ServiceQuote {
+    
+    private final int serviceId;
+    private final String serviceName;
+    private final int quantity;
+    private final double unitPrice;
+    private final boolean complimentary;
+    private final double lineTotal;
+    private final String message;
+    
+    private ServiceQuote(int serviceId, String serviceName, int quantity, double unitPrice,
+                         boolean complimentary, double lineTotal, String message) {
+        this.serviceId = serviceId;
+        this.serviceName = serviceName;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.complimentary = complimentary;
+        this.lineTotal = lineTotal;
+        this.message = message;
+    }
+    
+    public static ServiceQuote priced(RoomService service, int quantity, double unitPrice,
+                                      boolean complimentary, double lineTotal) {
+        return new ServiceQuote(service.getServiceId(), service.getServiceName(), quantity,
+                unitPrice, complimentary, lineTotal, null);
+    }
+    
+    public static ServiceQuote rejected(int serviceId, int quantity, String message) {
+        return new ServiceQuote(serviceId, null, quantity, 0.0, false, 0.0, message);
+    }
+    
+    public int getServiceId() {
+        return serviceId;
+    }
+    
+    public String getServiceName() {
+        return serviceName;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    // Unit price recorded on the usage row (the base price, also for complimentary lines)
+    public double getUnitPrice() {
+        return unitPrice;
+    }
+    
+    public boolean isComplimentary() {
+        return complimentary;
+    }
+    
+    public double getLineTotal() {
+        return lineTotal;
+    }
+    
+    public boolean isPriced() {
+        return message == null;
+    }
+    
+    // Rejection reason, null when priced
+    public String getMessage() {
+        return message;
+    }
+    
+    public String getFormattedLineTotal() {
+        return String.format("$%.2f", lineTotal);
+    }
+    
+    @Override
+    public String toString() {
+        return "ServiceQuote{" +
+                "serviceId=" + serviceId +
+                ", quantity=" + quantity +
+                ", unitPrice=" + unitPrice +
+                ", complimentary=" + complimentary +
+                ", lineTotal=" + lineTotal +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package com.hotel.model;
+
+import java.util.Date;
+
+/**
+ * Model class representing one customer's service spend for one month and service category
+ */
+public class ServiceSpend {
+    
+    private int customerId;
+    private Date month;
+    private RoomService.ServiceCategory category;
+    private long totalQuantity;
+    private double totalCost;
+    private long usageCount;
+    
+    // Constructors
+    public ServiceSpend() {
+    }
+    
+    public ServiceSpend(int customerId, Date month, RoomService.ServiceCategory category,
+                        long totalQuantity, double totalCost, long usageCount) {
+        this.customerId = customerId;
+        this.month = month;
+        this.category = category;
+        this.totalQuantity = totalQuantity;
+        this.totalCost = totalCost;
+        this.usageCount = usageCount;
+    }
+    
+    // Getters and Setters
+    public int getCustomerId() {
+        return customerId;
+    }
+    
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+    
+    // First day of the month
+    public Date getMonth() {
+        return month;
+    }
+    
+    public void setMonth(Date month) {
+        this.month = month;
+    }
+    
+    public RoomService.ServiceCategory getCategory() {
+        return category;
+    }
+    
+    public void setCategory(RoomService.ServiceCategory category) {
+        this.category = category;
+    }
+    
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+    
+    public void setTotalQuantity(long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+    
+    public double getTotalCost() {
+        return totalCost;
+    }
+    
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+    
+    public long getUsageCount() {
+        return usageCount;
+    }
+    
+    public void setUsageCount(long usageCount) {
+        this.usageCount = usageCount;
+    }
+    
+    public String getFormattedTotalCost() {
+        return String.format("$%.2f", totalCost);
+    }
+    
+    @Override
+    public String toString() {
+        return "ServiceSpend{" +
+                "customerId=" + customerId +
+                ", month=" + month +
+                ", category=" + category +
+                ", totalQuantity=" + totalQuantity +
+                ", totalCost=" + totalCost +
+                ", usageCount=" + usageCount +
+                '}';
+    }
+}
@@ -17,6 +17,7 @@ public class ServiceUsage {
     private double totalCost;
     private boolean isComplimentary;
     private String notes;
+    private String postingReference;
     
     // Related objects
     private Customer customer;
@@ -131,6 +132,15 @@ public class ServiceUsage {
         this.notes = notes;
     }
     
+    // Idempotency key of a queued posting; a usage row with the same reference is never inserted twice
+    public String getPostingReference() {
+        return postingReference;
+    }
+    
+    public void setPostingReference(String postingReference) {
+        this.postingReference = postingReference;
+    }
+    
     public Customer getCustomer() {
         return customer;
     }
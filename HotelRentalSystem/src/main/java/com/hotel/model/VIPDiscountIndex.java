@@ -0,0 +1,201 @@
+package com.hotel.model;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * In-memory map of customer ID to active VIP level, discount percentage and membership end date.
+ *
+ * Entries live in parallel primitive arrays addressed by open addressing on the customer ID,
+ * so a discount lookup allocates nothing and never touches the database. The arrays are
+ * replaced as a whole on every change (memberships change rarely, lookups happen on every
+ * booking), which keeps reads lock-free: a reader always sees one complete table.
+ */
+public class VIPDiscountIndex {
+
+    // Membership end date of lifetime members
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final VIPMember.MembershipLevel[] LEVELS = VIPMember.MembershipLevel.values();
+
+    /**
+     * One active membership as loaded from vip_members
+     */
+    public static class Entry {
+        private final int customerId;
+        private final VIPMember.MembershipLevel level;
+        private final double discountPercentage;
+        private final java.sql.Date endDate;
+
+        public Entry(int customerId, VIPMember.MembershipLevel level, double discountPercentage, java.sql.Date endDate) {
+            this.customerId = customerId;
+            this.level = level;
+            this.discountPercentage = discountPercentage;
+            this.endDate = endDate;
+        }
+
+        public int getCustomerId() { return customerId; }
+        public VIPMember.MembershipLevel getLevel() { return level; }
+        public double getDiscountPercentage() { return discountPercentage; }
+        public java.sql.Date getEndDate() { return endDate; }
+    }
+
+    // Open-addressing table; customer ID 0 marks an empty slot
+    private static final class Table {
+        final int[] customerIds;
+        final byte[] levels;
+        final double[] discounts;
+        final long[] expiryDays;
+        final int size;
+
+        Table(int capacity, int size) {
+            customerIds = new int[capacity];
+            levels = new byte[capacity];
+            discounts = new double[capacity];
+            expiryDays = new long[capacity];
+            this.size = size;
+        }
+
+        int slot(int customerId) {
+            int mask = customerIds.length - 1;
+            int i = (customerId * 0x9E3779B9) >>> 1 & mask;
+            while (customerIds[i] != 0 && customerIds[i] != customerId) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        void set(int slot, int customerId, byte level, double discount, long expiryDay) {
+            customerIds[slot] = customerId;
+            levels[slot] = level;
+            discounts[slot] = discount;
+            expiryDays[slot] = expiryDay;
+        }
+    }
+
+    private volatile Table table = new Table(16, 0);
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the contents with the given memberships; for a customer listed twice the higher discount wins
+     */
+    public synchronized void load(List<Entry> entries) {
+        Table fresh = new Table(capacityFor(entries.size()), 0);
+        int size = 0;
+        for (Entry entry : entries) {
+            if (entry.getCustomerId() <= 0 || entry.getLevel() == null) continue;
+            int slot = fresh.slot(entry.getCustomerId());
+            if (fresh.customerIds[slot] == 0) {
+                size++;
+            } else if (fresh.discounts[slot] >= entry.getDiscountPercentage()) {
+                continue;
+            }
+            fresh.set(slot, entry.getCustomerId(), (byte) entry.getLevel().ordinal(),
+                    entry.getDiscountPercentage(), toEpochDay(entry.getEndDate()));
+        }
+        table = copy(fresh, size, capacityFor(size));
+        loaded = true;
+    }
+
+    /**
+     * Add or replace a customer's active membership
+     */
+    public synchronized void put(int customerId, VIPMember.MembershipLevel level, double discountPercentage,
+                                 java.sql.Date endDate) {
+        if (!loaded || customerId <= 0 || level == null) return;
+        Table current = table;
+        boolean present = current.customerIds[current.slot(customerId)] == customerId;
+        int size = present ? current.size : current.size + 1;
+        Table next = copy(current, size, capacityFor(size));
+        next.set(next.slot(customerId), customerId, (byte) level.ordinal(), discountPercentage, toEpochDay(endDate));
+        table = next;
+    }
+
+    /**
+     * Drop a customer's membership (deactivated)
+     */
+    public synchronized void remove(int customerId) {
+        if (!loaded) return;
+        Table current = table;
+        if (current.customerIds[current.slot(customerId)] != customerId) return;
+        Table next = new Table(capacityFor(current.size - 1), current.size - 1);
+        for (int i = 0; i < current.customerIds.length; i++) {
+            int id = current.customerIds[i];
+            if (id != 0 && id != customerId) {
+                next.set(next.slot(id), id, current.levels[i], current.discounts[i], current.expiryDays[i]);
+            }
+        }
+        table = next;
+    }
+
+    /**
+     * Forget every membership; the owner reloads the index on its next lookup
+     */
+    public synchronized void invalidate() {
+        loaded = false;
+        table = new Table(16, 0);
+    }
+
+    /**
+     * Discount percentage for a customer today (0 when not a member or the membership has ended)
+     */
+    public double getDiscountPercentage(int customerId) {
+        return getDiscountPercentage(customerId, today());
+    }
+
+    public double getDiscountPercentage(int customerId, long epochDay) {
+        Table current = table;
+        int slot = current.slot(customerId);
+        if (current.customerIds[slot] != customerId || epochDay > current.expiryDays[slot]) {
+            return 0.0;
+        }
+        return current.discounts[slot];
+    }
+
+    /**
+     * Membership level of a customer, or null when not an active member
+     */
+    public VIPMember.MembershipLevel getLevel(int customerId) {
+        Table current = table;
+        int slot = current.slot(customerId);
+        return current.customerIds[slot] == customerId ? LEVELS[current.levels[slot]] : null;
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    private static Table copy(Table source, int size, int capacity) {
+        Table next = new Table(capacity, size);
+        for (int i = 0; i < source.customerIds.length; i++) {
+            int id = source.customerIds[i];
+            if (id != 0) {
+                next.set(next.slot(id), id, source.levels[i], source.discounts[i], source.expiryDays[i]);
+            }
+        }
+        return next;
+    }
+
+    // Power of two with the table at most half full
+    private static int capacityFor(int size) {
+        int capacity = 16;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static long toEpochDay(java.sql.Date date) {
+        return date != null ? date.toLocalDate().toEpochDay() : NO_EXPIRY;
+    }
+
+    private static long today() {
+        long now = System.currentTimeMillis();
+        return Math.floorDiv(now + ZONE.getOffset(now), MILLIS_PER_DAY);
+    }
+}
@@ -0,0 +1,104 @@
+package com.hotel.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory set of customers who qualify for VIP (active, spending at least the Gold
+ * threshold) but hold no active membership.
+ *
+ * The set is seeded once from the customers table and then kept current one customer at a
+ * time as spending or membership changes (check-out, customer edits, VIP writes), so the
+ * eligibility report and promotion flows read a ready list instead of scanning customers.
+ */
+public class VIPEligibleSet {
+
+    private static final Comparator<Customer> BY_SPENDING =
+            Comparator.comparingDouble(Customer::getTotalSpent).reversed()
+                    .thenComparingInt(Customer::getCustomerId);
+
+    private final Map<Integer, Customer> eligible = new HashMap<>();
+    // Sorted view, rebuilt on the first read after a change
+    private List<Customer> sorted;
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace the contents with the given eligible customers
+     */
+    public synchronized void load(List<Customer> customers) {
+        eligible.clear();
+        for (Customer customer : customers) {
+            eligible.put(customer.getCustomerId(), customer);
+        }
+        sorted = null;
+        loaded = true;
+    }
+
+    /**
+     * Re-evaluate one customer after their spending, status or membership changed
+     */
+    public synchronized void evaluate(Customer customer, boolean activeVipMember) {
+        if (!loaded) return;
+        if (isEligible(customer, activeVipMember)) {
+            eligible.put(customer.getCustomerId(), customer);
+        } else {
+            eligible.remove(customer.getCustomerId());
+        }
+        sorted = null;
+    }
+
+    /**
+     * Drop a customer (they became a VIP member or were removed)
+     */
+    public synchronized void remove(int customerId) {
+        if (!loaded) return;
+        if (eligible.remove(customerId) != null) {
+            sorted = null;
+        }
+    }
+
+    /**
+     * Forget the contents; the next read reloads from the database
+     */
+    public synchronized void invalidate() {
+        eligible.clear();
+        sorted = null;
+        loaded = false;
+    }
+
+    public static boolean isEligible(Customer customer, boolean activeVipMember) {
+        return customer.isActive() && !activeVipMember
+                && customer.getTotalSpent() >= VIPMembershipEngine.GOLD_THRESHOLD;
+    }
+
+    /**
+     * Eligible customers, highest spending first (a copy, safe to modify)
+     */
+    public synchronized List<Customer> getEligible() {
+        if (sorted == null) {
+            sorted = new ArrayList<>(eligible.values());
+            sorted.sort(BY_SPENDING);
+        }
+        return new ArrayList<>(sorted);
+    }
+
+    /**
+     * Eligible customers spending at least the given amount, highest spending first
+     */
+    public synchronized List<Customer> getEligible(double spendingThreshold) {
+        List<Customer> customers = getEligible();
+        customers.removeIf(customer -> customer.getTotalSpent() < spendingThreshold);
+        return customers;
+    }
+
+    public synchronized int size() {
+        return eligible.size();
+    }
+}
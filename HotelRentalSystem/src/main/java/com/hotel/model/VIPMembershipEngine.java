@@ -0,0 +1,164 @@
+package com.hotel.model;
+
+import java.time.LocalDate;
+
+/**
+ * Decides VIP promotions and renewals from customer spending.
+ *
+ * The DAO scans customers and their active memberships once and hands each row to
+ * {@link #evaluate(Candidate)}; the engine itself does no database access, so the same
+ * decisions back both the dry-run preview and the batched apply.
+ *
+ * Promotions: customers without an active membership whose spending reaches a level join
+ * at that level for one term, and members whose spending has grown past their level are
+ * upgraded. Renewals: memberships that have reached their end date are extended by one term
+ * at the level their spending now earns (possibly lower), or expired if it no longer
+ * reaches Gold. Memberships without an end date never come up for renewal.
+ */
+public class VIPMembershipEngine {
+
+    // Spending thresholds (same as the VIP eligibility report)
+    public static final double GOLD_THRESHOLD = 5000.0;
+    public static final double PLATINUM_THRESHOLD = 10000.0;
+    public static final double DIAMOND_THRESHOLD = 15000.0;
+
+    public static final int TERM_MONTHS = 12;
+
+    public enum Action {
+        PROMOTE, UPGRADE, RENEW, EXPIRE
+    }
+
+    /**
+     * One scanned row: a customer and their active membership, if any
+     */
+    public static class Candidate {
+        private final int customerId;
+        private final String customerName;
+        private final double totalSpent;
+        private final boolean customerActive;
+        private final int vipId;
+        private final VIPMember.MembershipLevel currentLevel;
+        private final LocalDate endDate;
+
+        public Candidate(int customerId, String customerName, double totalSpent, boolean customerActive,
+                         int vipId, VIPMember.MembershipLevel currentLevel, LocalDate endDate) {
+            this.customerId = customerId;
+            this.customerName = customerName;
+            this.totalSpent = totalSpent;
+            this.customerActive = customerActive;
+            this.vipId = vipId;
+            this.currentLevel = currentLevel;
+            this.endDate = endDate;
+        }
+
+        public int getCustomerId() { return customerId; }
+        public String getCustomerName() { return customerName; }
+        public double getTotalSpent() { return totalSpent; }
+        public boolean isCustomerActive() { return customerActive; }
+        public int getVipId() { return vipId; }
+        public VIPMember.MembershipLevel getCurrentLevel() { return currentLevel; }
+        public LocalDate getEndDate() { return endDate; }
+        public boolean isMember() { return vipId > 0; }
+    }
+
+    /**
+     * One planned membership change
+     */
+    public static class Change {
+        private final Action action;
+        private final Candidate candidate;
+        private final VIPMember.MembershipLevel newLevel;
+        private final LocalDate newEndDate;
+
+        Change(Action action, Candidate candidate, VIPMember.MembershipLevel newLevel, LocalDate newEndDate) {
+            this.action = action;
+            this.candidate = candidate;
+            this.newLevel = newLevel;
+            this.newEndDate = newEndDate;
+        }
+
+        public Action getAction() { return action; }
+        public int getCustomerId() { return candidate.getCustomerId(); }
+        public String getCustomerName() { return candidate.getCustomerName(); }
+        public double getTotalSpent() { return candidate.getTotalSpent(); }
+        public int getVipId() { return candidate.getVipId(); }
+        public VIPMember.MembershipLevel getOldLevel() { return candidate.getCurrentLevel(); }
+        public VIPMember.MembershipLevel getNewLevel() { return newLevel; }
+        public LocalDate getNewEndDate() { return newEndDate; }
+
+        public double getNewDiscountPercentage() {
+            return newLevel != null ? VIPMember.getDefaultDiscountForLevel(newLevel) : 0.0;
+        }
+    }
+
+    private final boolean promotions;
+    private final boolean renewals;
+    private final LocalDate today;
+
+    public VIPMembershipEngine(boolean promotions, boolean renewals, LocalDate today) {
+        this.promotions = promotions;
+        this.renewals = renewals;
+        this.today = today;
+    }
+
+    public static VIPMembershipEngine promotions() {
+        return new VIPMembershipEngine(true, false, LocalDate.now());
+    }
+
+    public static VIPMembershipEngine renewals() {
+        return new VIPMembershipEngine(false, true, LocalDate.now());
+    }
+
+    public boolean includesPromotions() {
+        return promotions;
+    }
+
+    public boolean includesRenewals() {
+        return renewals;
+    }
+
+    /**
+     * Level earned by a spending total, or null below the Gold threshold
+     */
+    public static VIPMember.MembershipLevel levelForSpend(double totalSpent) {
+        if (totalSpent >= DIAMOND_THRESHOLD) {
+            return VIPMember.MembershipLevel.DIAMOND;
+        } else if (totalSpent >= PLATINUM_THRESHOLD) {
+            return VIPMember.MembershipLevel.PLATINUM;
+        } else if (totalSpent >= GOLD_THRESHOLD) {
+            return VIPMember.MembershipLevel.GOLD;
+        }
+        return null;
+    }
+
+    /**
+     * Change for one scanned row, or null if it needs none
+     */
+    public Change evaluate(Candidate candidate) {
+        VIPMember.MembershipLevel earned = levelForSpend(candidate.getTotalSpent());
+
+        if (!candidate.isMember()) {
+            if (promotions && earned != null && candidate.isCustomerActive()) {
+                return new Change(Action.PROMOTE, candidate, earned, today.plusMonths(TERM_MONTHS));
+            }
+            return null;
+        }
+
+        if (candidate.getCurrentLevel() == null) {
+            // Unknown level in the row; leave it for someone to fix by hand
+            return null;
+        }
+        LocalDate endDate = candidate.getEndDate();
+        if (renewals && endDate != null && !endDate.isAfter(today)) {
+            if (earned == null || !candidate.isCustomerActive()) {
+                return new Change(Action.EXPIRE, candidate, null, endDate);
+            }
+            return new Change(Action.RENEW, candidate, earned, today.plusMonths(TERM_MONTHS));
+        }
+
+        if (promotions && earned != null && earned.compareTo(candidate.getCurrentLevel()) > 0) {
+            return new Change(Action.UPGRADE, candidate, earned, endDate);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.hotel.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a VIP promotion/renewal run: the planned changes, how many were applied
+ * and how fast the scan and the apply phase went. A dry run has the plan but applies nothing.
+ */
+public class VIPMembershipRun {
+
+    private final boolean dryRun;
+    private final String runBy;
+    private final List<VIPMembershipEngine.Change> changes = new ArrayList<>();
+    private final List<VIPMembershipEngine.Change> applied = new ArrayList<>();
+    private long scannedRows;
+    private long scanMillis;
+    private long applyMillis;
+    private int batchCount;
+
+    public VIPMembershipRun(boolean dryRun, String runBy) {
+        this.dryRun = dryRun;
+        this.runBy = runBy;
+    }
+
+    /**
+     * Non-dry run that will apply exactly the changes a preview planned
+     */
+    public static VIPMembershipRun fromPreview(VIPMembershipRun preview, String runBy) {
+        VIPMembershipRun run = new VIPMembershipRun(false, runBy);
+        run.changes.addAll(preview.changes);
+        run.recordScan(preview.scannedRows, preview.scanMillis);
+        return run;
+    }
+
+    public void addChange(VIPMembershipEngine.Change change) {
+        changes.add(change);
+    }
+
+    public void recordScan(long rows, long millis) {
+        this.scannedRows = rows;
+        this.scanMillis = millis;
+    }
+
+    public void recordApplied(VIPMembershipEngine.Change change) {
+        applied.add(change);
+    }
+
+    public void recordBatch() {
+        batchCount++;
+    }
+
+    public void setApplyMillis(long applyMillis) {
+        this.applyMillis = applyMillis;
+    }
+
+    public boolean isDryRun() { return dryRun; }
+    public String getRunBy() { return runBy; }
+    public List<VIPMembershipEngine.Change> getChanges() { return new ArrayList<>(changes); }
+    public List<VIPMembershipEngine.Change> getAppliedChanges() { return new ArrayList<>(applied); }
+    public long getScannedRows() { return scannedRows; }
+    public long getScanMillis() { return scanMillis; }
+    public long getApplyMillis() { return applyMillis; }
+    public int getBatchCount() { return batchCount; }
+
+    public int getPlannedCount(VIPMembershipEngine.Action action) {
+        int count = 0;
+        for (VIPMembershipEngine.Change change : changes) {
+            if (change.getAction() == action) count++;
+        }
+        return count;
+    }
+
+    public int getAppliedCount(VIPMembershipEngine.Action action) {
+        int count = 0;
+        for (VIPMembershipEngine.Change change : applied) {
+            if (change.getAction() == action) count++;
+        }
+        return count;
+    }
+
+    public int getAppliedCount() {
+        return applied.size();
+    }
+
+    public double getScanRowsPerSecond() {
+        return rate(scannedRows, scanMillis);
+    }
+
+    public double getApplyRowsPerSecond() {
+        return rate(getAppliedCount(), applyMillis);
+    }
+
+    /**
+     * Multi-line summary for confirmation and result dialogs
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(dryRun ? "Preview (nothing changed yet)\n" : "Run by " + runBy + "\n");
+        summary.append(String.format("Scanned %d rows in %d ms (%.0f rows/s)%n",
+                scannedRows, scanMillis, getScanRowsPerSecond()));
+        for (VIPMembershipEngine.Action action : VIPMembershipEngine.Action.values()) {
+            int planned = getPlannedCount(action);
+            if (planned == 0) continue;
+            if (dryRun) {
+                summary.append(String.format("%-8s %d%n", action, planned));
+            } else {
+                summary.append(String.format("%-8s %d of %d%n", action, getAppliedCount(action), planned));
+            }
+        }
+        if (changes.isEmpty()) {
+            summary.append("No membership changes needed\n");
+        }
+        if (!dryRun && !changes.isEmpty()) {
+            summary.append(String.format("Applied %d rows in %d batch(es), %d ms (%.0f rows/s)%n",
+                    getAppliedCount(), batchCount, applyMillis, getApplyRowsPerSecond()));
+        }
+        return summary.toString();
+    }
+
+    private static double rate(long rows, long millis) {
+        return millis > 0 ? rows * 1000.0 / millis : rows;
+    }
+}
@@ -0,0 +1,153 @@
+package com.hotel.model;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Tier × month aggregate of bookings, room revenue, discounts given and service spend.
+ *
+ * Each month holds one small fixed grid (three VIP levels plus customers without a membership,
+ * four measures), so a report for any period sums a handful of months instead of scanning
+ * members and bookings. Cells are seeded from grouped queries and then advanced as bookings
+ * and service charges are posted; anything changed behind the cube's back is fixed by reloading.
+ *
+ * Seeding runs outside the lock, so the cube keeps a generation that every invalidation, and
+ * every change recorded while it is not loaded, moves on. A seed is published only if the
+ * generation is still the one it started from; otherwise it may have missed a change and the
+ * loader has to read again.
+ */
+public class VIPTierCube {
+
+    private static final VIPMember.MembershipLevel[] LEVELS = VIPMember.MembershipLevel.values();
+
+    // Last tier row holds customers without an active membership
+    private static final int NON_VIP = LEVELS.length;
+    private static final int TIERS = LEVELS.length + 1;
+
+    public enum Measure {
+        BOOKINGS, REVENUE, DISCOUNT, SERVICE_SPEND
+    }
+
+    private static final int MEASURES = Measure.values().length;
+
+    /**
+     * One aggregate row: a measure of one tier in one month
+     */
+    public static class Entry {
+        private final YearMonth month;
+        private final VIPMember.MembershipLevel level;
+        private final Measure measure;
+        private final double value;
+
+        public Entry(YearMonth month, VIPMember.MembershipLevel level, Measure measure, double value) {
+            this.month = month;
+            this.level = level;
+            this.measure = measure;
+            this.value = value;
+        }
+
+        public YearMonth getMonth() { return month; }
+        public VIPMember.MembershipLevel getLevel() { return level; }
+        public Measure getMeasure() { return measure; }
+        public double getValue() { return value; }
+    }
+
+    private final NavigableMap<YearMonth, double[][]> cellsByMonth = new TreeMap<>();
+    private boolean loaded;
+    private long generation;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    // Read before seeding and passed back to load
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Start over from the given aggregate rows, provided nothing changed since expectedGeneration
+     * was read. Returns false, leaving the cube as it is, if the rows may be stale.
+     */
+    public synchronized boolean load(List<Entry> entries, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        cellsByMonth.clear();
+        for (Entry entry : entries) {
+            add(entry.getMonth(), entry.getLevel(), entry.getMeasure(), entry.getValue());
+        }
+        loaded = true;
+        return true;
+    }
+
+    /**
+     * Forget all cells; the next read reloads them
+     */
+    public synchronized void invalidate() {
+        cellsByMonth.clear();
+        loaded = false;
+        generation++;
+    }
+
+    /**
+     * Count a new booking (sign 1) or take back a cancelled one (sign -1)
+     */
+    public synchronized void recordBooking(VIPMember.MembershipLevel level, YearMonth month,
+                                           double amount, double discount, int sign) {
+        if (!loaded) {
+            // A seed in progress may not have seen this change
+            generation++;
+            return;
+        }
+        add(month, level, Measure.BOOKINGS, sign);
+        add(month, level, Measure.REVENUE, sign * amount);
+        add(month, level, Measure.DISCOUNT, sign * discount);
+    }
+
+    /**
+     * Add posted service charges
+     */
+    public synchronized void recordServiceSpend(VIPMember.MembershipLevel level, YearMonth month, double amount) {
+        if (!loaded) {
+            generation++;
+            return;
+        }
+        add(month, level, Measure.SERVICE_SPEND, amount);
+    }
+
+    /**
+     * Totals per tier for the months from..to inclusive, VIP levels first and non-members last
+     */
+    public synchronized List<VIPTierStats> summarize(YearMonth from, YearMonth to) {
+        double[][] totals = new double[TIERS][MEASURES];
+        if (!from.isAfter(to)) {
+            for (double[][] cells : cellsByMonth.subMap(from, true, to, true).values()) {
+                for (int tier = 0; tier < TIERS; tier++) {
+                    for (int measure = 0; measure < MEASURES; measure++) {
+                        totals[tier][measure] += cells[tier][measure];
+                    }
+                }
+            }
+        }
+
+        List<VIPTierStats> stats = new ArrayList<>(TIERS);
+        for (int tier = 0; tier < TIERS; tier++) {
+            double[] row = totals[tier];
+            stats.add(new VIPTierStats(tier == NON_VIP ? null : LEVELS[tier],
+                    Math.round(row[Measure.BOOKINGS.ordinal()]),
+                    row[Measure.REVENUE.ordinal()],
+                    row[Measure.DISCOUNT.ordinal()],
+                    row[Measure.SERVICE_SPEND.ordinal()]));
+        }
+        return stats;
+    }
+
+    private void add(YearMonth month, VIPMember.MembershipLevel level, Measure measure, double value) {
+        double[][] cells = cellsByMonth.computeIfAbsent(month, m -> new double[TIERS][MEASURES]);
+        cells[level != null ? level.ordinal() : NON_VIP][measure.ordinal()] += value;
+    }
+}
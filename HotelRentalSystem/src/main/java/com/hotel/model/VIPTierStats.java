@@ -0,0 +1,51 @@
+package com.hotel.model;
+
+/**
+ * Booking and service totals of one VIP tier over a period (level null = customers without an active membership)
+ */
+public class VIPTierStats {
+
+    private final VIPMember.MembershipLevel level;
+    private final long bookingCount;
+    private final double revenue;
+    private final double discountGiven;
+    private final double serviceSpend;
+
+    public VIPTierStats(VIPMember.MembershipLevel level, long bookingCount, double revenue,
+                        double discountGiven, double serviceSpend) {
+        this.level = level;
+        this.bookingCount = bookingCount;
+        this.revenue = revenue;
+        this.discountGiven = discountGiven;
+        this.serviceSpend = serviceSpend;
+    }
+
+    public VIPMember.MembershipLevel getLevel() { return level; }
+    public long getBookingCount() { return bookingCount; }
+    public double getRevenue() { return revenue; }
+    public double getDiscountGiven() { return discountGiven; }
+    public double getServiceSpend() { return serviceSpend; }
+
+    public boolean isVIP() {
+        return level != null;
+    }
+
+    public String getTierName() {
+        return level != null ? level.name() : "NON-VIP";
+    }
+
+    public double getAverageBookingValue() {
+        return bookingCount > 0 ? revenue / bookingCount : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return "VIPTierStats{" +
+                "tier=" + getTierName() +
+                ", bookings=" + bookingCount +
+                ", revenue=" + revenue +
+                ", discountGiven=" + discountGiven +
+                ", serviceSpend=" + serviceSpend +
+                '}';
+    }
+}
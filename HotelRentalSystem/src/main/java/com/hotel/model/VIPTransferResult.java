@@ -0,0 +1,87 @@
+package com.hotel.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk VIP import or export: rows read and written, rejected rows with
+ * their line numbers, and throughput. Only the first MAX_REPORTED_ERRORS rejections
+ * are kept; the count covers all of them.
+ */
+public class VIPTransferResult {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    public enum Direction {
+        IMPORT, EXPORT
+    }
+
+    private final Direction direction;
+    private final List<String> errors = new ArrayList<>();
+    private long rowsRead;
+    private long rowsWritten;
+    private long rejectedCount;
+    private int batchCount;
+    private long elapsedMillis;
+
+    public VIPTransferResult(Direction direction) {
+        this.direction = direction;
+    }
+
+    public void recordRead() {
+        rowsRead++;
+    }
+
+    public void recordWritten(long rows) {
+        rowsWritten += rows;
+    }
+
+    public void recordRejected(int lineNumber, String reason) {
+        rejectedCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public void recordBatch() {
+        batchCount++;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public Direction getDirection() { return direction; }
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsWritten() { return rowsWritten; }
+    public long getRejectedCount() { return rejectedCount; }
+    public List<String> getErrors() { return new ArrayList<>(errors); }
+    public int getBatchCount() { return batchCount; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public double getRowsPerSecond() {
+        long rows = direction == Direction.IMPORT ? rowsRead : rowsWritten;
+        return elapsedMillis > 0 ? rows * 1000.0 / elapsedMillis : rows;
+    }
+
+    /**
+     * Multi-line summary for result dialogs
+     */
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        if (direction == Direction.IMPORT) {
+            summary.append(String.format("Read %d rows: %d imported in %d batch(es), %d rejected%n",
+                    rowsRead, rowsWritten, batchCount, rejectedCount));
+        } else {
+            summary.append(String.format("Exported %d members%n", rowsWritten));
+        }
+        summary.append(String.format("%d ms (%.0f rows/s)%n", elapsedMillis, getRowsPerSecond()));
+        for (String error : errors) {
+            summary.append(error).append('\n');
+        }
+        if (rejectedCount > errors.size()) {
+            summary.append(String.format("... and %d more%n", rejectedCount - errors.size()));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.hotel.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared scheduler for periodic background jobs (reconciliation, sweeps).
+ * Jobs run on daemon threads so they never keep the application alive.
+ */
+public class BackgroundScheduler {
+
+    private static final int POOL_SIZE = 2;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static ScheduledExecutorService executor;
+
+    private BackgroundScheduler() {
+    }
+
+    /**
+     * Run a job periodically; failures are logged and do not cancel later runs
+     */
+    public static synchronized ScheduledFuture<?> scheduleAtFixedRate(String name, Runnable job,
+                                                                      long initialDelay, long period, TimeUnit unit) {
+        return executor().scheduleAtFixedRate(guarded(name, job), initialDelay, period, unit);
+    }
+
+    /**
+     * Run a job once after a delay (jobs that pick their own next run time reschedule themselves)
+     */
+    public static synchronized ScheduledFuture<?> schedule(String name, Runnable job, long delay, TimeUnit unit) {
+        return executor().schedule(guarded(name, job), delay, unit);
+    }
+
+    private static ScheduledExecutorService executor() {
+        if (executor == null || executor.isShutdown()) {
+            executor = Executors.newScheduledThreadPool(POOL_SIZE, runnable -> {
+                Thread thread = new Thread(runnable, "hotel-background-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static Runnable guarded(String name, Runnable job) {
+        return () -> {
+            try {
+                job.run();
+            } catch (RuntimeException e) {
+                System.err.println("Background job '" + name + "' failed: " + e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Stop all background jobs
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.hotel.util;
+
+import com.hotel.model.Invoice;
+import com.hotel.model.InvoiceLineItem;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Formatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams invoices as plain text into a Writer.
+ *
+ * A single renderer reuses one buffer and one date format for every invoice,
+ * so it can render a single preview or thousands of invoices into one file
+ * without keeping previously rendered invoices in memory.
+ */
+public class InvoiceRenderer implements Consumer<Invoice> {
+
+    private static final String DOUBLE_RULE = "============================================================================\n";
+    private static final String SINGLE_RULE = "----------------------------------------------------------------------------\n";
+
+    // Templates
+    private static final String TITLE_TEMPLATE = "INVOICE %s%n";
+    private static final String FIELD_TEMPLATE = "%-14s %s%n";
+    private static final String ITEM_TEMPLATE = "%-14s %-30s %8s %10s %10s%n";
+    private static final String TOTAL_TEMPLATE = "%64s %11s%n";
+
+    private final Writer out;
+    private final StringBuilder buffer = new StringBuilder(2048);
+    private final Formatter formatter = new Formatter(buffer);
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    private int renderedCount;
+
+    public InvoiceRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Render a single invoice to a String (used for previews and printing)
+     */
+    public static String renderToString(Invoice invoice) {
+        StringWriter writer = new StringWriter(2048);
+        try {
+            new InvoiceRenderer(writer).render(invoice);
+        } catch (IOException e) {
+            // StringWriter never throws
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Render one invoice (header, line items, totals) and write it to the output
+     */
+    public void render(Invoice invoice) throws IOException {
+        buffer.setLength(0);
+
+        if (renderedCount > 0) {
+            buffer.append('\n');
+        }
+
+        String number = invoice.getInvoiceNumber() != null ? invoice.getInvoiceNumber() : "PREVIEW";
+        formatter.format(TITLE_TEMPLATE, number);
+        buffer.append(DOUBLE_RULE);
+        formatter.format(FIELD_TEMPLATE, "Invoice Date:", formatDate(invoice.getInvoiceDate()));
+        formatter.format(FIELD_TEMPLATE, "Due Date:", formatDate(invoice.getDueDate()));
+        formatter.format(FIELD_TEMPLATE, "Customer:", invoice.getCustomerName());
+        if (invoice.getCustomer() != null && invoice.getCustomer().getEmail() != null) {
+            formatter.format(FIELD_TEMPLATE, "Email:", invoice.getCustomer().getEmail());
+        }
+        formatter.format(FIELD_TEMPLATE, "Booking ID:", invoice.getBookingId());
+        formatter.format(FIELD_TEMPLATE, "Status:", invoice.getPaymentStatusDisplay());
+        if (invoice.getPaymentDate() != null) {
+            formatter.format(FIELD_TEMPLATE, "Paid On:", formatDate(invoice.getPaymentDate()));
+        }
+        buffer.append(SINGLE_RULE);
+
+        formatter.format(ITEM_TEMPLATE, "Type", "Description", "Qty", "Unit", "Total");
+        buffer.append(SINGLE_RULE);
+        List<InvoiceLineItem> lineItems = invoice.getLineItems();
+        if (lineItems != null) {
+            for (InvoiceLineItem item : lineItems) {
+                formatter.format(ITEM_TEMPLATE,
+                        item.getItemTypeDisplay(),
+                        truncate(item.getItemDescription(), 30),
+                        item.getFormattedQuantity(),
+                        item.getFormattedUnitPrice(),
+                        item.getFormattedLineTotal());
+            }
+        }
+        buffer.append(SINGLE_RULE);
+
+        formatter.format(TOTAL_TEMPLATE, "Subtotal:", invoice.getFormattedSubtotal());
+        formatter.format(TOTAL_TEMPLATE, "Tax:", invoice.getFormattedTaxAmount());
+        if (invoice.getDiscountAmount() != 0) {
+            formatter.format(TOTAL_TEMPLATE, "Discount:", "-" + invoice.getFormattedDiscountAmount());
+        }
+        formatter.format(TOTAL_TEMPLATE, "TOTAL:", invoice.getFormattedTotalAmount());
+        buffer.append(DOUBLE_RULE);
+
+        out.append(buffer);
+        renderedCount++;
+    }
+
+    /**
+     * Consumer entry point so the renderer can be handed directly to streaming DAO methods
+     */
+    @Override
+    public void accept(Invoice invoice) {
+        try {
+            render(invoice);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public int getRenderedCount() {
+        return renderedCount;
+    }
+
+    private String formatDate(Date date) {
+        return date != null ? dateFormat.format(date) : "N/A";
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= maxLength ? value : value.substring(0, maxLength - 3) + "...";
+    }
+}
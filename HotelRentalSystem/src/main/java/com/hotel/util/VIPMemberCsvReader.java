@@ -0,0 +1,152 @@
+package com.hotel.util;
+
+import com.hotel.model.VIPMember;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses VIP member rows from CSV one at a time.
+ *
+ * Columns are found by header name (the layout written by {@link VIPMemberCsvWriter}); only
+ * customer_id and membership_level are required. A blank discount or benefits field takes the
+ * level's default, a blank start date means today and a blank end date means no end date.
+ * A row that cannot be parsed is returned with an error instead of a member, so one bad line
+ * does not stop an import.
+ */
+public class VIPMemberCsvReader {
+
+    /**
+     * One data row: the parsed member, or the reason it was rejected
+     */
+    public static class Row {
+        private final int lineNumber;
+        private final VIPMember member;
+        private final String error;
+
+        Row(int lineNumber, VIPMember member, String error) {
+            this.lineNumber = lineNumber;
+            this.member = member;
+            this.error = error;
+        }
+
+        public int getLineNumber() { return lineNumber; }
+        public VIPMember getMember() { return member; }
+        public String getError() { return error; }
+        public boolean isValid() { return member != null; }
+    }
+
+    private final CsvReader csv;
+    private final int customerId;
+    private final int membershipLevel;
+    private final int discountPercentage;
+    private final int startDate;
+    private final int endDate;
+    private final int benefits;
+
+    public VIPMemberCsvReader(Reader in) throws IOException {
+        this.csv = new CsvReader(in);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IOException("CSV file is empty");
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = header.size() - 1; i >= 0; i--) {
+            positions.put(header.get(i).trim().toLowerCase(), i);
+        }
+        customerId = position(positions, "customer_id");
+        membershipLevel = position(positions, "membership_level");
+        discountPercentage = position(positions, "discount_percentage");
+        startDate = position(positions, "membership_start_date");
+        endDate = position(positions, "membership_end_date");
+        benefits = position(positions, "benefits");
+        if (customerId < 0 || membershipLevel < 0) {
+            throw new IOException("CSV header must contain customer_id and membership_level");
+        }
+    }
+
+    private static int position(Map<String, Integer> positions, String column) {
+        Integer position = positions.get(column);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Next data row, or null at end of input
+     */
+    public Row next() throws IOException {
+        List<String> record = csv.readRecord();
+        if (record == null) {
+            return null;
+        }
+        int line = csv.getLineNumber();
+        try {
+            return new Row(line, parse(record), null);
+        } catch (IllegalArgumentException e) {
+            return new Row(line, null, e.getMessage());
+        }
+    }
+
+    private VIPMember parse(List<String> record) {
+        int id;
+        try {
+            id = Integer.parseInt(field(record, customerId));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid customer_id '" + field(record, customerId) + "'");
+        }
+
+        VIPMember.MembershipLevel level;
+        try {
+            level = VIPMember.MembershipLevel.valueOf(field(record, membershipLevel).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown membership_level '" + field(record, membershipLevel) + "'");
+        }
+
+        double discount = VIPMember.getDefaultDiscountForLevel(level);
+        String discountField = field(record, discountPercentage);
+        if (!discountField.isEmpty()) {
+            try {
+                discount = Double.parseDouble(discountField);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid discount_percentage '" + discountField + "'");
+            }
+            if (discount < 0 || discount > 100) {
+                throw new IllegalArgumentException("discount_percentage must be between 0 and 100");
+            }
+        }
+
+        Date start = parseDate(record, startDate, "membership_start_date");
+        Date end = parseDate(record, endDate, "membership_end_date");
+        if (start == null) {
+            start = Date.valueOf(LocalDate.now());
+        }
+        if (end != null && !end.after(start)) {
+            throw new IllegalArgumentException("membership_end_date must be after membership_start_date");
+        }
+
+        String benefitsField = field(record, benefits);
+        return new VIPMember(0, id, level, discount, start, end,
+                benefitsField.isEmpty() ? VIPMember.getDefaultBenefitsForLevel(level) : benefitsField, true);
+    }
+
+    private static Date parseDate(List<String> record, int position, String column) {
+        String value = field(record, position);
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Date.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + column + " '" + value + "' (expected yyyy-MM-dd)");
+        }
+    }
+
+    // Trimmed field, or "" when the column is absent or the row is short
+    private static String field(List<String> record, int position) {
+        return position >= 0 && position < record.size() ? record.get(position).trim() : "";
+    }
+}
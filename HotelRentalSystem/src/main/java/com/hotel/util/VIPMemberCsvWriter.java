@@ -0,0 +1,99 @@
+package com.hotel.util;
+
+import com.hotel.model.Customer;
+import com.hotel.model.VIPMember;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Streams VIP members as CSV rows into a Writer, one row per member as it is handed over.
+ *
+ * The header names are the ones {@link VIPMemberCsvReader} looks up, so an export can be
+ * imported again (vip_id and the customer name/email columns are informational and ignored
+ * on import). Dates are written as yyyy-MM-dd.
+ */
+public class VIPMemberCsvWriter implements Consumer<VIPMember> {
+
+    public static final String[] COLUMNS = {
+            "vip_id", "customer_id", "first_name", "last_name", "email", "membership_level",
+            "discount_percentage", "membership_start_date", "membership_end_date", "benefits"
+    };
+
+    private final Writer out;
+    private final StringBuilder buffer = new StringBuilder(256);
+    private int writtenCount;
+
+    public VIPMemberCsvWriter(Writer out) throws IOException {
+        this.out = out;
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) buffer.append(',');
+            buffer.append(COLUMNS[i]);
+        }
+        buffer.append("\r\n");
+        out.write(buffer.toString());
+    }
+
+    /**
+     * Write one member's row
+     */
+    public void write(VIPMember member) throws IOException {
+        Customer customer = member.getCustomer();
+        buffer.setLength(0);
+        buffer.append(member.getVipId()).append(',');
+        buffer.append(member.getCustomerId()).append(',');
+        appendField(customer != null ? customer.getFirstName() : null).append(',');
+        appendField(customer != null ? customer.getLastName() : null).append(',');
+        appendField(customer != null ? customer.getEmail() : null).append(',');
+        appendField(member.getMembershipLevelString()).append(',');
+        buffer.append(member.getDiscountPercentage()).append(',');
+        appendField(member.getMembershipStartDate() != null ? member.getMembershipStartDate().toString() : null).append(',');
+        appendField(member.getMembershipEndDate() != null ? member.getMembershipEndDate().toString() : null).append(',');
+        appendField(member.getBenefits());
+        buffer.append("\r\n");
+        out.write(buffer.toString());
+        writtenCount++;
+    }
+
+    // Consumer entry point for DAO streaming; I/O errors are rethrown unchecked
+    @Override
+    public void accept(VIPMember member) {
+        try {
+            write(member);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public int getWrittenCount() {
+        return writtenCount;
+    }
+
+    // Quote fields containing separators, quotes or line breaks
+    private StringBuilder appendField(String value) {
+        if (value == null) {
+            return buffer;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return buffer.append(value);
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') buffer.append('"');
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+}
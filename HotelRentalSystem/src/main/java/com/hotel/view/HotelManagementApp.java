@@ -1,6 +1,8 @@
 package com.hotel.view;
 
 import com.hotel.model.EnhancedHotelManagementService;
+import com.hotel.model.VIPMembershipRun;
+import com.hotel.util.BackgroundScheduler;
 import com.hotel.util.DatabaseConnection;
 import com.hotel.view.panels.*;
 
@@ -11,6 +13,10 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main application window for Hotel Management System
@@ -43,6 +49,7 @@ public class HotelManagementApp extends JFrame {
             if (DatabaseConnection.testConnection()) {
                 hotelService = new EnhancedHotelManagementService();
                 System.out.println("Database connection established successfully");
+                startBackgroundJobs();
             } else {
                 JOptionPane.showMessageDialog(null, 
                     "Failed to connect to database. Please check your Oracle database configuration.",
@@ -59,6 +66,83 @@ public class HotelManagementApp extends JFrame {
         }
     }
     
+    private void startBackgroundJobs() {
+        try {
+            hotelService.loadServiceAvailability();
+        } catch (SQLException e) {
+            System.err.println("Service availability not preloaded: " + e.getMessage());
+        }
+        
+        try {
+            hotelService.loadVIPDiscounts();
+        } catch (SQLException e) {
+            System.err.println("VIP discounts not preloaded: " + e.getMessage());
+        }
+        
+        // Renew or expire VIP memberships when their end date arrives
+        try {
+            EnhancedHotelManagementService.startMembershipExpiryScheduler();
+        } catch (SQLException e) {
+            System.err.println("VIP membership expiry scheduler not started: " + e.getMessage());
+        }
+        
+        // Write-behind queue for service charges (replays charges left from a previous run)
+        try {
+            EnhancedHotelManagementService.startServiceChargeQueue();
+        } catch (IOException e) {
+            System.err.println("Service charge queue unavailable: " + e.getMessage());
+        }
+        
+        // Reconcile the in-memory receivables totals with the invoices table
+        BackgroundScheduler.scheduleAtFixedRate("receivables-reconciliation", () -> {
+            try {
+                List<String> differences = hotelService.reconcileReceivables();
+                for (String difference : differences) {
+                    System.err.println("Receivables ledger drift: " + difference);
+                }
+            } catch (SQLException e) {
+                System.err.println("Receivables reconciliation failed: " + e.getMessage());
+            }
+        }, 15, 15, TimeUnit.MINUTES);
+        
+        // Flip past-due pending invoices to OVERDUE so overdue lookups are a plain status query
+        BackgroundScheduler.scheduleAtFixedRate("overdue-invoice-sweep", () -> {
+            try {
+                long start = System.currentTimeMillis();
+                int marked = hotelService.sweepOverdueInvoices();
+                if (marked > 0) {
+                    System.out.println("Overdue sweep: " + marked + " invoice(s) marked overdue in " +
+                                     (System.currentTimeMillis() - start) + " ms");
+                }
+            } catch (SQLException e) {
+                System.err.println("Overdue invoice sweep failed: " + e.getMessage());
+            }
+        }, 0, 10, TimeUnit.MINUTES);
+        
+        // Fold appended loyalty point events into customers.loyalty_points
+        BackgroundScheduler.scheduleAtFixedRate("loyalty-ledger-compaction", () -> {
+            try {
+                long start = System.currentTimeMillis();
+                int compacted = hotelService.compactLoyaltyLedger();
+                if (compacted > 0) {
+                    System.out.println("Loyalty compaction: " + compacted + " event(s) folded in " +
+                                     (System.currentTimeMillis() - start) + " ms");
+                }
+            } catch (SQLException e) {
+                System.err.println("Loyalty ledger compaction failed: " + e.getMessage());
+            }
+        }, 1, 5, TimeUnit.MINUTES);
+
+        // Build the VIP tier analytics cube once up front; membership changes drop it and the next query rebuilds it
+        BackgroundScheduler.schedule("vip-analytics-warmup", () -> {
+            try {
+                hotelService.rebuildVIPAnalytics();
+            } catch (SQLException e) {
+                System.err.println("VIP analytics build failed: " + e.getMessage());
+            }
+        }, 0, TimeUnit.MINUTES);
+    }
+    
     private void initializeGUI() {
         setTitle("Hotel Management System - Oracle Edition");
         setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
@@ -276,12 +360,29 @@ public class HotelManagementApp extends JFrame {
     
     private void processVIPRenewals() {
         try {
-            hotelService.promoteTopCustomersToVIP("System");
+            VIPMembershipRun preview = hotelService.previewVIPPromotions();
+            if (preview.getChanges().isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                    "No customers qualify for promotion.\n\n" + preview.getSummary(),
+                    "VIP Promotions",
+                    JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            int option = JOptionPane.showConfirmDialog(this,
+                preview.getSummary() + "\nApply these promotions?",
+                "VIP Promotions",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+            if (option != JOptionPane.YES_OPTION) {
+                return;
+            }
+            
+            VIPMembershipRun run = hotelService.applyVIPMembershipRun(preview, "System");
             JOptionPane.showMessageDialog(this,
-                "Top customers promoted to VIP successfully!",
+                "Top customers promoted to VIP successfully!\n\n" + run.getSummary(),
                 "VIP Promotions",
                 JOptionPane.INFORMATION_MESSAGE);
-            updateStatus("Top customers promoted to VIP");
+            updateStatus("Promoted " + run.getAppliedCount() + " customer(s) to VIP");
             
             // Refresh VIP panel if it's visible
             if (tabbedPane.getSelectedComponent() == vipPanel) {
@@ -343,6 +444,9 @@ public class HotelManagementApp extends JFrame {
         
         if (option == JOptionPane.YES_OPTION) {
             try {
+                EnhancedHotelManagementService.stopMembershipExpiryScheduler();
+                BackgroundScheduler.shutdown();
+                EnhancedHotelManagementService.shutdownServiceChargeQueue(5000);
                 DatabaseConnection.closeAllConnections();
                 updateStatus("Application shutting down...");
                 System.exit(0);
@@ -8,9 +8,13 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Calendar;
+import java.util.function.Consumer;
 
 /**
  * Panel for managing hotel bookings
@@ -716,6 +720,12 @@ class AddServiceUsageDialog extends JDialog {
     private JButton addButton;
     private JTable usageTable;
     private DefaultTableModel usageModel;
+    private JLabel queueStatusLabel;
+    private JLabel priceLabel;
+    // Resolved once when the dialog opens, so the price preview never reaches the database on the EDT
+    private ServicePricingEngine pricingEngine;
+    private Integer roomTypeId;
+    private final Consumer<ServicePostingResult> postingListener = this::onChargePosted;
 
     public AddServiceUsageDialog(JFrame parent, EnhancedHotelManagementService hotelService, Booking booking) {
         super(parent, "Add Service Usage - Booking " + booking.getBookingId(), true);
@@ -738,6 +748,8 @@ class AddServiceUsageDialog extends JDialog {
         form.add(new JLabel("Quantity:"));
         quantitySpinner = new JSpinner(new SpinnerNumberModel(1, 1, 50, 1));
         form.add(quantitySpinner);
+        priceLabel = new JLabel(" ");
+        form.add(priceLabel);
         addButton = new JButton("Add");
         form.add(addButton);
         JButton closeBtn = new JButton("Close");
@@ -751,8 +763,51 @@ class AddServiceUsageDialog extends JDialog {
         usageTable = new JTable(usageModel);
         add(new JScrollPane(usageTable), BorderLayout.CENTER);
 
+        queueStatusLabel = new JLabel(" ");
+        add(queueStatusLabel, BorderLayout.SOUTH);
+
         addButton.addActionListener(e -> addServiceUsage());
         closeBtn.addActionListener(e -> dispose());
+        serviceCombo.addActionListener(e -> updatePricePreview());
+        quantitySpinner.addChangeListener(e -> updatePricePreview());
+
+        ServiceChargeQueue queue = EnhancedHotelManagementService.getServiceChargeQueue();
+        if (queue != null) {
+            queue.addListener(postingListener);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        ServiceChargeQueue queue = EnhancedHotelManagementService.getServiceChargeQueue();
+        if (queue != null) {
+            queue.removeListener(postingListener);
+        }
+        super.dispose();
+    }
+
+    // Called on the queue's flusher thread once a queued charge has been written or rejected
+    private void onChargePosted(ServicePostingResult result) {
+        if (result.getUsage().getBookingId() != booking.getBookingId()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (result.isSuccess()) {
+                loadExistingUsage();
+            } else {
+                JOptionPane.showMessageDialog(this, "Service charge rejected: " + result.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            }
+            updateQueueStatus();
+        });
+    }
+
+    private void updateQueueStatus() {
+        ServiceChargeQueue queue = EnhancedHotelManagementService.getServiceChargeQueue();
+        if (queue != null) {
+            queueStatusLabel.setText(String.format("Pending charges: %d | Last flush: %d ms",
+                    queue.getQueueDepth(), queue.getLastFlushLatencyMillis()));
+        }
     }
 
     private void loadServices() {
@@ -763,15 +818,49 @@ class AddServiceUsageDialog extends JDialog {
                 serviceCombo.addItem("-- No Active Services --");
                 addButton.setEnabled(false);
             } else {
+                // Price every service for this booking at once to flag the complimentary ones
+                Map<Integer, Integer> cart = new LinkedHashMap<>();
                 for (RoomService rs : services) {
-                    serviceCombo.addItem(rs.getServiceId() + " - " + rs.getServiceName() + " ($" + String.format("%.2f", rs.getBasePrice()) + ")");
+                    cart.put(rs.getServiceId(), 1);
+                }
+                pricingEngine = hotelService.getServicePricingEngine();
+                roomTypeId = hotelService.getRoomTypeId(booking.getRoomId());
+                List<ServiceQuote> quotes = pricingEngine.quoteCart(booking, booking.getCustomerId(), roomTypeId, cart);
+                for (int i = 0; i < services.size(); i++) {
+                    RoomService rs = services.get(i);
+                    serviceCombo.addItem(rs.getServiceId() + " - " + rs.getServiceName() + " ($" + String.format("%.2f", rs.getBasePrice()) + ")"
+                            + (quotes.get(i).isComplimentary() ? " [Complimentary]" : ""));
                 }
             }
+            updatePricePreview();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Error loading services: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    // Show what the selected service and quantity will be charged, without a database round trip
+    private void updatePricePreview() {
+        String selected = (String) serviceCombo.getSelectedItem();
+        if (selected == null || selected.startsWith("--") || pricingEngine == null) {
+            priceLabel.setText(" ");
+            return;
+        }
+        try {
+            int serviceId = Integer.parseInt(selected.split(" - ")[0].trim());
+            ServiceQuote quote = pricingEngine.quoteCart(booking, booking.getCustomerId(), roomTypeId,
+                    Collections.singletonMap(serviceId, (Integer) quantitySpinner.getValue())).get(0);
+            if (!quote.isPriced()) {
+                priceLabel.setText(quote.getMessage());
+            } else if (quote.isComplimentary()) {
+                priceLabel.setText("Total: $0.00 (complimentary)");
+            } else {
+                priceLabel.setText("Total: " + quote.getFormattedLineTotal());
+            }
+        } catch (Exception ex) {
+            priceLabel.setText(" ");
+        }
+    }
+
     private void loadExistingUsage() {
         try {
             usageModel.setRowCount(0);
@@ -800,9 +889,15 @@ class AddServiceUsageDialog extends JDialog {
         int serviceId = Integer.parseInt(selected.split(" - ")[0].trim());
         int quantity = (Integer) quantitySpinner.getValue();
         try {
-            long usageId = hotelService.addServiceUsage(booking.getBookingId(), booking.getCustomerId(), serviceId, quantity);
-            JOptionPane.showMessageDialog(this, "Service usage added (ID: " + usageId + ").");
-            loadExistingUsage();
+            if (EnhancedHotelManagementService.getServiceChargeQueue() != null) {
+                // Returns once the charge is journaled; the table refreshes when it is posted
+                hotelService.queueServiceUsage(booking.getBookingId(), booking.getCustomerId(), serviceId, quantity);
+                updateQueueStatus();
+            } else {
+                long usageId = hotelService.addServiceUsage(booking.getBookingId(), booking.getCustomerId(), serviceId, quantity);
+                JOptionPane.showMessageDialog(this, "Service usage added (ID: " + usageId + ").");
+                loadExistingUsage();
+            }
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Error adding usage: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
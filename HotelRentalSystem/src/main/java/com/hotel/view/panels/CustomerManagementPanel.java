@@ -4,6 +4,8 @@ import com.hotel.model.Booking;
 import com.hotel.model.EnhancedHotelManagementService;
 
 import com.hotel.model.Customer;
+import com.hotel.model.LoyaltyPointEvent;
+import com.hotel.model.ServiceUsage;
 import com.hotel.model.VIPMember;
 
 import javax.swing.*;
@@ -11,8 +13,10 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Panel for managing hotel customers
@@ -333,7 +337,8 @@ public class CustomerManagementPanel extends JPanel implements RefreshablePanel
                             customerName + " has been promoted to " + selectedLevel + " VIP member!",
                             "VIP Promotion Successful",
                             JOptionPane.INFORMATION_MESSAGE);
-                    refreshData();
+                    // Only this customer's row changed
+                    tableModel.setValueAt("VIP", modelRow, 8);
                 } else {
                     JOptionPane.showMessageDialog(this, "VIP promotion failed.");
                 }
@@ -373,6 +378,7 @@ public class CustomerManagementPanel extends JPanel implements RefreshablePanel
     private void populateTable(List<Customer> customers) {
         tableModel.setRowCount(0);
         SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
+        Map<Integer, Integer> loyaltyBalances = hotelService.getLoyaltyPointsBalances(customers);
 
         for (Customer customer : customers) {
             // Check VIP status
@@ -393,7 +399,7 @@ public class CustomerManagementPanel extends JPanel implements RefreshablePanel
                     customer.getEmail(),
                     customer.getPhone(),
                     String.format("$%.2f", customer.getTotalSpent()),
-                    customer.getLoyaltyPoints(),
+                    loyaltyBalances.get(customer.getCustomerId()),
                     customer.getRegistrationDate() != null ?
                             dateFormat.format(customer.getRegistrationDate()) : "N/A",
                     vipStatus
@@ -653,6 +659,10 @@ class CustomerDetailsDialog extends JDialog {
         JPanel historyPanel = createBookingHistoryPanel();
         tabbedPane.addTab("Booking History", historyPanel);
 
+        // Loyalty points ledger tab
+        JPanel loyaltyPanel = createLoyaltyPointsPanel();
+        tabbedPane.addTab("Loyalty Points", loyaltyPanel);
+
         add(tabbedPane, BorderLayout.CENTER);
 
         // Button panel
@@ -687,7 +697,7 @@ class CustomerDetailsDialog extends JDialog {
         addDetailRow(panel, gbc, row++, "Registration Date:",
                 customer.getRegistrationDate() != null ? dateFormat.format(customer.getRegistrationDate()) : "N/A");
         addDetailRow(panel, gbc, row++, "Total Spent:", String.format("$%.2f", customer.getTotalSpent()));
-        addDetailRow(panel, gbc, row++, "Loyalty Points:", String.valueOf(customer.getLoyaltyPoints()));
+        addDetailRow(panel, gbc, row++, "Loyalty Points:", String.valueOf(getLoyaltyBalance()));
 
         // Check VIP status
         try {
@@ -725,17 +735,29 @@ class CustomerDetailsDialog extends JDialog {
                 noBookingsLabel.setForeground(Color.BLACK);
                 panel.add(noBookingsLabel, BorderLayout.CENTER);
             } else {
-                String[] columnNames = {"Booking ID", "Room", "Check-In", "Check-Out", "Amount", "Status"};
+                String[] columnNames = {"Booking ID", "Room", "Check-In", "Check-Out", "Amount", "Services", "Status"};
                 DefaultTableModel historyModel = new DefaultTableModel(columnNames, 0);
 
+                // Service usage for every booking in the history in one query
+                List<Long> bookingIds = new ArrayList<>();
+                for (Booking booking : bookings) {
+                    bookingIds.add(booking.getBookingId());
+                }
+                Map<Long, List<ServiceUsage>> usageByBooking = hotelService.getBookingServiceUsage(bookingIds);
+
                 SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
                 for (Booking booking : bookings) {
+                    double servicesTotal = 0;
+                    for (ServiceUsage usage : usageByBooking.get(booking.getBookingId())) {
+                        servicesTotal += usage.getTotalCost();
+                    }
                     Object[] row = {
                             booking.getBookingId(),
                             booking.getRoom() != null ? booking.getRoom().getRoomNumber() : "N/A",
                             dateFormat.format(booking.getCheckInDate()),
                             dateFormat.format(booking.getCheckOutDate()),
                             String.format("$%.2f", booking.getTotalAmount()),
+                            String.format("$%.2f", servicesTotal),
                             booking.getBookingStatusString()
                     };
                     historyModel.addRow(row);
@@ -760,6 +782,87 @@ class CustomerDetailsDialog extends JDialog {
         return panel;
     }
 
+    private JPanel createLoyaltyPointsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+        Font boldFont = getFont().deriveFont(Font.BOLD);
+
+        String[] columnNames = {"Date", "Type", "Points", "Description"};
+        DefaultTableModel ledgerModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JLabel balanceLabel = new JLabel();
+        balanceLabel.setFont(boldFont);
+        balanceLabel.setForeground(Color.BLACK);
+        loadLoyaltyLedger(ledgerModel, balanceLabel);
+
+        JTable ledgerTable = new JTable(ledgerModel);
+        ledgerTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+        ledgerTable.setFont(boldFont);
+        ledgerTable.getTableHeader().setFont(boldFont);
+        panel.add(new JScrollPane(ledgerTable), BorderLayout.CENTER);
+
+        JButton redeemButton = new JButton("Redeem Points");
+        redeemButton.setFont(boldFont);
+        redeemButton.setForeground(Color.BLACK);
+        redeemButton.addActionListener(e -> redeemPoints(ledgerModel, balanceLabel));
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(balanceLabel);
+        topPanel.add(redeemButton);
+        panel.add(topPanel, BorderLayout.NORTH);
+
+        return panel;
+    }
+
+    private void loadLoyaltyLedger(DefaultTableModel ledgerModel, JLabel balanceLabel) {
+        ledgerModel.setRowCount(0);
+        balanceLabel.setText("Balance: " + getLoyaltyBalance() + " points");
+        try {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm");
+            for (LoyaltyPointEvent event : hotelService.getLoyaltyPointHistory(customer.getCustomerId())) {
+                ledgerModel.addRow(new Object[]{
+                        event.getEventDate() != null ? dateFormat.format(event.getEventDate()) : "N/A",
+                        event.getEventType(),
+                        event.getPoints(),
+                        event.getDescription()
+                });
+            }
+        } catch (Exception e) {
+            balanceLabel.setText(balanceLabel.getText() + " (error loading history: " + e.getMessage() + ")");
+        }
+    }
+
+    private void redeemPoints(DefaultTableModel ledgerModel, JLabel balanceLabel) {
+        String input = JOptionPane.showInputDialog(this, "Points to redeem:", "Redeem Loyalty Points",
+                JOptionPane.QUESTION_MESSAGE);
+        if (input == null || input.trim().isEmpty()) {
+            return;
+        }
+        try {
+            int points = Integer.parseInt(input.trim());
+            hotelService.redeemLoyaltyPoints(customer.getCustomerId(), points, null, "Redeemed at front desk");
+            loadLoyaltyLedger(ledgerModel, balanceLabel);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a whole number of points.",
+                    "Invalid Input", JOptionPane.ERROR_MESSAGE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, "Error redeeming points: " + e.getMessage(),
+                    "Redeem Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Ledger balance; customers.loyalty_points lags until the next compaction
+    private int getLoyaltyBalance() {
+        try {
+            return hotelService.getLoyaltyPointsBalance(customer.getCustomerId());
+        } catch (Exception e) {
+            return customer.getLoyaltyPoints();
+        }
+    }
+
     private void addDetailRow(JPanel panel, GridBagConstraints gbc, int row, String label, String value) {
         Font boldFont = getFont().deriveFont(Font.BOLD);
 
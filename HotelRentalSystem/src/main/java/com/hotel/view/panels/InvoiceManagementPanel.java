@@ -2,16 +2,25 @@ package com.hotel.view.panels;
 
 import com.hotel.model.*;
 import com.hotel.model.EnhancedHotelManagementService;
+import com.hotel.util.InvoiceRenderer;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.print.PrinterException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Panel for managing invoices and billing
@@ -338,6 +347,11 @@ public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
         styleButton(customerBillingButton);
         buttonPanel.add(customerBillingButton);
         
+        JButton exportButton = new JButton("Export Month-End Invoices");
+        exportButton.addActionListener(e -> exportMonthEndInvoices());
+        styleButton(exportButton);
+        buttonPanel.add(exportButton);
+        
         panel.add(buttonPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
         
@@ -395,22 +409,48 @@ public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
         try {
             bookingComboBox.removeAllItems();
             List<Booking> bookings = hotelService.getAllBookings();
+            // Only show checked-out bookings without invoices; invoices are checked in one query
+            List<Booking> checkedOut = new ArrayList<>();
+            List<Long> checkedOutIds = new ArrayList<>();
             for (Booking booking : bookings) {
                 String status = booking.getBookingStatus();
                 if (status != null) status = status.trim().toUpperCase();
-                // Only show checked-out bookings without invoices
                 if ("CHECKED_OUT".equals(status)) {
-                    List<Invoice> existingInvoices = hotelService.getBookingInvoices((int) booking.getBookingId());
-                    if (existingInvoices == null || existingInvoices.isEmpty()) {
-                        Customer customer = hotelService.getCustomer(booking.getCustomerId());
-                        String displayText = String.format("Booking %d - %s (Room %d) - $%.2f",
-                                booking.getBookingId(),
-                                customer != null ? customer.getFullName() : "Unknown",
-                                booking.getRoomId(),
-                                booking.getTotalAmount());
-                        bookingComboBox.addItem(displayText);
-                    }
+                    checkedOut.add(booking);
+                    checkedOutIds.add(booking.getBookingId());
+                }
+            }
+            Set<Long> invoiced = hotelService.getInvoicedBookingIds(checkedOutIds);
+            List<Booking> uninvoiced = new ArrayList<>();
+            for (Booking booking : checkedOut) {
+                if (!invoiced.contains(booking.getBookingId())) {
+                    uninvoiced.add(booking);
+                }
+            }
+            
+            // Service charges and customers for all listed bookings, one query each
+            List<Long> bookingIds = new ArrayList<>();
+            List<Integer> customerIds = new ArrayList<>();
+            for (Booking booking : uninvoiced) {
+                bookingIds.add(booking.getBookingId());
+                customerIds.add(booking.getCustomerId());
+            }
+            Map<Long, List<ServiceUsage>> usageByBooking = hotelService.getBookingServiceUsage(bookingIds);
+            Map<Integer, Customer> customers = hotelService.getCustomers(customerIds);
+            
+            for (Booking booking : uninvoiced) {
+                double servicesTotal = 0;
+                for (ServiceUsage usage : usageByBooking.get(booking.getBookingId())) {
+                    servicesTotal += usage.getTotalCost();
                 }
+                Customer customer = customers.get(booking.getCustomerId());
+                String displayText = String.format("Booking %d - %s (Room %d) - $%.2f + $%.2f services",
+                        booking.getBookingId(),
+                        customer != null ? customer.getFullName() : "Unknown",
+                        booking.getRoomId(),
+                        booking.getTotalAmount(),
+                        servicesTotal);
+                bookingComboBox.addItem(displayText);
             }
         } catch (Exception e) {
             showError("Error loading bookings: " + e.getMessage());
@@ -508,46 +548,33 @@ public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
             return;
         }
         
+        long bookingId;
+        double taxRate;
         try {
-            long bookingId = Long.parseLong(selectedBooking.split(" - ")[0].replace("Booking ", ""));
-            double taxRate = Double.parseDouble(taxRateField.getText().trim()) / 100.0;
-            
-            Booking booking = hotelService.getBooking((int) bookingId);
-            Customer customer = hotelService.getCustomer(booking.getCustomerId());
-            List<ServiceUsage> serviceUsage = hotelService.getBookingServiceUsage(bookingId);
-            
-            StringBuilder preview = new StringBuilder();
-            preview.append("INVOICE PREVIEW\n");
-            preview.append("===============\n\n");
-            preview.append("Customer: ").append(customer.getFullName()).append("\n");
-            preview.append("Email: ").append(customer.getEmail()).append("\n");
-            preview.append("Booking ID: ").append(bookingId).append("\n\n");
-            
-            double subtotal = booking.getTotalAmount() + booking.getExtraCharges();
-            for (ServiceUsage usage : serviceUsage) {
-                subtotal += usage.getTotalCost();
-            }
-            
-            double taxAmount = subtotal * taxRate;
-            double total = subtotal + taxAmount;
-            
-            preview.append("Subtotal: $").append(String.format("%.2f", subtotal)).append("\n");
-            preview.append("Tax (").append(String.format("%.1f", taxRate * 100)).append("%): $")
-                   .append(String.format("%.2f", taxAmount)).append("\n");
-            preview.append("Total: $").append(String.format("%.2f", total)).append("\n");
-            
-            JTextArea previewArea = new JTextArea(preview.toString());
-            previewArea.setEditable(false);
-            previewArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-            
-            JScrollPane scrollPane = new JScrollPane(previewArea);
-            scrollPane.setPreferredSize(new Dimension(400, 300));
-            
-            JOptionPane.showMessageDialog(this, scrollPane, "Invoice Preview", JOptionPane.INFORMATION_MESSAGE);
-            
-        } catch (SQLException | NumberFormatException e) {
+            bookingId = Long.parseLong(selectedBooking.split(" - ")[0].replace("Booking ", ""));
+            taxRate = Double.parseDouble(taxRateField.getText().trim()) / 100.0;
+        } catch (NumberFormatException e) {
             showError("Error generating preview: " + e.getMessage());
+            return;
         }
+        
+        // Load and render off the EDT, then show the result
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                Invoice preview = hotelService.buildInvoicePreview(bookingId, taxRate);
+                return InvoiceRenderer.renderToString(preview);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    showInvoiceText(get(), "Invoice Preview", false);
+                } catch (Exception e) {
+                    showError("Error generating preview: " + (e.getCause() != null ? e.getCause() : e).getMessage());
+                }
+            }
+        }.execute();
     }
     
     private void loadSelectedInvoiceLineItems() {
@@ -764,6 +791,19 @@ public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
         report.append("- Pending Payments: $").append(String.format("%.2f", pendingPayments)).append("\n");
         report.append("- Total Outstanding: $").append(String.format("%.2f", totalRevenue + pendingPayments)).append("\n\n");
         
+        // Monthly totals by payment status, aggregated in the database
+        Date yearStart = new Date(System.currentTimeMillis() - 365L * 24 * 60 * 60 * 1000);
+        SimpleDateFormat monthFormat = new SimpleDateFormat("yyyy-MM");
+        report.append("MONTHLY TOTALS (Last 12 months):\n");
+        for (RevenueSummary summary : hotelService.getRevenueSummary(yearStart, endDate, RevenueSummary.Period.MONTH)) {
+            report.append("- ").append(monthFormat.format(summary.getPeriodStart()))
+                  .append(" ").append(summary.getPaymentStatus())
+                  .append(": ").append(summary.getInvoiceCount()).append(" invoice(s), ")
+                  .append(summary.getFormattedTotalAmount())
+                  .append("\n");
+        }
+        report.append("\n");
+        
         // Recent invoices
         List<Invoice> recentInvoices = hotelService.getAllInvoices();
         report.append("RECENT INVOICES (Last 10):\n");
@@ -872,8 +912,88 @@ public class InvoiceManagementPanel extends JPanel implements RefreshablePanel {
             return;
         }
         
-        showInfo("Print functionality would be implemented here");
-        // Implementation would involve generating a printable invoice format
+        long invoiceId = (Long) invoicesTableModel.getValueAt(selectedRow, 0);
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                Invoice invoice = hotelService.getInvoice((int) invoiceId);
+                if (invoice == null) {
+                    throw new SQLException("Invoice not found: " + invoiceId);
+                }
+                invoice.setCustomer(hotelService.getCustomer(invoice.getCustomerId()));
+                return InvoiceRenderer.renderToString(invoice);
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    showInvoiceText(get(), "Print Invoice", true);
+                } catch (Exception e) {
+                    showError("Error preparing invoice for printing: " + (e.getCause() != null ? e.getCause() : e).getMessage());
+                }
+            }
+        }.execute();
+    }
+    
+    private void showInvoiceText(String text, String title, boolean offerPrint) {
+        JTextArea invoiceArea = new JTextArea(text);
+        invoiceArea.setEditable(false);
+        invoiceArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JScrollPane scrollPane = new JScrollPane(invoiceArea);
+        scrollPane.setPreferredSize(new Dimension(650, 450));
+        
+        if (!offerPrint) {
+            JOptionPane.showMessageDialog(this, scrollPane, title, JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        int option = JOptionPane.showConfirmDialog(this, scrollPane, title,
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option == JOptionPane.OK_OPTION) {
+            try {
+                invoiceArea.print();
+            } catch (PrinterException e) {
+                showError("Error printing invoice: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void exportMonthEndInvoices() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("invoices-" + new SimpleDateFormat("yyyy-MM").format(new Date()) + ".txt"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        
+        // From the first day of the current month until now
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        Date startDate = calendar.getTime();
+        Date endDate = new Date();
+        
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                try (OutputStream out = new FileOutputStream(file)) {
+                    return hotelService.exportInvoices(startDate, endDate, out);
+                }
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    showSuccess(get() + " invoices exported to " + file.getAbsolutePath());
+                } catch (Exception e) {
+                    showError("Error exporting invoices: " + (e.getCause() != null ? e.getCause() : e).getMessage());
+                }
+            }
+        }.execute();
     }
     
     private void emailInvoice() {
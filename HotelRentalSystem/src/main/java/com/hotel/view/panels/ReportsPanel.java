@@ -23,6 +23,9 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
     
     private EnhancedHotelManagementService hotelService;
 
+    // Most VIP members listed in the VIP member report; the summary covers all of them
+    private static final int VIP_REPORT_ROW_LIMIT = 500;
+
     // Report selection components
     private JComboBox<String> reportTypeCombo;
     private JTextField startDateField;
@@ -266,7 +269,7 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
                     generateCustomerAnalysisReport();
                     break;
                 case "VIP Member Report":
-                    generateVIPMemberReport();
+                    generateVIPMemberReport(startDate, endDate);
                     break;
                 case "Room Utilization":
                     generateRoomUtilizationReport(startDate, endDate);
@@ -440,8 +443,10 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
         double totalSpent = 0.0;
         int totalLoyaltyPoints = 0;
         int vipCustomers = 0;
+        Map<Integer, Integer> loyaltyBalances = hotelService.getLoyaltyPointsBalances(customers);
         
         for (Customer customer : customers) {
+            int loyaltyPoints = loyaltyBalances.get(customer.getCustomerId());
             // Check VIP status
             String vipStatus = "Regular";
             try {
@@ -467,14 +472,14 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
                 customer.getFullName(),
                 customer.getEmail(),
                 String.format("$%.2f", customer.getTotalSpent()),
-                customer.getLoyaltyPoints(),
+                loyaltyPoints,
                 bookingCount,
                 vipStatus
             };
             tableModel.addRow(row);
             
             totalSpent += customer.getTotalSpent();
-            totalLoyaltyPoints += customer.getLoyaltyPoints();
+            totalLoyaltyPoints += loyaltyPoints;
         }
         
         // Generate summary
@@ -494,15 +499,13 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
         summaryArea.setText(summary.toString());
     }
     
-    private void generateVIPMemberReport() throws Exception {
-        List<VIPMember> vipMembers = hotelService.getVIPMembersDetailed(null);
+    private void generateVIPMemberReport(Date startDate, Date endDate) throws Exception {
+        List<VIPMember> vipMembers = hotelService.getVIPMembersPage(null, 0, VIP_REPORT_ROW_LIMIT);
         
         // Set up table columns
         String[] columns = {"VIP ID", "Customer Name", "Level", "Discount %", "Total Spent", "Start Date", "Status"};
         tableModel.setColumnIdentifiers(columns);
         
-        int goldMembers = 0, platinumMembers = 0, diamondMembers = 0;
-        double totalVIPSpending = 0.0;
         SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
         
         for (VIPMember vipMember : vipMembers) {
@@ -518,39 +521,58 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
                 vipMember.isActive() ? "Active" : "Inactive"
             };
             tableModel.addRow(row);
-            
-            if (vipMember.isActive()) {
-                switch (vipMember.getMembershipLevel()) {
-                    case GOLD:
-                        goldMembers++;
-                        break;
-                    case PLATINUM:
-                        platinumMembers++;
-                        break;
-                    case DIAMOND:
-                        diamondMembers++;
-                        break;
-                }
-                
-                if (vipMember.getCustomer() != null) {
-                    totalVIPSpending += vipMember.getCustomer().getTotalSpent();
-                }
-            }
+        }
+        
+        // Counts, spending and activity come pre-aggregated (member counts per level, summed
+        // spending, tier x month cube) rather than from the listed rows
+        Map<VIPMember.MembershipLevel, Integer> levelCounts = hotelService.getVIPMemberCountsByLevel();
+        double totalVIPSpending = hotelService.getTotalVIPSpending();
+        List<VIPTierStats> tierStats = hotelService.getVIPTierStats(startDate, endDate);
+        int activeMembers = 0;
+        for (Integer count : levelCounts.values()) {
+            activeMembers += count;
         }
         
         // Generate summary
+        SimpleDateFormat monthFormat = new SimpleDateFormat("MMM yyyy");
         StringBuilder summary = new StringBuilder();
         summary.append("VIP MEMBER REPORT\n");
         summary.append("=================\n\n");
-        summary.append(String.format("Total VIP Members: %d\n", vipMembers.size()));
-        summary.append(String.format("Active VIP Members: %d\n", goldMembers + platinumMembers + diamondMembers));
+        summary.append(String.format("Total VIP Members: %d\n", activeMembers));
+        summary.append(String.format("Active VIP Members: %d\n", activeMembers));
+        if (activeMembers > vipMembers.size()) {
+            summary.append(String.format("(Table lists the first %d members)\n", vipMembers.size()));
+        }
         summary.append("\nMembership Level Breakdown:\n");
-        summary.append(String.format("- Gold Members: %d\n", goldMembers));
-        summary.append(String.format("- Platinum Members: %d\n", platinumMembers));
-        summary.append(String.format("- Diamond Members: %d\n", diamondMembers));
+        summary.append(String.format("- Gold Members: %d\n", levelCounts.get(VIPMember.MembershipLevel.GOLD)));
+        summary.append(String.format("- Platinum Members: %d\n", levelCounts.get(VIPMember.MembershipLevel.PLATINUM)));
+        summary.append(String.format("- Diamond Members: %d\n", levelCounts.get(VIPMember.MembershipLevel.DIAMOND)));
         summary.append(String.format("\nTotal VIP Spending: $%.2f\n", totalVIPSpending));
         summary.append(String.format("Average VIP Spending: $%.2f\n", 
-            vipMembers.size() > 0 ? totalVIPSpending / vipMembers.size() : 0));
+            activeMembers > 0 ? totalVIPSpending / activeMembers : 0));
+        
+        summary.append(String.format("\nActivity by Tier (%s - %s):\n",
+            monthFormat.format(startDate), monthFormat.format(endDate)));
+        long vipBookings = 0;
+        double vipRevenue = 0.0;
+        double vipDiscounts = 0.0;
+        double vipServiceSpend = 0.0;
+        for (VIPTierStats stats : tierStats) {
+            summary.append(String.format("- %s: %d bookings, $%.2f revenue, $%.2f discounts, $%.2f services\n",
+                stats.getTierName(), stats.getBookingCount(), stats.getRevenue(),
+                stats.getDiscountGiven(), stats.getServiceSpend()));
+            if (stats.isVIP()) {
+                vipBookings += stats.getBookingCount();
+                vipRevenue += stats.getRevenue();
+                vipDiscounts += stats.getDiscountGiven();
+                vipServiceSpend += stats.getServiceSpend();
+            }
+        }
+        summary.append(String.format("\nTotal VIP Revenue: $%.2f (%d bookings)\n", vipRevenue, vipBookings));
+        summary.append(String.format("Total VIP Discounts Given: $%.2f\n", vipDiscounts));
+        summary.append(String.format("Total VIP Service Spend: $%.2f\n", vipServiceSpend));
+        summary.append(String.format("Average VIP Booking Value: $%.2f\n", 
+            vipBookings > 0 ? vipRevenue / vipBookings : 0));
         
         summaryArea.setText(summary.toString());
     }
@@ -653,21 +675,18 @@ public class ReportsPanel extends JPanel implements RefreshablePanel {
         tableModel.setColumnIdentifiers(columns);
         
         double totalEligibleSpending = 0.0;
+        Map<Integer, Integer> loyaltyBalances = hotelService.getLoyaltyPointsBalances(eligibleCustomers);
         
         for (Customer customer : eligibleCustomers) {
-            // Determine recommended VIP level based on spending
-            String recommendedLevel = "GOLD";
-            if (customer.getTotalSpent() >= 15000) {
-                recommendedLevel = "DIAMOND";
-            } else if (customer.getTotalSpent() >= 10000) {
-                recommendedLevel = "PLATINUM";
-            }
+            // Determine recommended VIP level based on spending (same thresholds as the promotion run)
+            VIPMember.MembershipLevel level = VIPMembershipEngine.levelForSpend(customer.getTotalSpent());
+            String recommendedLevel = level != null ? level.name() : VIPMember.MembershipLevel.GOLD.name();
             
             Object[] row = {
                 customer.getFullName(),
                 customer.getEmail(),
                 String.format("$%.2f", customer.getTotalSpent()),
-                customer.getLoyaltyPoints(),
+                loyaltyBalances.get(customer.getCustomerId()),
                 recommendedLevel
             };
             tableModel.addRow(row);
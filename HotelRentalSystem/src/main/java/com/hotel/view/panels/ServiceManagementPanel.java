@@ -523,6 +523,20 @@ public class ServiceManagementPanel extends JPanel {
                 report.append(usage.getNotes()).append("\n");
             }
             
+            List<ServiceSpend> monthlySpend = hotelService.getServiceSpend(customerId, 12);
+            if (!monthlySpend.isEmpty()) {
+                report.append("\nMonthly Spend (last 12 months)\n");
+                report.append("------------------------------\n");
+                java.text.SimpleDateFormat monthFormat = new java.text.SimpleDateFormat("yyyy-MM");
+                for (ServiceSpend spend : monthlySpend) {
+                    report.append(String.format("%-8s %-15s %5d uses %10s%n",
+                            monthFormat.format(spend.getMonth()),
+                            spend.getCategory() != null ? spend.getCategory().name() : "OTHER",
+                            spend.getUsageCount(),
+                            spend.getFormattedTotalCost()));
+                }
+            }
+            
             JTextArea textArea = new JTextArea(report.toString());
             textArea.setEditable(false);
             textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
@@ -546,6 +560,11 @@ public class ServiceManagementPanel extends JPanel {
             report.append("Most Popular Services\n");
             report.append("====================\n\n");
             
+            appendPopularityRanking(report, "This Week", ServicePopularity.Window.WEEK);
+            appendPopularityRanking(report, "This Month", ServicePopularity.Window.MONTH);
+            
+            report.append("All Time\n");
+            report.append("--------\n");
             int rank = 1;
             for (ServiceUsage service : popularServices) {
                 report.append(rank++).append(". ").append(service.getNotes()).append("\n");
@@ -567,6 +586,23 @@ public class ServiceManagementPanel extends JPanel {
         }
     }
     
+    private void appendPopularityRanking(StringBuilder report, String title,
+                                         ServicePopularity.Window window) throws SQLException {
+        report.append(title).append("\n");
+        report.append("-".repeat(title.length())).append("\n");
+        List<ServicePopularity> ranking = hotelService.getPopularServices(window, 10);
+        if (ranking.isEmpty()) {
+            report.append("No service usage yet\n");
+        }
+        int rank = 1;
+        for (ServicePopularity popularity : ranking) {
+            report.append(rank++).append(". ").append(popularity.getServiceName())
+                  .append(" - Quantity: ").append(popularity.getTotalQuantity())
+                  .append(", Orders: ").append(popularity.getUsageCount()).append("\n");
+        }
+        report.append("\n");
+    }
+    
     private String generateServiceReport() throws SQLException {
         StringBuilder report = new StringBuilder();
         
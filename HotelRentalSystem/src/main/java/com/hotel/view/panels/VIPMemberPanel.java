@@ -2,15 +2,25 @@ package com.hotel.view.panels;
 
 import com.hotel.model.EnhancedHotelManagementService;
 import com.hotel.model.VIPMember;
+import com.hotel.model.VIPMembershipRun;
+import com.hotel.model.VIPTransferResult;
 import com.hotel.model.Customer;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Panel for managing VIP members
@@ -36,6 +46,14 @@ public class VIPMemberPanel extends JPanel {
     private JButton deactivateButton;
     private JButton processRenewalsButton;
     private JButton refreshButton;
+    private JButton loadMoreButton;
+    private JButton importButton;
+    private JButton exportButton;
+    
+    // Paging: members are loaded PAGE_SIZE at a time, continuing after the last vip_id shown
+    private static final int PAGE_SIZE = 200;
+    private VIPMember.MembershipLevel currentLevel;
+    private int lastVipId;
     
     // Statistics panel
     private JLabel totalVIPLabel;
@@ -103,13 +121,17 @@ public class VIPMemberPanel extends JPanel {
         deactivateButton = new JButton("Deactivate");
         processRenewalsButton = new JButton("Process Renewals");
         refreshButton = new JButton("Refresh");
+        loadMoreButton = new JButton("Load More");
+        loadMoreButton.setEnabled(false);
+        importButton = new JButton("Import CSV");
+        exportButton = new JButton("Export CSV");
         //
         // Style buttons (retain backgrounds but unify font/foreground per requirement)
         processRenewalsButton.setBackground(new Color(70, 130, 180));
         deactivateButton.setBackground(new Color(220, 20, 60));
 
         Font boldFont = getFont().deriveFont(Font.BOLD);
-        JButton[] buttons = {filterButton, clearFilterButton, viewDetailsButton, updateMemberButton, deactivateButton, processRenewalsButton, refreshButton};
+        JButton[] buttons = {filterButton, clearFilterButton, viewDetailsButton, updateMemberButton, deactivateButton, processRenewalsButton, refreshButton, loadMoreButton, importButton, exportButton};
         for (JButton b : buttons) {
             if (b != null) {
                 b.setFont(boldFont);
@@ -215,6 +237,9 @@ public class VIPMemberPanel extends JPanel {
         panel.add(deactivateButton);
         panel.add(processRenewalsButton);
         panel.add(refreshButton);
+        panel.add(loadMoreButton);
+        panel.add(importButton);
+        panel.add(exportButton);
         
         return panel;
     }
@@ -230,6 +255,9 @@ public class VIPMemberPanel extends JPanel {
         deactivateButton.addActionListener(e -> deactivateMember());
         processRenewalsButton.addActionListener(e -> processRenewals());
         refreshButton.addActionListener(e -> refreshData());
+        loadMoreButton.addActionListener(e -> loadNextPage());
+        importButton.addActionListener(e -> importMembers());
+        exportButton.addActionListener(e -> exportMembers());
         
         // Table selection
         vipMembersTable.getSelectionModel().addListSelectionListener(e -> {
@@ -240,21 +268,7 @@ public class VIPMemberPanel extends JPanel {
     }
     
     private void applyFilter() {
-        String selectedLevel = (String) levelFilterCombo.getSelectedItem();
-        if ("All Levels".equals(selectedLevel)) {
-            refreshData();
-        } else {
-            try {
-                List<VIPMember> vipMembers = hotelService.getVIPMembersDetailed(VIPMember.MembershipLevel.valueOf(selectedLevel));
-                populateTable(vipMembers);
-                updateStatistics(vipMembers);
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, 
-                    "Error applying filter: " + e.getMessage(),
-                    "Filter Error", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
-        }
+        refreshData();
     }
     
     private void clearFilter() {
@@ -273,15 +287,7 @@ public class VIPMemberPanel extends JPanel {
         int vipId = (Integer) tableModel.getValueAt(modelRow, 0);
         
         try {
-            // Get VIP member details using the DAO
-            VIPMember vipMember = null;
-            List<VIPMember> allMembers = hotelService.getAllVIPMembers();
-            for (VIPMember member : allMembers) {
-                if (member.getVipId() == vipId) {
-                    vipMember = member;
-                    break;
-                }
-            }
+            VIPMember vipMember = hotelService.getVIPMember(vipId);
             
             if (vipMember != null) {
                 VIPMemberDetailsDialog dialog = new VIPMemberDetailsDialog(
@@ -359,10 +365,28 @@ public class VIPMemberPanel extends JPanel {
     }
     
     private void processRenewals() {
+        VIPMembershipRun preview;
+        try {
+            preview = hotelService.previewVIPRenewals();
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this,
+                "Error previewing VIP renewals: " + e.getMessage(),
+                "Renewal Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (preview.getChanges().isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                "No memberships are due for renewal.\n\n" + preview.getSummary(),
+                "Process VIP Renewals",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
         int option = JOptionPane.showConfirmDialog(this,
-            "This will process VIP membership renewals for all eligible members.\\n" +
-            "Members who no longer meet spending requirements will be expired.\\n\\n" +
-            "Do you want to continue?",
+            "Due memberships are renewed at the level their spending now earns.\n" +
+            "Members who no longer meet spending requirements will be expired.\n\n" +
+            preview.getSummary() + "\nDo you want to continue?",
             "Process VIP Renewals",
             JOptionPane.YES_NO_OPTION,
             JOptionPane.QUESTION_MESSAGE);
@@ -376,7 +400,7 @@ public class VIPMemberPanel extends JPanel {
                 progressDialog.setLocationRelativeTo(this);
                 progressDialog.add(new JLabel("Processing VIP renewals, please wait...", JLabel.CENTER));
                 
-                createRenewalWorker(progressDialog).execute();
+                createRenewalWorker(preview, progressDialog).execute();
                 progressDialog.setVisible(true);
 
             } catch (Exception e) {
@@ -388,27 +412,26 @@ public class VIPMemberPanel extends JPanel {
         }
     }
 
-    private SwingWorker<Void, Void> createRenewalWorker(JDialog progressDialog) {
+    private SwingWorker<VIPMembershipRun, Void> createRenewalWorker(VIPMembershipRun preview, JDialog progressDialog) {
         return new SwingWorker<>() {
             @Override
-            protected Void doInBackground() throws Exception {
-                hotelService.processVIPRenewals();
-                return null;
+            protected VIPMembershipRun doInBackground() throws Exception {
+                return hotelService.applyVIPMembershipRun(preview, "System");
             }
 
             @Override
             protected void done() {
                 progressDialog.dispose();
                 try {
-                    get(); // Check for exceptions
+                    VIPMembershipRun run = get(); // Check for exceptions
                     JOptionPane.showMessageDialog(VIPMemberPanel.this,
-                        "VIP renewals processed successfully!",
+                        "VIP renewals processed successfully!\n\n" + run.getSummary(),
                         "Renewals Complete",
                         JOptionPane.INFORMATION_MESSAGE);
                     refreshData();
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(VIPMemberPanel.this,
-                        "Error processing VIP renewals: " + e.getCause().getMessage(),
+                        "Error processing VIP renewals: " + (e.getCause() != null ? e.getCause() : e).getMessage(),
                         "Renewal Error",
                         JOptionPane.ERROR_MESSAGE);
                 }
@@ -416,6 +439,71 @@ public class VIPMemberPanel extends JPanel {
         };
     }
 
+    private void importMembers() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import VIP Members");
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        runTransfer("Importing VIP members, please wait...", "Import", () -> {
+            try (InputStream in = new FileInputStream(file)) {
+                return hotelService.importVIPMembers(in);
+            }
+        });
+    }
+
+    private void exportMembers() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export VIP Members");
+        fileChooser.setSelectedFile(new File("vip_members.csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        runTransfer("Exporting VIP members, please wait...", "Export", () -> {
+            try (OutputStream out = new FileOutputStream(file)) {
+                return hotelService.exportVIPMembers(out);
+            }
+        });
+    }
+
+    // Run an import/export off the EDT behind a modal progress dialog, then show its summary
+    private void runTransfer(String message, String title, Callable<VIPTransferResult> transfer) {
+        JDialog progressDialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this), title, true);
+        progressDialog.setSize(300, 100);
+        progressDialog.setLocationRelativeTo(this);
+        progressDialog.add(new JLabel(message, JLabel.CENTER));
+
+        new SwingWorker<VIPTransferResult, Void>() {
+            @Override
+            protected VIPTransferResult doInBackground() throws Exception {
+                return transfer.call();
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                try {
+                    VIPTransferResult result = get();
+                    JOptionPane.showMessageDialog(VIPMemberPanel.this,
+                        result.getSummary(),
+                        title + " Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
+                    if (result.getDirection() == VIPTransferResult.Direction.IMPORT) {
+                        refreshData();
+                    }
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(VIPMemberPanel.this,
+                        title + " failed: " + (e.getCause() != null ? e.getCause() : e).getMessage(),
+                        title + " Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+        progressDialog.setVisible(true);
+    }
+
     private void updateButtonStates() {
         boolean hasSelection = vipMembersTable.getSelectedRow() != -1;
         viewDetailsButton.setEnabled(hasSelection);
@@ -427,9 +515,12 @@ public class VIPMemberPanel extends JPanel {
     public void refreshData() {
         SwingUtilities.invokeLater(() -> {
             try {
-                List<VIPMember> vipMembers = hotelService.getVIPMembersDetailed(null);
-                populateTable(vipMembers);
-                updateStatistics(vipMembers);
+                String selectedLevel = (String) levelFilterCombo.getSelectedItem();
+                currentLevel = "All Levels".equals(selectedLevel) ? null : VIPMember.MembershipLevel.valueOf(selectedLevel);
+                lastVipId = 0;
+                tableModel.setRowCount(0);
+                loadNextPage();
+                updateStatistics(hotelService.getVIPMemberCountsByLevel());
                 updateButtonStates();
             } catch (Exception e) {
                 JOptionPane.showMessageDialog(this, 
@@ -440,9 +531,32 @@ public class VIPMemberPanel extends JPanel {
         });
     }
     
-    private void populateTable(List<VIPMember> vipMembers) {
-        tableModel.setRowCount(0);
+    // Append the next page of members for the current filter
+    private void loadNextPage() {
+        try {
+            List<VIPMember> page = hotelService.getVIPMembersPage(currentLevel, lastVipId, PAGE_SIZE);
+            appendRows(page);
+            if (!page.isEmpty()) {
+                lastVipId = page.get(page.size() - 1).getVipId();
+            }
+            loadMoreButton.setEnabled(page.size() == PAGE_SIZE);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(this, 
+                "Error loading VIP members: " + e.getMessage(),
+                "Load Error", 
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    private void appendRows(List<VIPMember> vipMembers) {
         SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy");
+        List<Customer> customers = new ArrayList<>();
+        for (VIPMember vipMember : vipMembers) {
+            if (vipMember.getCustomer() != null) {
+                customers.add(vipMember.getCustomer());
+            }
+        }
+        Map<Integer, Integer> loyaltyBalances = hotelService.getLoyaltyPointsBalances(customers);
         
         for (VIPMember vipMember : vipMembers) {
             Object[] row = new Object[]{
@@ -455,7 +569,7 @@ public class VIPMemberPanel extends JPanel {
                 vipMember.getCustomer() != null ? 
                     String.format("$%.2f", vipMember.getCustomer().getTotalSpent()) : "$0.00",
                 vipMember.getCustomer() != null ? 
-                    vipMember.getCustomer().getLoyaltyPoints() : 0,
+                    loyaltyBalances.get(vipMember.getCustomerId()) : 0,
                 vipMember.getMembershipStartDate() != null ? 
                     dateFormat.format(vipMember.getMembershipStartDate()) : "N/A",
                 vipMember.getMembershipEndDate() != null ? 
@@ -466,27 +580,12 @@ public class VIPMemberPanel extends JPanel {
         }
     }
     
-    private void updateStatistics(List<VIPMember> vipMembers) {
-        int totalVIP = vipMembers.size();
-        int goldCount = 0;
-        int platinumCount = 0;
-        int diamondCount = 0;
-        
-        for (VIPMember member : vipMembers) {
-            if (member.isActive()) {
-                switch (member.getMembershipLevel()) {
-                    case GOLD:
-                        goldCount++;
-                        break;
-                    case PLATINUM:
-                        platinumCount++;
-                        break;
-                    case DIAMOND:
-                        diamondCount++;
-                        break;
-                }
-            }
-        }
+    // Counts come from one GROUP BY query, so they cover all members, not just the loaded pages
+    private void updateStatistics(Map<VIPMember.MembershipLevel, Integer> counts) {
+        int goldCount = counts.getOrDefault(VIPMember.MembershipLevel.GOLD, 0);
+        int platinumCount = counts.getOrDefault(VIPMember.MembershipLevel.PLATINUM, 0);
+        int diamondCount = counts.getOrDefault(VIPMember.MembershipLevel.DIAMOND, 0);
+        int totalVIP = goldCount + platinumCount + diamondCount;
         
         totalVIPLabel.setText(String.valueOf(totalVIP));
         goldMembersLabel.setText(String.valueOf(goldCount));
@@ -635,11 +734,13 @@ class VIPMemberUpdateDialog extends JDialog {
  */
 class VIPMemberDetailsDialog extends JDialog {
     private final VIPMember vipMember;
+    private final EnhancedHotelManagementService hotelService;
 
     public VIPMemberDetailsDialog(JFrame parent, VIPMember vipMember, EnhancedHotelManagementService hotelService) {
         super(parent, "VIP Member Details - " +
               (vipMember.getCustomer() != null ? vipMember.getCustomer().getFullName() : "Unknown"), true);
         this.vipMember = vipMember;
+        this.hotelService = hotelService;
         initializeDialog();
     }
     
@@ -683,7 +784,14 @@ class VIPMemberDetailsDialog extends JDialog {
             addDetailRow(detailsPanel, gbc, row++, "Email:", customer.getEmail());
             addDetailRow(detailsPanel, gbc, row++, "Phone:", customer.getPhone());
             addDetailRow(detailsPanel, gbc, row++, "Total Spent:", String.format("$%.2f", customer.getTotalSpent()));
-            addDetailRow(detailsPanel, gbc, row++, "Loyalty Points:", String.valueOf(customer.getLoyaltyPoints()));
+            int loyaltyPoints;
+            try {
+                loyaltyPoints = hotelService.getLoyaltyPointsBalance(customer.getCustomerId());
+            } catch (Exception e) {
+                // Fall back to the compacted column
+                loyaltyPoints = customer.getLoyaltyPoints();
+            }
+            addDetailRow(detailsPanel, gbc, row++, "Loyalty Points:", String.valueOf(loyaltyPoints));
         }
         
         // Benefits section
@@ -1,13 +1,13 @@
 
 BEGIN
   FOR t IN (SELECT table_name FROM user_tables WHERE table_name IN (
-    'INVOICE_LINE_ITEMS','INVOICES','CUSTOMER_SERVICE_USAGE','ROOM_SERVICE_ASSIGNMENTS',
+    'LOYALTY_POINT_EVENTS','INVOICE_LINE_ITEMS','INVOICES','CUSTOMER_SERVICE_ROLLUP','CUSTOMER_SERVICE_USAGE','ROOM_SERVICE_ASSIGNMENTS',
     'ROOM_SERVICES','BOOKING_ARCHIVE','BOOKINGS','VIP_MEMBERS','CUSTOMERS','ROOMS','ROOM_TYPES')) LOOP
     EXECUTE IMMEDIATE 'DROP TABLE '||t.table_name||' CASCADE CONSTRAINTS';
   END LOOP;
   FOR s IN (SELECT sequence_name FROM user_sequences WHERE sequence_name IN (
     'ROOM_TYPE_SEQ','ROOM_SEQ','CUSTOMER_SEQ','BOOKING_SEQ','VIP_SEQ','BOOKING_ARCHIVE_SEQ',
-    'ROOM_SERVICE_SEQ','ASSIGNMENT_SEQ','USAGE_SEQ','INVOICE_SEQ','LINE_ITEM_SEQ')) LOOP
+    'ROOM_SERVICE_SEQ','ASSIGNMENT_SEQ','USAGE_SEQ','INVOICE_SEQ','LINE_ITEM_SEQ','LOYALTY_EVENT_SEQ')) LOOP
     EXECUTE IMMEDIATE 'DROP SEQUENCE '||s.sequence_name;
   END LOOP;
 EXCEPTION WHEN OTHERS THEN NULL; END;
@@ -27,6 +27,7 @@ CREATE SEQUENCE assignment_seq START WITH 1 INCREMENT BY 1 NOCACHE;
 CREATE SEQUENCE usage_seq START WITH 1 INCREMENT BY 1 NOCACHE;
 CREATE SEQUENCE invoice_seq START WITH 1 INCREMENT BY 1 NOCACHE;
 CREATE SEQUENCE line_item_seq START WITH 1 INCREMENT BY 1 NOCACHE;
+CREATE SEQUENCE loyalty_event_seq START WITH 1 INCREMENT BY 1 CACHE 100;
 
 CREATE TABLE room_types (
   type_id        NUMBER(10) PRIMARY KEY,
@@ -156,7 +157,8 @@ CREATE TABLE customer_service_usage (
   quantity         NUMBER(5) DEFAULT 1,
   unit_price       NUMBER(10,2) NOT NULL,
   total_cost       NUMBER(12,2) NOT NULL,
-  is_complimentary CHAR(1) DEFAULT 'N' CHECK (is_complimentary IN ('Y','N'))
+  is_complimentary CHAR(1) DEFAULT 'N' CHECK (is_complimentary IN ('Y','N')),
+  posting_ref      VARCHAR2(40)  -- set by the service charge queue; unique so a replayed charge posts once
 );
 
 CREATE TABLE invoices (
@@ -192,6 +194,29 @@ CREATE TABLE invoice_line_items (
   usage_id         NUMBER(12) REFERENCES customer_service_usage(usage_id)
 );
 
+-- Monthly service spend per customer and category, maintained by trg_customer_service_rollup
+CREATE TABLE customer_service_rollup (
+  customer_id      NUMBER(10) NOT NULL REFERENCES customers(customer_id),
+  usage_month      DATE NOT NULL,
+  service_category VARCHAR2(50) NOT NULL,
+  total_quantity   NUMBER(12) DEFAULT 0,
+  total_cost       NUMBER(14,2) DEFAULT 0,
+  usage_count      NUMBER(10) DEFAULT 0,
+  CONSTRAINT pk_customer_service_rollup PRIMARY KEY (customer_id, usage_month, service_category)
+);
+
+-- Append-only loyalty points history; compacted = 'Y' once folded into customers.loyalty_points
+CREATE TABLE loyalty_point_events (
+  event_id     NUMBER(12) PRIMARY KEY,
+  customer_id  NUMBER(10) NOT NULL REFERENCES customers(customer_id),
+  booking_id   NUMBER(10),
+  event_type   VARCHAR2(10) NOT NULL CHECK (event_type IN ('EARN','REDEEM','ADJUST')),
+  points       NUMBER(10) NOT NULL,
+  description  VARCHAR2(200),
+  event_date   TIMESTAMP DEFAULT SYSTIMESTAMP,
+  compacted    CHAR(1) DEFAULT 'N' CHECK (compacted IN ('Y','N'))
+);
+
 
 CREATE INDEX idx_rooms_type ON rooms(type_id);
 CREATE INDEX idx_rooms_status ON rooms(status);
@@ -201,7 +226,18 @@ CREATE INDEX idx_bookings_dates ON bookings(check_in_date, check_out_date);
 CREATE INDEX idx_bookings_status ON bookings(booking_status);
 CREATE INDEX idx_customers_email ON customers(email);
 CREATE INDEX idx_vip_customer ON vip_members(customer_id);
+-- At most one active membership per customer (inactive rows map to NULL and are not indexed)
+CREATE UNIQUE INDEX idx_vip_one_active ON vip_members(CASE WHEN is_active = 'Y' THEN customer_id END);
+CREATE INDEX idx_vip_active_level ON vip_members(is_active, membership_level, vip_id);
+-- "All Levels" page of findPageWithDetails: range scan in vip_id order with no sort
+CREATE INDEX idx_vip_active_id ON vip_members(is_active, vip_id);
 CREATE INDEX idx_service_usage_booking ON customer_service_usage(booking_id);
+CREATE INDEX idx_service_usage_cust_date ON customer_service_usage(customer_id, usage_date);
+CREATE UNIQUE INDEX idx_service_usage_posting ON customer_service_usage(posting_ref);
 CREATE INDEX idx_invoices_booking ON invoices(booking_id);
+CREATE INDEX idx_invoices_status_due ON invoices(payment_status, due_date);
+CREATE INDEX idx_invoices_date_status ON invoices(invoice_date, payment_status);
+CREATE INDEX idx_loyalty_pending ON loyalty_point_events(compacted, event_id);
+CREATE INDEX idx_loyalty_customer ON loyalty_point_events(customer_id, event_date);
 
 COMMIT;
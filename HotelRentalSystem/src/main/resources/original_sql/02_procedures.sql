@@ -250,7 +250,8 @@ CREATE OR REPLACE PROCEDURE update_vip_status(
     v_new_discount NUMBER;
 BEGIN
     -- Determine VIP level based on provided spending (avoid mutating table SELECT)
-    IF p_total_spent >= 20000 THEN
+    -- Thresholds match VIPMembershipEngine: Gold 5000, Platinum 10000, Diamond 15000
+    IF p_total_spent >= 15000 THEN
         v_new_level := 'DIAMOND';
         v_new_discount := 20;
     ELSIF p_total_spent >= 10000 THEN
@@ -588,6 +589,27 @@ BEGIN
 END get_customer_service_summary;
 /
 
+-- Active VIP members with customer details (optionally one membership level).
+-- Names come back as separate columns; customer_name is kept for older readers.
+CREATE OR REPLACE PROCEDURE get_vip_members_detailed(
+    p_membership_level IN VARCHAR2,
+    p_vip_cursor OUT SYS_REFCURSOR
+) AS
+BEGIN
+    OPEN p_vip_cursor FOR
+        SELECT vm.vip_id, vm.customer_id, vm.membership_level, vm.discount_percentage,
+               vm.membership_start_date, vm.membership_end_date, vm.benefits,
+               c.first_name, c.last_name,
+               c.first_name || ' ' || c.last_name AS customer_name,
+               c.email, c.phone, c.total_spent, c.loyalty_points
+        FROM vip_members vm
+        JOIN customers c ON vm.customer_id = c.customer_id
+        WHERE vm.is_active = 'Y'
+        AND (p_membership_level IS NULL OR vm.membership_level = UPPER(p_membership_level))
+        ORDER BY vm.vip_id;
+END get_vip_members_detailed;
+/
+
 CREATE OR REPLACE FUNCTION get_total_revenue
 RETURN NUMBER IS
     v_total NUMBER := 0;
@@ -61,12 +61,17 @@ END;
 
 
 CREATE OR REPLACE TRIGGER trg_update_loyalty_points
-    BEFORE UPDATE OF total_spent ON customers
+    AFTER UPDATE OF total_spent ON customers
     FOR EACH ROW
     WHEN (NEW.total_spent > OLD.total_spent)
 BEGIN
-    -- Add 1 loyalty point for every $10 spent
-    :NEW.loyalty_points := :OLD.loyalty_points + FLOOR((:NEW.total_spent - :OLD.total_spent) / 10);
+    -- Earn 1 loyalty point for every $10 spent; appended to the ledger and folded into
+    -- customers.loyalty_points later by the compaction job
+    IF FLOOR((:NEW.total_spent - :OLD.total_spent) / 10) > 0 THEN
+        INSERT INTO loyalty_point_events (event_id, customer_id, event_type, points, description)
+        VALUES (loyalty_event_seq.NEXTVAL, :NEW.customer_id, 'EARN',
+                FLOOR((:NEW.total_spent - :OLD.total_spent) / 10), 'Spending');
+    END IF;
 END;
 /
 
@@ -132,6 +137,52 @@ END AFTER STATEMENT;
 END;
 /
 
+CREATE OR REPLACE TRIGGER trg_customer_service_rollup
+    AFTER INSERT OR UPDATE OR DELETE ON customer_service_usage
+    FOR EACH ROW
+DECLARE
+    v_category room_services.service_category%TYPE;
+BEGIN
+    IF DELETING OR UPDATING THEN
+        SELECT NVL(MAX(service_category), 'OTHER') INTO v_category
+        FROM room_services
+        WHERE service_id = :OLD.service_id;
+
+        UPDATE customer_service_rollup
+        SET total_quantity = total_quantity - NVL(:OLD.quantity, 0),
+            total_cost = total_cost - NVL(:OLD.total_cost, 0),
+            usage_count = usage_count - 1
+        WHERE customer_id = :OLD.customer_id
+        AND usage_month = TRUNC(NVL(:OLD.usage_date, SYSDATE), 'MM')
+        AND service_category = v_category;
+    END IF;
+
+    IF INSERTING OR UPDATING THEN
+        SELECT NVL(MAX(service_category), 'OTHER') INTO v_category
+        FROM room_services
+        WHERE service_id = :NEW.service_id;
+
+        MERGE INTO customer_service_rollup r
+        USING (SELECT :NEW.customer_id AS customer_id,
+                      TRUNC(NVL(:NEW.usage_date, SYSDATE), 'MM') AS usage_month,
+                      v_category AS service_category
+               FROM dual) s
+        ON (r.customer_id = s.customer_id
+            AND r.usage_month = s.usage_month
+            AND r.service_category = s.service_category)
+        WHEN MATCHED THEN UPDATE SET
+            r.total_quantity = r.total_quantity + NVL(:NEW.quantity, 0),
+            r.total_cost = r.total_cost + NVL(:NEW.total_cost, 0),
+            r.usage_count = r.usage_count + 1
+        WHEN NOT MATCHED THEN INSERT
+            (customer_id, usage_month, service_category, total_quantity, total_cost, usage_count)
+        VALUES
+            (s.customer_id, s.usage_month, s.service_category,
+             NVL(:NEW.quantity, 0), NVL(:NEW.total_cost, 0), 1);
+    END IF;
+END;
+/
+
 CREATE OR REPLACE TRIGGER trg_room_maintenance_date
     BEFORE UPDATE OF status ON rooms
     FOR EACH ROW
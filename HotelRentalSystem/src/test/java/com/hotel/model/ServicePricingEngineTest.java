@@ -0,0 +1,148 @@
+package com.hotel.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServicePricingEngineTest {
+
+    private static final int DELUXE = 2;
+    private static final int STANDARD = 1;
+    private static final int BREAKFAST = 10;
+    private static final int LAUNDRY = 11;
+    private static final int RETIRED = 12;
+
+    private ServicePricingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        RoomService breakfast = service(BREAKFAST, "Breakfast", RoomService.ServiceCategory.FOOD, 25.0, true);
+        RoomService laundry = service(LAUNDRY, "Laundry", RoomService.ServiceCategory.LAUNDRY, 12.5, true);
+        RoomService retired = service(RETIRED, "Minibar", RoomService.ServiceCategory.FOOD, 8.0, false);
+
+        ServiceAvailabilityMatrix availability = new ServiceAvailabilityMatrix();
+        availability.addAssignment(DELUXE, BREAKFAST, true);
+        availability.addAssignment(DELUXE, LAUNDRY, false);
+        availability.addAssignment(STANDARD, BREAKFAST, false);
+
+        engine = new ServicePricingEngine(new ServiceCatalog(Arrays.asList(breakfast, laundry, retired)), availability);
+    }
+
+    @Test
+    void acceptsConfirmedAndCheckedInBookingsOfTheCustomer() {
+        assertNull(ServicePricingEngine.validateBooking("CONFIRMED", 7, 7));
+        assertNull(ServicePricingEngine.validateBooking("CHECKED_IN", 7, 7));
+    }
+
+    @Test
+    void rejectsBookingsThatAreNotActive() {
+        for (String status : new String[] {"PENDING", "CHECKED_OUT", "CANCELLED", null}) {
+            assertEquals("Services can only be added to confirmed or active bookings",
+                    ServicePricingEngine.validateBooking(status, 7, 7), String.valueOf(status));
+        }
+    }
+
+    @Test
+    void rejectsBookingOfAnotherCustomer() {
+        assertEquals("Customer does not match booking", ServicePricingEngine.validateBooking("CONFIRMED", 7, 8));
+    }
+
+    @Test
+    void rejectsUnknownAndInactiveServices() {
+        ServiceQuote unknown = engine.quote(DELUXE, 99, 1);
+        ServiceQuote inactive = engine.quote(DELUXE, RETIRED, 1);
+
+        assertFalse(unknown.isPriced());
+        assertEquals("Service not found or inactive", unknown.getMessage());
+        assertFalse(inactive.isPriced());
+        assertEquals("Service not found or inactive", inactive.getMessage());
+        assertEquals(0.0, inactive.getLineTotal());
+    }
+
+    @Test
+    void chargesBasePriceTimesQuantity() {
+        ServiceQuote quote = engine.quote(DELUXE, LAUNDRY, 3);
+
+        assertTrue(quote.isPriced());
+        assertFalse(quote.isComplimentary());
+        assertEquals(12.5, quote.getUnitPrice());
+        assertEquals(37.5, quote.getLineTotal(), 0.001);
+    }
+
+    @Test
+    void complimentaryServiceCostsNothingForThatRoomTypeOnly() {
+        ServiceQuote deluxe = engine.quote(DELUXE, BREAKFAST, 2);
+        ServiceQuote standard = engine.quote(STANDARD, BREAKFAST, 2);
+        ServiceQuote unknownRoomType = engine.quote(null, BREAKFAST, 2);
+
+        assertTrue(deluxe.isComplimentary());
+        assertEquals(25.0, deluxe.getUnitPrice());
+        assertEquals(0.0, deluxe.getLineTotal());
+        assertFalse(standard.isComplimentary());
+        assertEquals(50.0, standard.getLineTotal(), 0.001);
+        assertFalse(unknownRoomType.isComplimentary());
+        assertEquals(50.0, unknownRoomType.getLineTotal(), 0.001);
+    }
+
+    @Test
+    void lineTotal() {
+        assertEquals(30.0, ServicePricingEngine.lineTotal(10.0, 3, false), 0.001);
+        assertEquals(0.0, ServicePricingEngine.lineTotal(10.0, 3, true));
+    }
+
+    @Test
+    void quotesCartInOrderAndTotalsPricedLines() {
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        cart.put(LAUNDRY, 2);
+        cart.put(RETIRED, 1);
+        cart.put(BREAKFAST, 4);
+
+        List<ServiceQuote> quotes = engine.quoteCart(booking("CHECKED_IN", 7), 7, DELUXE, cart);
+
+        assertEquals(3, quotes.size());
+        assertEquals(LAUNDRY, quotes.get(0).getServiceId());
+        assertEquals(25.0, quotes.get(0).getLineTotal(), 0.001);
+        assertFalse(quotes.get(1).isPriced());
+        assertTrue(quotes.get(2).isComplimentary());
+        assertEquals(25.0, ServicePricingEngine.total(quotes), 0.001);
+    }
+
+    @Test
+    void rejectsEveryCartLineWhenTheBookingIsRejected() {
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        cart.put(LAUNDRY, 1);
+        cart.put(BREAKFAST, 1);
+
+        List<ServiceQuote> quotes = engine.quoteCart(booking("CONFIRMED", 7), 8, DELUXE, cart);
+
+        for (ServiceQuote quote : quotes) {
+            assertFalse(quote.isPriced());
+            assertEquals("Customer does not match booking", quote.getMessage());
+        }
+        assertEquals(0.0, ServicePricingEngine.total(quotes));
+    }
+
+    private static RoomService service(int id, String name, RoomService.ServiceCategory category,
+                                       double price, boolean active) {
+        RoomService service = new RoomService(name, name, category, price);
+        service.setServiceId(id);
+        service.setActive(active);
+        return service;
+    }
+
+    private static Booking booking(String status, int customerId) {
+        Booking booking = new Booking();
+        booking.setBookingStatus(status);
+        booking.setCustomerId(customerId);
+        return booking;
+    }
+}
@@ -0,0 +1,115 @@
+package com.hotel.model;
+
+import com.hotel.dao.ServiceUsageDAO;
+import com.hotel.util.DatabaseConnection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the in-memory quote matches what add_service_usage actually charges.
+ * Needs the database from config/database.properties with at least one CONFIRMED or
+ * CHECKED_IN booking; run with -Dhotel.db.tests=true. Charges it posts are deleted again.
+ */
+@EnabledIfSystemProperty(named = "hotel.db.tests", matches = "true")
+class ServicePricingParityTest {
+
+    private static final int QUANTITY = 2;
+
+    @Test
+    void procedureChargesWhatTheEngineQuotes() throws SQLException {
+        EnhancedHotelManagementService hotelService = new EnhancedHotelManagementService();
+        ServiceUsageDAO serviceUsageDAO = new ServiceUsageDAO();
+
+        Booking booking = hotelService.getBookingById(findActiveBookingId());
+        assertNotNull(booking, "needs a CONFIRMED or CHECKED_IN booking");
+
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        for (int serviceId : findActiveServiceIds()) {
+            cart.put(serviceId, QUANTITY);
+        }
+        assertFalse(cart.isEmpty(), "needs at least one active room service");
+
+        List<ServiceQuote> quotes = hotelService.quoteServices(booking, cart);
+        List<Long> usageIds = new ArrayList<>();
+        try {
+            double chargedTotal = 0.0;
+            for (ServiceQuote quote : quotes) {
+                assertTrue(quote.isPriced(), quote.getMessage());
+
+                long usageId = serviceUsageDAO.addServiceUsage(booking.getBookingId(), booking.getCustomerId(),
+                        quote.getServiceId(), quote.getQuantity());
+                usageIds.add(usageId);
+
+                try (Connection conn = DatabaseConnection.getConnection();
+                     PreparedStatement pstmt = conn.prepareStatement(
+                             "SELECT unit_price, is_complimentary, total_cost FROM customer_service_usage " +
+                             "WHERE usage_id = ?")) {
+                    pstmt.setLong(1, usageId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        assertTrue(rs.next(), "usage " + usageId + " not found");
+                        String service = "service " + quote.getServiceId();
+                        assertEquals(quote.getUnitPrice(), rs.getDouble("unit_price"), 0.001);
+                        assertEquals(quote.isComplimentary(), "Y".equals(rs.getString("is_complimentary")), service);
+                        assertEquals(quote.getLineTotal(), rs.getDouble("total_cost"), 0.001);
+                        chargedTotal += rs.getDouble("total_cost");
+                    }
+                }
+            }
+            assertEquals(ServicePricingEngine.total(quotes), chargedTotal, 0.001);
+        } finally {
+            deleteUsages(usageIds);
+        }
+    }
+
+    private static int findActiveBookingId() throws SQLException {
+        String sql = "SELECT booking_id FROM bookings " +
+                    "WHERE booking_status IN ('CONFIRMED', 'CHECKED_IN') AND room_id IS NOT NULL " +
+                    "ORDER BY booking_id FETCH FIRST 1 ROWS ONLY";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static List<Integer> findActiveServiceIds() throws SQLException {
+        List<Integer> serviceIds = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT service_id FROM room_services WHERE is_active = 'Y' ORDER BY service_id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                serviceIds.add(rs.getInt(1));
+            }
+        }
+        return serviceIds;
+    }
+
+    // The trigger takes the charges back out of the booking's services_total
+    private static void deleteUsages(List<Long> usageIds) throws SQLException {
+        if (usageIds.isEmpty()) return;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "DELETE FROM customer_service_usage WHERE usage_id = ?")) {
+            for (long usageId : usageIds) {
+                pstmt.setLong(1, usageId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+}
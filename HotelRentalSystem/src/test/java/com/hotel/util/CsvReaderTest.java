@@ -0,0 +1,101 @@
+package com.hotel.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTest {
+
+    @Test
+    void readsPlainFieldsUntilEndOfInput() throws IOException {
+        CsvReader reader = reader("a,b,c\n1,2,3\n");
+
+        assertEquals(Arrays.asList("a", "b", "c"), reader.readRecord());
+        assertEquals(Arrays.asList("1", "2", "3"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        CsvReader reader = reader("a,,c,\n");
+
+        assertEquals(Arrays.asList("a", "", "c", ""), reader.readRecord());
+    }
+
+    @Test
+    void readsLastRecordWithoutTrailingNewline() throws IOException {
+        CsvReader reader = reader("a,b\n1,2");
+
+        reader.readRecord();
+        assertEquals(Arrays.asList("1", "2"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndEscapedQuotes() throws IOException {
+        CsvReader reader = reader("\"Smith, John\",\"says \"\"hi\"\"\",\"\"\n");
+
+        assertEquals(Arrays.asList("Smith, John", "says \"hi\"", ""), reader.readRecord());
+    }
+
+    @Test
+    void quoteInsideUnquotedFieldIsLiteral() throws IOException {
+        CsvReader reader = reader("5\" screen,x\n");
+
+        assertEquals(Arrays.asList("5\" screen", "x"), reader.readRecord());
+    }
+
+    @Test
+    void quotedFieldsMayContainLineBreaks() throws IOException {
+        CsvReader reader = reader("1,\"Late checkout\nRoom upgrade\",x\n2,y,z\n");
+
+        assertEquals(Arrays.asList("1", "Late checkout\nRoom upgrade", "x"), reader.readRecord());
+        assertEquals(1, reader.getLineNumber());
+        assertEquals(Arrays.asList("2", "y", "z"), reader.readRecord());
+        assertEquals(3, reader.getLineNumber());
+    }
+
+    @Test
+    void acceptsCrlfLineEndings() throws IOException {
+        CsvReader reader = reader("a,b\r\n1,\"x\r\ny\"\r\n2,z\r\n");
+
+        assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        assertEquals(Arrays.asList("1", "x\r\ny"), reader.readRecord());
+        assertEquals(2, reader.getLineNumber());
+        assertEquals(Arrays.asList("2", "z"), reader.readRecord());
+        assertEquals(4, reader.getLineNumber());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void skipsBlankLines() throws IOException {
+        CsvReader reader = reader("a\n\n\r\nb\n");
+
+        assertEquals(Arrays.asList("a"), reader.readRecord());
+        assertEquals(Arrays.asList("b"), reader.readRecord());
+        assertEquals(4, reader.getLineNumber());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void unterminatedQuoteIsAnError() throws IOException {
+        CsvReader reader = reader("1,\"never closed\n2,3\n");
+
+        assertThrows(IOException.class, reader::readRecord);
+    }
+
+    @Test
+    void emptyInputHasNoRecords() throws IOException {
+        assertNull(reader("").readRecord());
+    }
+
+    private static CsvReader reader(String csv) {
+        return new CsvReader(new StringReader(csv));
+    }
+}